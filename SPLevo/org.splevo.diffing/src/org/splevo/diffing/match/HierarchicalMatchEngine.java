@@ -13,8 +13,15 @@
 package org.splevo.diffing.match;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.notify.Notifier;
@@ -44,6 +51,12 @@ import com.google.common.collect.Lists;
  * This match engine does not support three-way matches. So the origin part of the scop is ignored
  * at all.
  * </p>
+ * <p>
+ * <b>Parallel Matching</b><br>
+ * If a parallelism greater than one is set and both strategies declare to be thread-safe, the
+ * matched resources and the subtrees of the upper hierarchy levels are matched concurrently in a
+ * fork-join pool. The matches are merged in the same order as in a sequential run.
+ * </p>
  */
 public class HierarchicalMatchEngine implements IMatchEngine {
 
@@ -62,6 +75,12 @@ public class HierarchicalMatchEngine implements IMatchEngine {
     /** The resource matcher to find resources belonging together. */
     private IResourceMatcher resourceMatcher = null;
 
+    /** The number of threads to use for matching. */
+    private int parallelism = 1;
+
+    /** The depth of the hierarchy levels up to which the subtrees are matched concurrently. */
+    private static final int MAX_FORK_DEPTH = 3;
+
     /**
      * Constructor to set the required dependencies.
      *
@@ -82,6 +101,26 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         this.resourceMatcher = resourceMatcher;
     }
 
+    /**
+     * Set the number of threads to use for matching. The parallel matching is only performed if
+     * the equality and ignore strategy are thread-safe.
+     *
+     * @param parallelism
+     *            The number of threads. A value of one or less disables the parallel matching.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Check if the matching is performed in parallel.
+     *
+     * @return True if more than one thread is configured and both strategies are thread-safe.
+     */
+    public boolean isParallelMatchingEnabled() {
+        return parallelism > 1 && equalityStrategy.isThreadSafe() && ignoreStrategy.isThreadSafe();
+    }
+
     @Override
     public Comparison match(IComparisonScope scope, Monitor monitor) {
 
@@ -91,7 +130,18 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         Comparison comparison = createComparison();
         comparison.setThreeWay(false);
 
-        match(comparison, scope, left, right, monitor);
+        equalityStrategy.prepareComparison();
+
+        if (isParallelMatchingEnabled()) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(ForkJoinTask.adapt(() -> match(comparison, scope, left, right, monitor)));
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            match(comparison, scope, left, right, monitor);
+        }
 
         return comparison;
     }
@@ -158,6 +208,11 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         final IResourceMatcher matcher = createResourceMatcher();
         final Iterable<MatchResource> mappings = matcher.createMappings(leftChildren, rightChildren, originChildren);
 
+        if (isForkingPossible()) {
+            matchInParallel(comparison, Lists.newArrayList(mappings), monitor);
+            return;
+        }
+
         for (MatchResource mapping : mappings) {
             comparison.getMatchedResources().add(mapping);
 
@@ -169,6 +224,57 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         }
     }
 
+    /**
+     * Match the contents of the mapped resources concurrently. The mappings and matches are added to
+     * the comparison in the order of the mappings.
+     *
+     * @param comparison
+     *            The comparison to which will be added detected matches.
+     * @param mappings
+     *            The mappings of the resources to match.
+     * @param monitor
+     *            The monitor to report progress or to check for cancellation
+     */
+    private void matchInParallel(Comparison comparison, List<MatchResource> mappings, Monitor monitor) {
+        List<ForkJoinTask<List<Match>>> tasks = new ArrayList<ForkJoinTask<List<Match>>>();
+        for (MatchResource mapping : mappings) {
+            comparison.getMatchedResources().add(mapping);
+            List<EObject> leftElements = getContents(mapping.getLeft());
+            List<EObject> rightElements = getContents(mapping.getRight());
+            tasks.add(ForkJoinTask.adapt(() -> match(comparison, leftElements, rightElements, monitor, 0)));
+        }
+
+        ForkJoinTask.invokeAll(tasks);
+
+        for (ForkJoinTask<List<Match>> task : tasks) {
+            comparison.getMatches().addAll(task.join());
+        }
+    }
+
+    /**
+     * Get the root elements of a resource.
+     *
+     * @param resource
+     *            The resource. Might be null.
+     * @return The root elements or an empty list if there is no resource.
+     */
+    private List<EObject> getContents(Resource resource) {
+        if (resource == null) {
+            return new ArrayList<EObject>();
+        }
+        return resource.getContents();
+    }
+
+    /**
+     * Check if the current thread can fork further match tasks.
+     *
+     * @return True if the parallel matching is enabled and the current thread belongs to a
+     *         fork-join pool.
+     */
+    private boolean isForkingPossible() {
+        return ForkJoinTask.inForkJoinPool() && isParallelMatchingEnabled();
+    }
+
     /**
      * Build the matches for two given resources. The direct sub elements will be detected and
      * pushed into a match process for sub elements.
@@ -189,17 +295,10 @@ public class HierarchicalMatchEngine implements IMatchEngine {
     			.forEach(match -> comparison.getMatchedResources().add(match));
     	}
     	
-        List<EObject> leftElements = new ArrayList<EObject>();
-        List<EObject> rightElements = new ArrayList<EObject>();
+        List<EObject> leftElements = getContents(leftRes);
+        List<EObject> rightElements = getContents(rightRes);
 
-        if (leftRes != null) {
-            leftElements = leftRes.getContents();
-        }
-        if (rightRes != null) {
-            rightElements = rightRes.getContents();
-        }
-
-        List<Match> matches = match(comparison, leftElements, rightElements, monitor);
+        List<Match> matches = match(comparison, leftElements, rightElements, monitor, 0);
         comparison.getMatches().addAll(matches);
     }
 
@@ -221,7 +320,7 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         List<EObject> leftElements = Lists.newArrayList(left);
         List<EObject> rightElements = Lists.newArrayList(right);
 
-        List<Match> matches = match(comparison, leftElements, rightElements, monitor);
+        List<Match> matches = match(comparison, leftElements, rightElements, monitor, 0);
         comparison.getMatches().addAll(matches);
     }
 
@@ -237,39 +336,52 @@ public class HierarchicalMatchEngine implements IMatchEngine {
      *            The right elements to find matches for.
      * @param monitor
      *            The monitor to track the progress.
+     * @param depth
+     *            The depth of the hierarchy level of the elements.
      * @return The list of created matches.
      */
     private List<Match> match(Comparison comparison, List<EObject> leftElements, List<EObject> rightElements,
-            Monitor monitor) {
+            Monitor monitor, int depth) {
 
         List<Match> matches = new ArrayList<Match>();
 
         List<EObject> leftElementsInScope = filterIgnoredElements(leftElements);
-        List<EObject> rightElementsInScope = filterIgnoredElements(rightElements);
+        CandidateIndex rightCandidates = new CandidateIndex(filterIgnoredElements(rightElements));
+
+        boolean fork = leftElementsInScope.size() > 1 && depth < MAX_FORK_DEPTH && isForkingPossible();
+        List<ForkJoinTask<List<Match>>> subMatchTasks = new ArrayList<ForkJoinTask<List<Match>>>();
 
         for (EObject leftElement : leftElementsInScope) {
             Match match = CompareFactory.eINSTANCE.createMatch();
             match.setLeft(leftElement);
 
-            for (EObject rightElement : rightElementsInScope) {
-                if (equalityStrategy.areEqual(leftElement, rightElement)) {
-                    rightElementsInScope.remove(rightElement);
-                    match.setRight(rightElement);
-                    List<Match> subMatches = match(comparison, leftElement.eContents(), rightElement.eContents(),
-                            monitor);
-                    match.getSubmatches().addAll(subMatches);
-                    break;
-                }
+            EObject rightElement = rightCandidates.removeFirstEqual(leftElement);
+            List<EObject> leftChildren = leftElement.eContents();
+            List<EObject> rightChildren = new BasicEList<>();
+            if (rightElement != null) {
+                match.setRight(rightElement);
+                rightChildren = rightElement.eContents();
             }
-            
-            if (match.getRight() == null) {
-            	match.getSubmatches().addAll(match(comparison, leftElement.eContents(), new BasicEList<>(), monitor));
+
+            if (fork) {
+                final List<EObject> rightChildrenToMatch = rightChildren;
+                subMatchTasks.add(ForkJoinTask
+                        .adapt(() -> match(comparison, leftChildren, rightChildrenToMatch, monitor, depth + 1)));
+            } else {
+                match.getSubmatches().addAll(match(comparison, leftChildren, rightChildren, monitor, depth + 1));
             }
 
             matches.add(match);
         }
 
-        List<Match> rightOnlyMatches = createMatchesForRightElements(rightElementsInScope);
+        if (fork) {
+            ForkJoinTask.invokeAll(subMatchTasks);
+            for (int i = 0; i < subMatchTasks.size(); i++) {
+                matches.get(i).getSubmatches().addAll(subMatchTasks.get(i).join());
+            }
+        }
+
+        List<Match> rightOnlyMatches = createMatchesForRightElements(rightCandidates.getRemaining());
         matches.addAll(rightOnlyMatches);
 
         return matches;
@@ -321,6 +433,118 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         return elementsInScope;
     }
 
+    /**
+     * Index of the right elements of a hierarchy level which are still available for a match.
+     * <p>
+     * The candidates are bucketed by the keys provided by the equality strategy. A left element
+     * is only compared with the candidates of its own bucket and the candidates without a key. The
+     * candidates are still checked in their original order, so the first equal candidate is the
+     * same one a pairwise comparison of all candidates would find.
+     * </p>
+     */
+    private class CandidateIndex {
+
+        /** The candidates in their original order. */
+        private final List<EObject> candidates;
+
+        /** The positions of the candidates with a key, grouped by the key in ascending order. */
+        private final Map<Object, List<Integer>> keyedPositions = new HashMap<Object, List<Integer>>();
+
+        /** The positions of the candidates without a key in ascending order. */
+        private final List<Integer> unkeyedPositions = new ArrayList<Integer>();
+
+        /** The candidates which have already been matched. */
+        private final Set<EObject> matchedCandidates = Collections.newSetFromMap(new IdentityHashMap<EObject, Boolean>());
+
+        /**
+         * Constructor to index the candidates.
+         *
+         * @param candidates
+         *            The candidates to index.
+         */
+        public CandidateIndex(List<EObject> candidates) {
+            this.candidates = candidates;
+            for (int i = 0; i < candidates.size(); i++) {
+                Object key = equalityStrategy.getCandidateKey(candidates.get(i), false);
+                if (key == null) {
+                    unkeyedPositions.add(i);
+                } else {
+                    keyedPositions.computeIfAbsent(key, k -> new ArrayList<Integer>()).add(i);
+                }
+            }
+        }
+
+        /**
+         * Find the first candidate which is equal to a left element and remove it from the index.
+         *
+         * @param leftElement
+         *            The left element to find an equal candidate for.
+         * @return The equal candidate or null if there is none.
+         */
+        public EObject removeFirstEqual(EObject leftElement) {
+            Object key = equalityStrategy.getCandidateKey(leftElement, true);
+            if (key == null) {
+                for (EObject candidate : candidates) {
+                    if (isEqualAndAvailable(leftElement, candidate)) {
+                        return candidate;
+                    }
+                }
+                return null;
+            }
+
+            List<Integer> bucket = keyedPositions.getOrDefault(key, Collections.<Integer> emptyList());
+            int bucketIndex = 0;
+            int unkeyedIndex = 0;
+            while (bucketIndex < bucket.size() || unkeyedIndex < unkeyedPositions.size()) {
+                int position;
+                if (unkeyedIndex >= unkeyedPositions.size() || (bucketIndex < bucket.size()
+                        && bucket.get(bucketIndex) < unkeyedPositions.get(unkeyedIndex))) {
+                    position = bucket.get(bucketIndex++);
+                } else {
+                    position = unkeyedPositions.get(unkeyedIndex++);
+                }
+                EObject candidate = candidates.get(position);
+                if (isEqualAndAvailable(leftElement, candidate)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Check if a candidate has not been matched yet and is equal to a left element. If so, the
+         * candidate is marked as matched.
+         *
+         * @param leftElement
+         *            The left element.
+         * @param candidate
+         *            The candidate to check.
+         * @return True if the candidate is available and equal, false if not.
+         */
+        private boolean isEqualAndAvailable(EObject leftElement, EObject candidate) {
+            if (matchedCandidates.contains(candidate) || !equalityStrategy.areEqual(leftElement, candidate)) {
+                return false;
+            }
+            matchedCandidates.add(candidate);
+            return true;
+        }
+
+        /**
+         * Get the candidates which have not been matched in their original order.
+         *
+         * @return The remaining candidates.
+         */
+        public List<EObject> getRemaining() {
+            List<EObject> remaining = new ArrayList<EObject>();
+            for (EObject candidate : candidates) {
+                if (!matchedCandidates.contains(candidate)) {
+                    remaining.add(candidate);
+                }
+            }
+            return remaining;
+        }
+    }
+
     /**
      * This will be used to create the resource matcher that will be used by this match engine.
      *
@@ -372,6 +596,38 @@ public class HierarchicalMatchEngine implements IMatchEngine {
          * @return True if they can be assumed as equal, false if not.
          */
         public boolean areEqual(EObject left, EObject right);
+
+        /**
+         * Get a key to restrict the candidates an element is compared with. Two elements can only
+         * be equal if the key of the left element equals the key of the right element. Elements
+         * without a key are compared with all candidates.
+         *
+         * @param element
+         *            The element to get the key for.
+         * @param left
+         *            True if the element is part of the left model, false if it is part of the
+         *            right model.
+         * @return The key or null if the element can be equal to any other element.
+         */
+        public default Object getCandidateKey(EObject element, boolean left) {
+            return null;
+        }
+
+        /**
+         * Check if the strategy can be used by several threads concurrently.
+         *
+         * @return True if it is thread-safe, false if not.
+         */
+        public default boolean isThreadSafe() {
+            return false;
+        }
+
+        /**
+         * Prepare the strategy for a new comparison. Strategies can discard any state which is only
+         * valid for a single comparison.
+         */
+        public default void prepareComparison() {
+        }
     }
 
     /**
@@ -388,6 +644,15 @@ public class HierarchicalMatchEngine implements IMatchEngine {
          */
         public boolean ignore(EObject element);
 
+        /**
+         * Check if the strategy can be used by several threads concurrently.
+         *
+         * @return True if it is thread-safe, false if not.
+         */
+        public default boolean isThreadSafe() {
+            return false;
+        }
+
     }
 
 }
@@ -34,6 +34,9 @@ public class HierarchicalMatchEngineFactory extends MatchEngineFactoryImpl {
 	/** The mode which resource matcher to use. */
 	private IResourceMatcher resourceMatcher;
 
+	/** The number of threads the match engines use. */
+	private int parallelism = 1;
+
 	/**
 	 * Constructor to set the required match engine dependencies.
 	 * 
@@ -55,6 +58,18 @@ public class HierarchicalMatchEngineFactory extends MatchEngineFactoryImpl {
 		this.resourceMatcher = resourceMatcher;
 	}
 
+	/**
+	 * Set the number of threads the created match engines use. The matching is
+	 * only performed in parallel if the equality and ignore strategy are
+	 * thread-safe.
+	 * 
+	 * @param parallelism
+	 *            The number of threads.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
 	@Override
 	public boolean isMatchEngineFactoryFor(IComparisonScope scope) {
 		return true;
@@ -62,8 +77,10 @@ public class HierarchicalMatchEngineFactory extends MatchEngineFactoryImpl {
 
 	@Override
 	public IMatchEngine getMatchEngine() {
-		return new HierarchicalMatchEngine(equalityHelper, equalityStrategy,
+		HierarchicalMatchEngine engine = new HierarchicalMatchEngine(equalityHelper, equalityStrategy,
 				ignoreStrategy, resourceMatcher);
+		engine.setParallelism(parallelism);
+		return engine;
 	}
 
 }
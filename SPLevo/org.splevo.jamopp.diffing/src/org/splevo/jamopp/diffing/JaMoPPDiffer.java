@@ -66,6 +66,7 @@ import org.splevo.jamopp.diffing.scope.PackageIgnoreChecker;
 import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
 import org.splevo.jamopp.extraction.JaMoPPSoftwareModelExtractor;
 
+import com.google.common.base.Strings;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
@@ -144,6 +145,12 @@ public class JaMoPPDiffer implements Differ {
      */
     public static final String OPTION_JAVA_CLASSIFIER_NORMALIZATION = "JaMoPP.Java.Classifier.Normalization.Pattern";
 
+    /**
+     * Option key for the number of workers which parse the Java files of a source model.<br>
+     * If the option is empty or missing, the files are parsed sequentially.
+     */
+    public static final String OPTION_JAMOPP_EXTRACTION_PARALLELISM = "JaMoPP.Extraction.Parallelism";
+
     private static final String LABEL = "JaMoPP Java Differ";
     private static final String ID = "org.splevo.jamopp.differ";
     private static Logger logger = Logger.getLogger(JaMoPPDiffer.class);
@@ -180,6 +187,7 @@ public class JaMoPPDiffer implements Differ {
             Map<String, String> diffingOptions) throws DiffingException, DiffingNotSupportedException {
 
         final List<String> ignoreFiles = loadIgnoreFileConfiguration(diffingOptions);
+        extractor.setParallelism(loadExtractionParallelism(diffingOptions));
 
         logger.info("Load source models");
         ResourceSet resourceSetLeading = loadResourceSetRecursively(leadingModelDirectory, ignoreFiles);
@@ -210,6 +218,26 @@ public class JaMoPPDiffer implements Differ {
         return ignoreFiles;
     }
 
+    /**
+     * Get the number of workers for the extraction of the source models.
+     *
+     * @param diffingOptions
+     *            The options map.
+     * @return The number of workers.
+     */
+    private int loadExtractionParallelism(Map<String, String> diffingOptions) {
+        String parallelism = Strings.nullToEmpty(diffingOptions.get(OPTION_JAMOPP_EXTRACTION_PARALLELISM)).trim();
+        if (parallelism.isEmpty()) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(parallelism);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid extraction parallelism: " + parallelism);
+            return 1;
+        }
+    }
+
     /**
      * Diffing the models contained in the provided resource sets.<br>
      *
@@ -519,6 +547,7 @@ public class JaMoPPDiffer implements Differ {
         Map<String, String> options = Maps.newHashMap();
         options.put(OPTION_JAVA_IGNORE_PACKAGES, "java.*\njavax.*");
         options.put(OPTION_JAMOPP_IGNORE_FILES, "package-info.java");
+        options.put(OPTION_JAMOPP_EXTRACTION_PARALLELISM, "");
         options.put(OPTION_JAVA_CLASSIFIER_NORMALIZATION, "");
         options.put(OPTION_JAVA_PACKAGE_NORMALIZATION, "");
         options.put(JaMoPPPostProcessor.OPTION_DIFF_CLEANUP_DERIVED_COPIES, "");
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.splevo.jamopp.diffing.match;
 
+import java.util.function.Supplier;
+
 import org.eclipse.emf.ecore.EObject;
 import org.splevo.diffing.match.HierarchicalMatchEngine.EqualityStrategy;
 import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
@@ -23,6 +25,12 @@ public class JaMoPPEqualityStrategy implements EqualityStrategy {
     /** The similarity checker to use internally for equality checks. */
     private SimilarityChecker similarityChecker = null;
 
+    /** Flag if the compared models do not contain any proxies. */
+    private boolean resolvedModels = false;
+
+    /** The similarity checkers of the threads or null if all threads use the same checker. */
+    private ThreadLocal<SimilarityChecker> threadSimilarityCheckers = null;
+
     /**
      * Constructor to set the required dependencies.
      *
@@ -33,13 +41,65 @@ public class JaMoPPEqualityStrategy implements EqualityStrategy {
         this.similarityChecker = similarityChecker;
     }
 
+    /**
+     * Constructor to set the required dependencies.
+     *
+     * @param similarityChecker
+     *            The similarity checker to proof equality.
+     * @param resolvedModels
+     *            True if all proxies of the compared models are resolved. In this case, the
+     *            equality checks do not modify the models and can be performed concurrently.
+     */
+    public JaMoPPEqualityStrategy(SimilarityChecker similarityChecker, boolean resolvedModels) {
+        this.similarityChecker = similarityChecker;
+        this.resolvedModels = resolvedModels;
+    }
+
+    /**
+     * Constructor for a strategy which is used concurrently. Every thread uses its own similarity
+     * checker so that the state of the checkers is not shared. The compared models must not
+     * contain any proxies.
+     *
+     * @param similarityCheckerFactory
+     *            Creates the similarity checker of a thread. The created checkers should share one
+     *            cache so that it can be cleared before each comparison.
+     */
+    public JaMoPPEqualityStrategy(Supplier<SimilarityChecker> similarityCheckerFactory) {
+        this.similarityChecker = similarityCheckerFactory.get();
+        this.resolvedModels = true;
+        this.threadSimilarityCheckers = ThreadLocal.withInitial(similarityCheckerFactory);
+        this.threadSimilarityCheckers.set(this.similarityChecker);
+    }
+
+    private SimilarityChecker getSimilarityChecker() {
+        if (threadSimilarityCheckers == null) {
+            return similarityChecker;
+        }
+        return threadSimilarityCheckers.get();
+    }
+
     @Override
     public boolean areEqual(EObject left, EObject right) {
-        Boolean similar = similarityChecker.isSimilar(left, right);
+        Boolean similar = getSimilarityChecker().isSimilar(left, right);
         if (similar == Boolean.TRUE) {
             return true;
         }
         return false;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return resolvedModels;
+    }
+
+    @Override
+    public void prepareComparison() {
+        similarityChecker.clearCache();
+    }
+
+    @Override
+    public Object getCandidateKey(EObject element, boolean left) {
+        return getSimilarityChecker().computeSimilarityKey(element, left);
+    }
+
 }
\ No newline at end of file
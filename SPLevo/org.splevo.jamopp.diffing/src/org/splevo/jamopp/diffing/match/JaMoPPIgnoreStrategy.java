@@ -58,4 +58,9 @@ public class JaMoPPIgnoreStrategy implements IgnoreStrategy {
 
         return false;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.splevo.jamopp.diffing.scope;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.emf.ecore.EObject;
@@ -25,8 +26,11 @@ import org.eclipse.emf.ecore.EObject;
  */
 public class PackageIgnoreChecker {
 
-    /** The internal switch to check for ignoring an element. */
-    private IgnoreSwitch ignoreSwitch = null;
+    /**
+     * The internal switch to check for ignoring an element. As the switch lazily builds up its
+     * delegates, every thread uses its own switch.
+     */
+    private ThreadLocal<IgnoreSwitch> ignoreSwitch = null;
 
     /**
      * Constructor requires to set the list of packages to be ignored.
@@ -35,7 +39,8 @@ public class PackageIgnoreChecker {
      *            The list of packages to be ignored. Regular expressions are excepted.
      */
     public PackageIgnoreChecker(List<String> ignorePackages) {
-        ignoreSwitch = new IgnoreSwitch(ignorePackages);
+        List<String> packages = new ArrayList<String>(ignorePackages);
+        ignoreSwitch = ThreadLocal.withInitial(() -> new IgnoreSwitch(packages));
     }
 
     /**
@@ -46,7 +51,7 @@ public class PackageIgnoreChecker {
      * @return TRUE, if it should be ignored; FALSE
      */
     public Boolean isInIgnorePackage(EObject element) {
-        return ignoreSwitch.doSwitch(element);
+        return ignoreSwitch.get().doSwitch(element);
     }
 
 }
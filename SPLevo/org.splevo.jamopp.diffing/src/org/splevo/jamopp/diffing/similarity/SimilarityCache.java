@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2014
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Martin Armbruster - initial API and implementation and/or initial documentation
+ *******************************************************************************/
+package org.splevo.jamopp.diffing.similarity;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.eclipse.emf.ecore.EObject;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache for the results of similarity checks.
+ *
+ * <p>
+ * The results are stored per pair of elements and statement position flag. The elements are
+ * compared by their identity. As the cache does not notice changes of the elements, it must be
+ * cleared as soon as the compared models are modified, e.g. before a new comparison starts. The
+ * cache can be used by several threads concurrently.
+ * </p>
+ */
+public class SimilarityCache {
+
+    /** The cached results. Undecided results are stored as empty optionals. */
+    private final Cache<ElementPair, Optional<Boolean>> results;
+
+    /** The number of checks answered by the cache. */
+    private final LongAdder hits = new LongAdder();
+
+    /** The number of checks which had to be computed. */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor to set the size of the cache.
+     *
+     * @param maximumSize
+     *            The maximum number of results to keep. If it is exceeded, the least recently used
+     *            results are evicted.
+     */
+    public SimilarityCache(long maximumSize) {
+        this.results = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Get the cached result for a similarity check or compute and cache it.
+     *
+     * @param element1
+     *            The first element of the check.
+     * @param element2
+     *            The second element of the check.
+     * @param checkStatementPosition
+     *            Flag if the position of statements is considered by the check.
+     * @param check
+     *            The check to compute the result. It is performed without holding any lock, so it
+     *            can recursively use the cache.
+     * @return TRUE, if the elements are similar; FALSE if not, NULL if it can't be decided.
+     */
+    public Boolean getOrCompute(EObject element1, EObject element2, boolean checkStatementPosition,
+            Supplier<Boolean> check) {
+        ElementPair key = new ElementPair(element1, element2, checkStatementPosition);
+        Optional<Boolean> result = results.getIfPresent(key);
+        if (result != null) {
+            hits.increment();
+            return result.orElse(null);
+        }
+        misses.increment();
+        Boolean similarity = check.get();
+        results.put(key, Optional.ofNullable(similarity));
+        return similarity;
+    }
+
+    /**
+     * Remove all cached results. The hit and miss counters are not reset.
+     */
+    public void clear() {
+        results.invalidateAll();
+    }
+
+    /**
+     * Get the number of checks answered by the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of checks which were not cached and had to be computed.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Reset the hit and miss counters.
+     */
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SimilarityCache[size=" + results.size() + ", hits=" + getHitCount() + ", misses="
+                + getMissCount() + "]";
+    }
+
+    /**
+     * Key of a cached result which compares the elements by their identity.
+     */
+    private static final class ElementPair {
+
+        private final EObject element1;
+        private final EObject element2;
+        private final boolean checkStatementPosition;
+        private final int hash;
+
+        /**
+         * Constructor to set the compared elements.
+         *
+         * @param element1
+         *            The first element.
+         * @param element2
+         *            The second element.
+         * @param checkStatementPosition
+         *            The statement position flag.
+         */
+        ElementPair(EObject element1, EObject element2, boolean checkStatementPosition) {
+            this.element1 = element1;
+            this.element2 = element2;
+            this.checkStatementPosition = checkStatementPosition;
+            int result = System.identityHashCode(element1);
+            result = 31 * result + System.identityHashCode(element2);
+            this.hash = 31 * result + Boolean.hashCode(checkStatementPosition);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ElementPair)) {
+                return false;
+            }
+            ElementPair other = (ElementPair) obj;
+            return element1 == other.element1 && element2 == other.element2
+                    && checkStatementPosition == other.checkStatementPosition;
+        }
+    }
+}
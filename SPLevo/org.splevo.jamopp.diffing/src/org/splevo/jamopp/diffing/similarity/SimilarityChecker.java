@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.splevo.jamopp.diffing.similarity;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -19,20 +20,29 @@ import java.util.regex.Pattern;
 import org.apache.log4j.Logger;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.classifiers.AnonymousClass;
+import org.emftext.language.java.classifiers.ConcreteClassifier;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.members.Constructor;
+import org.emftext.language.java.members.EnumConstant;
+import org.emftext.language.java.members.Field;
+import org.emftext.language.java.members.Method;
+import org.splevo.diffing.util.NormalizationUtil;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 
 /**
  * Checker for the similarity of two elements specific for the java application model.
  *
- * TODO: Check caching for this similarity checker. Would require to pass this to the similarity
- * switch as well!
+ * The results of the checks can be cached with a {@link SimilarityCache} (see
+ * {@link #enableCache(long)}). The cache is also used for the checks of sub elements performed by
+ * the {@link SimilaritySwitch}.
  *
  */
 public class SimilarityChecker {
 
     /** The logger for this class. */
-    @SuppressWarnings("unused")
     private Logger logger = Logger.getLogger(SimilarityChecker.class);
 
     private LinkedHashMap<Pattern, String> classifierNormalizations = null;
@@ -40,6 +50,12 @@ public class SimilarityChecker {
     private LinkedHashMap<Pattern, String> packageNormalizations = null;
     private boolean defaultCheckStatementPositionFlag = true;
 
+    /** The cache for the similarity results or null if the results are not cached. */
+    private SimilarityCache cache = null;
+
+    /** The checkers used by the similarity switches, indexed by their statement position flag. */
+    private SimilarityChecker[] switchCheckers = null;
+
     /**
      * Constructor to set the required configurations.
      *
@@ -86,6 +102,67 @@ public class SimilarityChecker {
     	this.defaultCheckStatementPositionFlag = check;
     }
 
+    /**
+     * Enable the caching of the similarity results.
+     * <p>
+     * The cache is shared with the checkers of the {@link SimilaritySwitch} which check the sub
+     * elements. As the cached results are only valid as long as the compared models are not
+     * modified, the cache should be cleared with {@link #clearCache()} before each comparison.
+     * </p>
+     *
+     * @param maximumSize
+     *            The maximum number of cached results.
+     */
+    public void enableCache(long maximumSize) {
+        enableCache(new SimilarityCache(maximumSize));
+    }
+
+    /**
+     * Enable the caching of the similarity results in an existing cache.
+     * <p>
+     * As the cache is thread-safe, it can be shared by several checkers which are used by
+     * different threads.
+     * </p>
+     *
+     * @param sharedCache
+     *            The cache for the results.
+     */
+    public void enableCache(SimilarityCache sharedCache) {
+        this.cache = sharedCache;
+        SimilarityChecker[] checkers = new SimilarityChecker[2];
+        for (int i = 0; i < checkers.length; i++) {
+            checkers[i] = new SimilarityChecker(classifierNormalizations, compilationUnitNormalizations,
+                    packageNormalizations);
+            checkers[i].setCheckStatementPositionOnDefault(i == 1);
+            checkers[i].cache = this.cache;
+        }
+        // The checkers of the sub elements use the same checkers so that all levels are cached.
+        for (SimilarityChecker checker : checkers) {
+            checker.switchCheckers = checkers;
+        }
+        this.switchCheckers = checkers;
+    }
+
+    /**
+     * Get the cache of the similarity results.
+     *
+     * @return The cache or null if the results are not cached.
+     */
+    public SimilarityCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Remove all cached similarity results. The hit and miss counters of the cache are logged
+     * before.
+     */
+    public void clearCache() {
+        if (this.cache != null) {
+            logger.debug(this.cache);
+            this.cache.clear();
+        }
+    }
+
     /**
      * Check two object lists if they are similar.
      *
@@ -148,6 +225,25 @@ public class SimilarityChecker {
             return Boolean.FALSE;
         }
 
+        if (this.cache != null) {
+            return this.cache.getOrCompute(element1, element2, checkStatementPosition,
+                () -> checkSimilarity(element1, element2, checkStatementPosition));
+        }
+        return checkSimilarity(element1, element2, checkStatementPosition);
+    }
+
+    /**
+     * Check two non-null objects if they are similar without using the cache.
+     *
+     * @param element1
+     *            The first element to check.
+     * @param element2
+     *            The second element to check.
+     * @param checkStatementPosition
+     *            Flag if the position of statement elements should be considered or not.
+     * @return TRUE, if they are similar; FALSE if not, NULL if it can't be decided.
+     */
+    private Boolean checkSimilarity(EObject element1, EObject element2, boolean checkStatementPosition) {
         // if a proxy is present try to resolve it
         // the other element is used as a context.
         // TODO Clarify why it can happen that one proxy is resolved and the other is not
@@ -168,6 +264,58 @@ public class SimilarityChecker {
         return this.checkSimilarityForResolvedAndSameType(element1, element2, checkStatementPosition);
     }
     
+    /**
+     * Computes a key for an element which is equal for all elements that can be similar to each
+     * other. It is derived from the type of the element and, for named declarations, from the name
+     * checked by the {@link SimilaritySwitch}. As the switch only normalizes the name of the first
+     * element, the normalizations are applied to the key of the first element only.
+     * <p>
+     * Subclasses which change the similarity decision for named JaMoPP elements must override this
+     * method accordingly.
+     * </p>
+     *
+     * @param element
+     *            The element to compute the key for.
+     * @param firstElement
+     *            True if the element is passed as the first element to {@link #isSimilar(EObject, EObject)},
+     *            false if it is passed as the second one.
+     * @return The key or null if the element can be similar to any element (e.g., for proxies).
+     */
+    public Object computeSimilarityKey(EObject element, boolean firstElement) {
+        if (element == null || element.eIsProxy()) {
+            return null;
+        }
+
+        String name = null;
+        if (element instanceof ConcreteClassifier && !(element instanceof AnonymousClass)) {
+            name = ((ConcreteClassifier) element).getQualifiedName();
+            if (firstElement) {
+                name = NormalizationUtil.normalize(name, classifierNormalizations);
+            }
+        } else if (element instanceof CompilationUnit) {
+            name = ((CompilationUnit) element).getName();
+            if (firstElement) {
+                name = NormalizationUtil.normalize(name, compilationUnitNormalizations);
+                name = NormalizationUtil.normalize(name, packageNormalizations);
+            }
+        } else if (element instanceof Method) {
+            Method method = (Method) element;
+            return Arrays.asList(element.eClass(), Strings.nullToEmpty(method.getName()),
+                    method.getParameters().size());
+        } else if (element instanceof Constructor) {
+            Constructor constructor = (Constructor) element;
+            return Arrays.asList(element.eClass(), Strings.nullToEmpty(constructor.getName()),
+                    constructor.getParameters().size());
+        } else if (element instanceof EnumConstant) {
+            name = ((EnumConstant) element).getName();
+        } else if (element instanceof Field) {
+            name = ((Field) element).getName();
+        } else {
+            return element.eClass();
+        }
+        return Arrays.asList(element.eClass(), Strings.nullToEmpty(name));
+    }
+
     /**
      * Checks the similarity of two EObjects where both EObjects are resolved and have the same type.
      * 
@@ -179,6 +327,11 @@ public class SimilarityChecker {
      */
     protected Boolean checkSimilarityForResolvedAndSameType(EObject element1, EObject element2,
     		boolean checkStatementPosition) {
+    	if (switchCheckers != null) {
+    		return new SimilaritySwitch(element2, switchCheckers[checkStatementPosition ? 1 : 0],
+    				classifierNormalizations, compilationUnitNormalizations, packageNormalizations)
+    				.doSwitch(element1);
+    	}
     	return new SimilaritySwitch(element2, checkStatementPosition, classifierNormalizations,
     			compilationUnitNormalizations, packageNormalizations).doSwitch(element1);
     }
@@ -184,9 +184,34 @@ public class SimilaritySwitch extends ComposedSwitch<Boolean> {
             LinkedHashMap<Pattern, String> classifierNormalizations,
             LinkedHashMap<Pattern, String> compilationUnitNormalizations,
             LinkedHashMap<Pattern, String> packageNormalizations) {
-        this.similarityChecker = new SimilarityChecker(classifierNormalizations, compilationUnitNormalizations,
-                packageNormalizations);
-        this.similarityChecker.setCheckStatementPositionOnDefault(checkStatementPosition);
+        this(compareElement, createSimilarityChecker(checkStatementPosition, classifierNormalizations,
+                compilationUnitNormalizations, packageNormalizations), classifierNormalizations,
+                compilationUnitNormalizations, packageNormalizations);
+    }
+
+    /**
+     * Constructor requiring the element to compare with and the checker for sub elements.
+     * 
+     * @param compareElement
+     *            The right-side / original element to check the similarity against.
+     * @param similarityChecker
+     *            The checker to compare sub elements. Its default for the statement position check
+     *            is used by the switch as well.
+     * @param classifierNormalizations
+     *            A list of patterns replace any match in a classifier name with the defined
+     *            replacement string.
+     * @param compilationUnitNormalizations
+     *            A list of patterns replace any match in a compilation unit name with the defined
+     *            replacement string.
+     * @param packageNormalizations
+     *            A list of package normalization patterns.
+     */
+    public SimilaritySwitch(EObject compareElement, SimilarityChecker similarityChecker,
+            LinkedHashMap<Pattern, String> classifierNormalizations,
+            LinkedHashMap<Pattern, String> compilationUnitNormalizations,
+            LinkedHashMap<Pattern, String> packageNormalizations) {
+        boolean checkStatementPosition = similarityChecker.checksStatementPositionOnDefault();
+        this.similarityChecker = similarityChecker;
         this.compareElement = compareElement;
         addSwitch(new AnnotationsSimilaritySwitch());
         addSwitch(new ArraysSimilaritySwitch());
@@ -210,6 +235,29 @@ public class SimilaritySwitch extends ComposedSwitch<Boolean> {
         addSwitch(new ModulesSimilaritySwitch());
     }
 
+    /**
+     * Create the checker to compare sub elements.
+     * 
+     * @param checkStatementPosition
+     *            Flag if the checker should consider the position of a statement by default.
+     * @param classifierNormalizations
+     *            The classifier normalization patterns.
+     * @param compilationUnitNormalizations
+     *            The compilation unit normalization patterns.
+     * @param packageNormalizations
+     *            The package normalization patterns.
+     * @return The created checker.
+     */
+    private static SimilarityChecker createSimilarityChecker(boolean checkStatementPosition,
+            LinkedHashMap<Pattern, String> classifierNormalizations,
+            LinkedHashMap<Pattern, String> compilationUnitNormalizations,
+            LinkedHashMap<Pattern, String> packageNormalizations) {
+        SimilarityChecker checker = new SimilarityChecker(classifierNormalizations, compilationUnitNormalizations,
+                packageNormalizations);
+        checker.setCheckStatementPositionOnDefault(checkStatementPosition);
+        return checker;
+    }
+
     /**
      * Similarity decisions for annotation elements.
      */
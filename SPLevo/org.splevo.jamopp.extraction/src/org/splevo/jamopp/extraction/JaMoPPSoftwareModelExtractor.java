@@ -6,15 +6,23 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.Resource.Factory;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.emftext.language.java.JavaClasspath;
+import org.emftext.language.java.containers.JavaRoot;
 import org.splevo.commons.emf.FileResourceHandling.ResourceHandlingOptions;
 import org.splevo.commons.emf.SPLevoResourceSet;
 import org.splevo.extraction.SoftwareModelExtractionException;
@@ -29,6 +37,14 @@ import jamopp.resource.JavaResource2Factory;
 /**
  * Software Model Extractor for the Java technology based on the Java Model Parser and Printer
  * (JaMoPP).
+ * 
+ * <p>
+ * If a parallelism greater than one is set, the Java files are parsed by a pool of workers, each
+ * using its own staging resource set with a local class path and its own resource factories. The
+ * parsed resources are moved into the target resource set and registered in its class path
+ * afterwards. The proxies are resolved sequentially in a second phase, as the resolution modifies
+ * the shared target resource set.
+ * </p>
  */
 public class JaMoPPSoftwareModelExtractor implements SoftwareModelExtractor {
 
@@ -38,6 +54,19 @@ public class JaMoPPSoftwareModelExtractor implements SoftwareModelExtractor {
     public static final String EXTRACTOR_ID = "JaMoPPSoftwareModelExtractor";
     private static final String EXTRACTOR_LABEL = "JaMoPP Software Model Extractor";
 
+    /** The number of workers to parse the files. */
+    private int parallelism = 1;
+
+    /**
+     * Set the number of workers to parse the Java files.
+     * 
+     * @param parallelism
+     *            The number of workers. A value of one or less disables the parallel extraction.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     /**
      * Extract the source model of a list of java projects. One project is the main project while a
      * list of additional projects to analyze can be specified. The reason for one main project is,
@@ -210,6 +239,9 @@ public class JaMoPPSoftwareModelExtractor implements SoftwareModelExtractor {
         List<Resource> resources = Lists.newArrayList();
 
         Collection<File> javaFiles = FileUtils.listFiles(rootFolder, new String[] { "java" }, true);
+        if (parallelism > 1 && javaFiles.size() > 1) {
+            return loadAllJavaFilesInParallel(Lists.newArrayList(javaFiles), rs);
+        }
         for (File javaFile : javaFiles) {
             
             Resource resource = parseResource(javaFile, rs);
@@ -223,6 +255,132 @@ public class JaMoPPSoftwareModelExtractor implements SoftwareModelExtractor {
         return resources;
     }
 
+    /**
+     * Parse java files with a pool of workers. Each worker parses the files into its own staging
+     * resource set. Afterwards, the resources are moved into the target resource set in the order of
+     * the files and registered in the class path of the target resource set.
+     *
+     * @param javaFiles
+     *            The files to parse.
+     * @param rs
+     *            The resource set to add the resources to.
+     * @return The loaded resources.
+     * @throws IOException
+     *             An exception during resource access.
+     */
+    private List<Resource> loadAllJavaFilesInParallel(List<File> javaFiles, ResourceSet rs) throws IOException {
+        int workerCount = Math.min(parallelism, javaFiles.size());
+        Resource[] parsedResources = new Resource[javaFiles.size()];
+        AtomicInteger nextFile = new AtomicInteger();
+
+        List<ResourceSet> stagingResourceSets = Lists.newArrayList();
+        List<Callable<Void>> workers = Lists.newArrayList();
+        for (int i = 0; i < workerCount; i++) {
+            ResourceSet stagingResourceSet = createStagingResourceSet(rs);
+            stagingResourceSets.add(stagingResourceSet);
+            workers.add(() -> {
+                for (int index = nextFile.getAndIncrement(); index < parsedResources.length; index = nextFile
+                        .getAndIncrement()) {
+                    parsedResources[index] = parseResource(javaFiles.get(index), stagingResourceSet);
+                }
+                return null;
+            });
+        }
+        runWorkers(workers);
+
+        List<Resource> resources = Lists.newArrayList();
+        for (int i = 0; i < parsedResources.length; i++) {
+            if (parsedResources[i] != null) {
+                rs.getResources().add(parsedResources[i]);
+                resources.add(parsedResources[i]);
+            } else {
+                logger.warn("Failed to load resource: " + javaFiles.get(i));
+            }
+        }
+
+        // resources loaded on demand during parsing, e.g. class files, are moved if not present yet
+        List<Resource> movedResources = Lists.newArrayList(resources);
+        for (ResourceSet stagingResourceSet : stagingResourceSets) {
+            for (Resource resource : Lists.newArrayList(stagingResourceSet.getResources())) {
+                if (rs.getResource(resource.getURI(), false) == null) {
+                    rs.getResources().add(resource);
+                    movedResources.add(resource);
+                } else {
+                    resource.unload();
+                }
+            }
+        }
+
+        // the local class paths of the staging resource sets are merged sequentially
+        JavaClasspath classpath = JavaClasspath.get(rs);
+        for (Resource resource : movedResources) {
+            for (EObject content : resource.getContents()) {
+                if (content instanceof JavaRoot) {
+                    classpath.registerJavaRoot((JavaRoot) content, resource.getURI());
+                }
+            }
+        }
+
+        return resources;
+    }
+
+    /**
+     * Create a resource set to parse files into with the same options as a target resource set. The
+     * staging resource set uses a local class path and its own resource factories, so that the
+     * parsing does not modify the class path or factories of the target resource set. The java
+     * resources share the reference cache of the target resource set, which is only used during the
+     * sequential resolution.
+     *
+     * @param targetResourceSet
+     *            The target resource set.
+     * @return The staging resource set.
+     */
+    private ResourceSet createStagingResourceSet(ResourceSet targetResourceSet) {
+        ResourceSet stagingResourceSet = new SPLevoResourceSet();
+        stagingResourceSet.getLoadOptions().putAll(targetResourceSet.getLoadOptions());
+        stagingResourceSet.getLoadOptions().put(JavaClasspath.OPTION_USE_LOCAL_CLASSPATH, Boolean.TRUE);
+
+        Factory originalFactory = new JavaResource2Factory();
+        Map<String, Object> factoryMap = stagingResourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap();
+        factoryMap.putAll(targetResourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap());
+        factoryMap.put("java", new JavaSourceOrClassFileResourceCachingFactoryImpl(originalFactory,
+                getReferenceCache(targetResourceSet)));
+        factoryMap.put("class", originalFactory);
+
+        JavaClasspath.get(stagingResourceSet);
+        return stagingResourceSet;
+    }
+
+    /**
+     * Run workers in a bounded pool and wait for them to finish.
+     *
+     * @param workers
+     *            The workers to run.
+     * @throws IOException
+     *             if a worker failed with an IOException.
+     */
+    private void runWorkers(List<Callable<Void>> workers) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, workers.size()));
+        try {
+            for (Future<Void> future : executor.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the workers.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Load a specific resource.
      *
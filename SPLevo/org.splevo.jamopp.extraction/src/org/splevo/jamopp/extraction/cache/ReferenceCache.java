@@ -14,16 +14,14 @@ package org.splevo.jamopp.extraction.cache;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
@@ -33,8 +31,6 @@ import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.emftext.language.java.JavaClasspath;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
@@ -45,19 +41,24 @@ import com.google.common.collect.Sets;
  * separate resource set is used per software, but for differencing several software models must be
  * accessed in one resource set.
  * 
- * Cache files are always named according to {@link #CACHE_FILE_NAME}.
+ * Cache files are always named according to {@link #CACHE_FILE_NAME}. Their format is described
+ * by {@link ReferenceCacheIndex}.
  * 
  * During initialization, cache files existing in the provided directories are loaded.
- * Subdirectories are not considered.
+ * Subdirectories are not considered. If a directory contains a cache file of the former Java
+ * serialization based format ({@link #LEGACY_CACHE_FILE_NAME}) only, it is loaded instead. For the
+ * first directory, it is migrated to the new format.
  * 
- * When proxies in new resources are resolved and {@link #save()} is triggered, they are stored in a
- * cache file of the first directory provided in the list. If a cache file already exists in the
- * first cache directory, the existing cache is loaded and enhanced with the new cached references.
+ * When proxies in new resources are resolved and {@link #save()} is triggered, they are appended to
+ * the cache file of the first directory provided in the list.
  */
 public class ReferenceCache {
 
     /** The name of the cache files to be used. */
-    public static final String CACHE_FILE_NAME = "jamopp.cache";
+    public static final String CACHE_FILE_NAME = "jamopp.refcache";
+
+    /** The name of the cache files in the former Java serialization based format. */
+    public static final String LEGACY_CACHE_FILE_NAME = "jamopp.cache";
 
     private static Logger logger = Logger.getLogger(ReferenceCache.class);
 
@@ -67,17 +68,17 @@ public class ReferenceCache {
      * the resolution.
      * 
      */
-    private int notResolvedFromCacheCounterReference = 0;
+    private final AtomicInteger notResolvedFromCacheCounterReference = new AtomicInteger();
 
-    private final Set<URI> blacklistedResourceURIs = Sets.newHashSet(); 
+    private final Set<URI> blacklistedResourceURIs = Sets.newConcurrentHashSet();
     
     /**
      * The file the cache will be serialized into.
      */
     private final List<String> cacheFileDirectories;
 
-    /** The cache data object to work with. */
-    private ReferenceCacheData cacheData = new ReferenceCacheData();
+    /** The cache index to work with. */
+    private ReferenceCacheIndex cacheIndex = new ReferenceCacheIndex();
 
     /**
      * Constructor to set a list of directories containing cache files. Within these directories,
@@ -99,13 +100,21 @@ public class ReferenceCache {
      * In addition, register the jar files in the {@link JavaClasspath}.
      */
     private void init() {
-        for (String cacheDirectory : this.cacheFileDirectories) {
+        for (int i = 0; i < this.cacheFileDirectories.size(); i++) {
+            String cacheDirectory = this.cacheFileDirectories.get(i);
             File cacheFile = new File(cacheDirectory + File.separator + CACHE_FILE_NAME);
-            if (cacheFile.exists() && cacheFile.canRead()) {
-                ReferenceCacheData loadedCacheData = load(cacheFile);
-                if (loadedCacheData != null) {
-                    cacheData.merge(loadedCacheData);
-                }
+            ReferenceCacheIndex loadedIndex = load(cacheFile);
+            if (loadedIndex == null) {
+                loadedIndex = migrate(new File(cacheDirectory + File.separator + LEGACY_CACHE_FILE_NAME),
+                        i == 0 ? cacheFile : null);
+            }
+            if (loadedIndex == null) {
+                continue;
+            }
+            if (i == 0) {
+                cacheIndex = loadedIndex;
+            } else {
+                cacheIndex.merge(loadedIndex);
             }
         }
     }
@@ -132,8 +141,7 @@ public class ReferenceCache {
      * 
      * If more than one cache file directory was created, the first entry in the list will be used.
      * 
-     * If the cache file already exists, it will not be overridden, but loaded and the new entries
-     * will be added to it.
+     * If the cache file already exists, the new entries are appended to it.
      * 
      */
     public void save() {
@@ -144,81 +152,86 @@ public class ReferenceCache {
         }
 
         File cacheFile = new File(cacheFileDirectories.get(0) + File.separator + CACHE_FILE_NAME);
-        ReferenceCacheData cacheDataExisting = load(cacheFile);
-        if (cacheDataExisting == null) {
-            cacheDataExisting = new ReferenceCacheData();
-            cacheData.merge(cacheDataExisting);
+        try {
+            cacheIndex.write(cacheFile);
+        } catch (IOException e) {
+            logger.warn("cache file could not be written: " + cacheFile, e);
         }
-
-        save(cacheFile, cacheData);
     }
 
     /**
-     * Persist the cache in the file system.
+     * Load the cache from a file.
      * 
      * @param cacheFile
-     *            The file to save to.
-     * @param cacheData
-     *            The cache data to save.
+     *            The file to load.
+     * @return The cache index loaded from this file or null if it could not be loaded.
      */
-    public synchronized void save(File cacheFile, ReferenceCacheData cacheData) {
-        ObjectOutputStream oos = null;
+    private ReferenceCacheIndex load(File cacheFile) {
+
+        if (!cacheFile.exists() || !cacheFile.canRead()) {
+            return null;
+        }
+
+        logger.debug("Load reference cache file: " + cacheFile.getAbsolutePath());
+
         try {
-            FileUtils.forceMkdir(cacheFile.getParentFile());
-            oos = new ObjectOutputStream(new FileOutputStream(cacheFile));
-            oos.writeObject(cacheData);
-        } catch (FileNotFoundException e) {
-            logger.info("cache file does not exist yet" + cacheFile);
+            return ReferenceCacheIndex.read(cacheFile);
         } catch (IOException e) {
-            logger.warn("cache file could not be accessed: " + cacheFile);
-        } finally {
-            if (oos != null) {
-                try {
-                    oos.close();
-                } catch (IOException e) {
-                    logger.warn("Failed to close cache file output stream", e);
-                }
-            }
+            logger.error("Cache file could not be accessed correctly", e);
+            return null;
         }
     }
 
     /**
-     * Load the cache from a file.
+     * Load a cache file of the former Java serialization based format.
      * 
-     * @param cacheFile
+     * @param legacyCacheFile
      *            The file to load.
-     * @return The cache map loaded from this file.
+     * @param targetFile
+     *            The file to write the migrated cache to. Might be null if the cache shall not be
+     *            written.
+     * @return The cache index with the entries loaded from the file or null if it could not be
+     *         loaded.
      */
-    private ReferenceCacheData load(File cacheFile) {
+    private ReferenceCacheIndex migrate(File legacyCacheFile, File targetFile) {
 
-        if (!cacheFile.exists() && !cacheFile.canRead()) {
+        if (!legacyCacheFile.exists() || !legacyCacheFile.canRead()) {
             return null;
         }
 
-        logger.debug("Load reference cache file: " + cacheFile.getAbsolutePath());
+        logger.info("Load legacy reference cache file: " + legacyCacheFile.getAbsolutePath());
 
         ReferenceCacheData cacheDataLoad = null;
-        ObjectInputStream oos = null;
-        try {
-            oos = new ObjectInputStream(new FileInputStream(cacheFile));
-            cacheDataLoad = (ReferenceCacheData) oos.readObject();
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(legacyCacheFile))) {
+            cacheDataLoad = (ReferenceCacheData) ois.readObject();
         } catch (FileNotFoundException e) {
             logger.error("Cache file can not be found", e);
         } catch (IOException e) {
             logger.error("Cache file could not be accessed correctly", e);
         } catch (ClassNotFoundException e) {
             logger.error("An object persisted in the cache file could not be loaded", e);
-        } finally {
-            if (oos != null) {
-                try {
-                    oos.close();
-                } catch (IOException e) {
-                    logger.warn("Failed to close cache file output stream", e);
-                }
+        }
+        if (cacheDataLoad == null) {
+            return null;
+        }
+
+        ReferenceCacheIndex index = new ReferenceCacheIndex();
+        for (Entry<String, LinkedHashMap<String, String>> resourceEntries : cacheDataLoad
+                .getResourceToTargetURIListMap().entrySet()) {
+            for (Entry<String, String> entry : resourceEntries.getValue().entrySet()) {
+                index.put(resourceEntries.getKey(), entry.getKey(), entry.getValue());
             }
         }
 
-        return cacheDataLoad;
+        if (targetFile != null) {
+            try {
+                index.write(targetFile);
+                logger.info("Migrated reference cache file to " + targetFile.getAbsolutePath());
+            } catch (IOException e) {
+                logger.warn("Migrated cache file could not be written: " + targetFile, e);
+            }
+        }
+        return index;
     }
 
     /**
@@ -245,7 +258,7 @@ public class ReferenceCache {
      * @return The counter value.
      */
     public int getNotResolvedFromCacheCounterReference() {
-        return notResolvedFromCacheCounterReference;
+        return notResolvedFromCacheCounterReference.get();
     }
 
     /**
@@ -259,12 +272,7 @@ public class ReferenceCache {
      */
     public EObject getEObject(Resource resource, String id) {
 
-        String resourceUri = resource.getURI().toString();
-        LinkedHashMap<String, String> targetUriMap = cacheData.getResourceToTargetURIListMap().get(resourceUri);
-        if (targetUriMap == null) {
-            return null;
-        }
-        String targetURI = targetUriMap.get(id);
+        String targetURI = cacheIndex.getTarget(resource.getURI().toString(), id);
         if (targetURI == null) {
             return null;
         }
@@ -280,7 +288,7 @@ public class ReferenceCache {
      * @return True/ False if it is cached or not.
      */
     public boolean isCached(Resource resource) {
-        return cacheData.getResourceToTargetURIListMap().containsKey(resource.getURI().toString());
+        return cacheIndex.contains(resource.getURI().toString());
     }
 
     /**
@@ -328,14 +336,8 @@ public class ReferenceCache {
             return;
         }
 
-        LinkedHashMap<String, String> targetURIMap = cacheData.getResourceToTargetURIListMap().get(resourceUri);
-        if (targetURIMap == null) {
-            targetURIMap = Maps.newLinkedHashMap();
-            cacheData.getResourceToTargetURIListMap().put(resourceUri, targetURIMap);
-        }
-
-        targetURIMap.put(fragmentURI, targetURI);
-        notResolvedFromCacheCounterReference++;
+        cacheIndex.put(resourceUri, fragmentURI, targetURI);
+        notResolvedFromCacheCounterReference.incrementAndGet();
     }
 
     private boolean isNotLibraryProxy(EObject resolvedElement) {
@@ -344,7 +346,8 @@ public class ReferenceCache {
 
     /**
      * Resets the cache for the given resource and saves the cache afterwards to prevent old entries
-     * from appearing after loading the resource again.
+     * from appearing after loading the resource again. The reset is appended to the cache file
+     * without rewriting it.
      * 
      * @param resource
      *            The resource for which the cache shall be reset.
@@ -353,17 +356,7 @@ public class ReferenceCache {
         if (!isCached(resource)) {
             return;
         }
-        final String uriToRemovePrefix = resource.getURI().toString() + "#";
-        cacheData.getResourceToTargetURIListMap().remove(resource.getURI().toString());
-        for (LinkedHashMap<String, String> map : cacheData.getResourceToTargetURIListMap().values()) {
-            List<String> toRemove = Lists.newArrayList();
-            for (Entry<String, String> entry : map.entrySet()) {
-                if (entry.getValue().startsWith(uriToRemovePrefix)) {
-                    toRemove.add(entry.getKey());
-                }
-            }
-            map.keySet().removeAll(toRemove);
-        }
+        cacheIndex.invalidate(resource.getURI().toString());
         save();
     }
 
@@ -18,7 +18,8 @@ import java.util.Map;
 import com.google.common.collect.Maps;
 
 /**
- * The data container of the reference cache.
+ * The data container of the former Java serialization based reference cache format. It is only
+ * used to migrate existing cache files to the format of the {@link ReferenceCacheIndex}.
  */
 public class ReferenceCacheData implements Serializable {
 
@@ -0,0 +1,581 @@
+/*******************************************************************************
+ * Copyright (c) 2014
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Martin Armbruster - initial API and implementation and/or initial documentation
+ *******************************************************************************/
+package org.splevo.jamopp.extraction.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The in-memory index of the reference cache and its compact, append-only file format.
+ *
+ * <p>
+ * All URIs and fragments are interned in a string table. The cache entries only refer to the
+ * integer ids of the strings. The file consists of a header followed by a log of records:
+ * </p>
+ * <ul>
+ * <li>a string record adds the next string to the string table,</li>
+ * <li>an entry record maps a fragment of a resource to a target URI,</li>
+ * <li>an invalidation record removes all entries of a resource and all entries targeting it,</li>
+ * <li>a removal record removes the entries of a resource only.</li>
+ * </ul>
+ *
+ * <p>
+ * Changes are collected as records and appended to the file on {@link #write(File)}. Thus, an
+ * invalidation does not require to rewrite the file. The file is only rewritten if it is not known
+ * yet or if most of its records became obsolete. Files are read through a memory mapping.
+ * </p>
+ */
+public class ReferenceCacheIndex {
+
+    private static Logger logger = Logger.getLogger(ReferenceCacheIndex.class);
+
+    /** The magic number at the beginning of a cache file. */
+    private static final int MAGIC = 0x4A524346;
+
+    /** The version of the file format. */
+    private static final int VERSION = 1;
+
+    private static final byte RECORD_STRING = 1;
+    private static final byte RECORD_ENTRY = 2;
+    private static final byte RECORD_INVALIDATION = 3;
+    private static final byte RECORD_REMOVAL = 4;
+
+    /** The minimum number of obsolete records before a file is compacted. */
+    private static final int COMPACTION_THRESHOLD = 10000;
+
+    /** The interned strings. The index of a string is its id. */
+    private final List<String> strings = new ArrayList<String>();
+
+    /** The ids of the interned strings. */
+    private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+
+    /** The cached targets per resource id, indexed by the fragment id. */
+    private final Map<Integer, Map<Integer, Integer>> entries = new LinkedHashMap<Integer, Map<Integer, Integer>>();
+
+    /**
+     * The ids of the resources with entries targeting a resource, indexed by the URI of the target
+     * resource. The referencing resources are not removed together with their entries and might not
+     * reference the target resource anymore.
+     */
+    private final Map<String, Set<Integer>> referencingResources = new HashMap<String, Set<Integer>>();
+
+    /** The records not written to the file yet. */
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pendingRecords = new DataOutputStream(pendingBytes);
+
+    /** Flag if changes are recorded. It is disabled while a file is replayed. */
+    private boolean recording = true;
+
+    /** The number of records which have been overridden or invalidated. */
+    private int obsoleteRecords = 0;
+
+    /** The file the persisted records belong to or null if nothing is persisted yet. */
+    private File persistedFile = null;
+
+    /** The length of the valid records in the persisted file. */
+    private long persistedLength = 0;
+
+    /**
+     * Read a cache file through a memory mapping. An incomplete record at the end of the file, e.g.
+     * caused by an interrupted append, is ignored and overwritten with the next append.
+     *
+     * @param file
+     *            The file to read.
+     * @return The index with the content of the file.
+     * @throws IOException
+     *             if the file cannot be read or is not a cache file.
+     */
+    public static ReferenceCacheIndex read(File file) throws IOException {
+        ReferenceCacheIndex index = new ReferenceCacheIndex();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Cache file is too large to be mapped: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+            if (size < 2 * Integer.BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a reference cache file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported reference cache file version " + version + ": " + file);
+            }
+
+            index.recording = false;
+            long validLength = buffer.position();
+            try {
+                while (buffer.hasRemaining()) {
+                    if (!index.replay(buffer)) {
+                        logger.warn("Ignoring an invalid record at position " + validLength
+                                + " and all following records of the cache file " + file);
+                        break;
+                    }
+                    validLength = buffer.position();
+                }
+            } catch (BufferUnderflowException e) {
+                logger.warn("Ignoring an incomplete record at the end of the cache file " + file);
+            } finally {
+                index.recording = true;
+            }
+
+            index.persistedFile = file;
+            index.persistedLength = validLength;
+        }
+        return index;
+    }
+
+    /**
+     * Replay the next record of a cache file. A record with a string length or string id out of
+     * bounds is not applied. Like a truncated record, it is considered as the end of the valid
+     * records.
+     *
+     * @param buffer
+     *            The buffer positioned at the record.
+     * @return True if the record was applied, false if it is invalid.
+     * @throws IOException
+     *             if the record is unknown.
+     */
+    private boolean replay(ByteBuffer buffer) throws IOException {
+        byte type = buffer.get();
+        switch (type) {
+        case RECORD_STRING:
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                return false;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            intern(new String(bytes, StandardCharsets.UTF_8));
+            return true;
+        case RECORD_ENTRY:
+            int resource = buffer.getInt();
+            int fragment = buffer.getInt();
+            int target = buffer.getInt();
+            if (!isStringId(resource) || !isStringId(fragment) || !isStringId(target)) {
+                return false;
+            }
+            put(resource, fragment, target);
+            return true;
+        case RECORD_INVALIDATION:
+            int invalidated = buffer.getInt();
+            if (!isStringId(invalidated)) {
+                return false;
+            }
+            invalidate(invalidated);
+            return true;
+        case RECORD_REMOVAL:
+            int removed = buffer.getInt();
+            if (!isStringId(removed)) {
+                return false;
+            }
+            removeEntries(removed);
+            return true;
+        default:
+            throw new IOException("Unknown record type " + type + " at position " + (buffer.position() - 1));
+        }
+    }
+
+    /**
+     * Check if an id refers to a string of the string table.
+     *
+     * @param id
+     *            The id.
+     * @return True if the string table contains the id, false if not.
+     */
+    private boolean isStringId(int id) {
+        return id >= 0 && id < strings.size();
+    }
+
+    /**
+     * Get the cached target URI of a fragment.
+     *
+     * @param resourceUri
+     *            The URI of the resource containing the reference.
+     * @param fragment
+     *            The fragment of the proxy within the resource.
+     * @return The target URI or null if it is not cached.
+     */
+    public synchronized String getTarget(String resourceUri, String fragment) {
+        Integer resource = stringIds.get(resourceUri);
+        Integer fragmentId = stringIds.get(fragment);
+        if (resource == null || fragmentId == null) {
+            return null;
+        }
+        Map<Integer, Integer> targets = entries.get(resource);
+        if (targets == null) {
+            return null;
+        }
+        Integer target = targets.get(fragmentId);
+        return target == null ? null : strings.get(target);
+    }
+
+    /**
+     * Check if there are entries for a resource.
+     *
+     * @param resourceUri
+     *            The URI of the resource.
+     * @return True if the resource is cached, false if not.
+     */
+    public synchronized boolean contains(String resourceUri) {
+        Integer resource = stringIds.get(resourceUri);
+        return resource != null && entries.containsKey(resource);
+    }
+
+    /**
+     * Cache the target URI of a fragment.
+     *
+     * @param resourceUri
+     *            The URI of the resource containing the reference.
+     * @param fragment
+     *            The fragment of the proxy within the resource.
+     * @param targetUri
+     *            The URI of the target.
+     */
+    public synchronized void put(String resourceUri, String fragment, String targetUri) {
+        put(intern(resourceUri), intern(fragment), intern(targetUri));
+    }
+
+    /**
+     * Remove all entries of a resource and all entries targeting an element of the resource.
+     *
+     * @param resourceUri
+     *            The URI of the resource.
+     */
+    public synchronized void invalidate(String resourceUri) {
+        Integer resource = stringIds.get(resourceUri);
+        if (resource != null) {
+            invalidate(resource);
+        }
+    }
+
+    /**
+     * Replace the entries of all resources contained in another index with the entries of that
+     * index.
+     *
+     * @param other
+     *            The index to merge into this one.
+     */
+    public synchronized void merge(ReferenceCacheIndex other) {
+        synchronized (other) {
+            for (Entry<Integer, Map<Integer, Integer>> resourceEntries : other.entries.entrySet()) {
+                int resource = intern(other.strings.get(resourceEntries.getKey()));
+                removeEntries(resource);
+                for (Entry<Integer, Integer> entry : resourceEntries.getValue().entrySet()) {
+                    put(resource, intern(other.strings.get(entry.getKey())),
+                            intern(other.strings.get(entry.getValue())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the index to a file. If the file is the one the index was read from or last written to,
+     * only the new records are appended. Otherwise, or if the file contains too many obsolete
+     * records, the file is rewritten.
+     *
+     * @param file
+     *            The file to write to.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public synchronized void write(File file) throws IOException {
+        boolean appendable = file.equals(persistedFile) && file.length() >= persistedLength;
+        boolean compact = obsoleteRecords > COMPACTION_THRESHOLD && obsoleteRecords > countEntries();
+        if (appendable && !compact) {
+            append(file);
+        } else {
+            rewrite(file);
+        }
+    }
+
+    /**
+     * Append the pending records to the persisted file.
+     *
+     * @param file
+     *            The file to append to.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    private void append(File file) throws IOException {
+        if (pendingBytes.size() == 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(persistedLength);
+            channel.position(persistedLength);
+            ByteBuffer records = ByteBuffer.wrap(pendingBytes.toByteArray());
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            persistedLength = channel.position();
+        }
+        pendingBytes.reset();
+    }
+
+    /**
+     * Rewrite the file with the compacted content of the index. The file is written to a temporary
+     * file first which replaces the target afterwards.
+     *
+     * @param file
+     *            The file to write.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    private void rewrite(File file) throws IOException {
+        compact();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        for (String string : strings) {
+            writeString(out, string);
+        }
+        for (Entry<Integer, Map<Integer, Integer>> resourceEntries : entries.entrySet()) {
+            for (Entry<Integer, Integer> entry : resourceEntries.getValue().entrySet()) {
+                writeEntry(out, resourceEntries.getKey(), entry.getKey(), entry.getValue());
+            }
+        }
+        out.flush();
+
+        Path target = file.toPath();
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), file.getName(), ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        pendingBytes.reset();
+        persistedFile = file;
+        persistedLength = bytes.size();
+    }
+
+    /**
+     * Rebuild the string table with the strings still in use and renumber the entries accordingly.
+     */
+    private void compact() {
+        List<String> oldStrings = new ArrayList<String>(strings);
+        Map<Integer, Map<Integer, Integer>> oldEntries = new LinkedHashMap<Integer, Map<Integer, Integer>>(entries);
+        strings.clear();
+        stringIds.clear();
+        entries.clear();
+        referencingResources.clear();
+
+        boolean wasRecording = recording;
+        recording = false;
+        for (Entry<Integer, Map<Integer, Integer>> resourceEntries : oldEntries.entrySet()) {
+            int resource = intern(oldStrings.get(resourceEntries.getKey()));
+            for (Entry<Integer, Integer> entry : resourceEntries.getValue().entrySet()) {
+                put(resource, intern(oldStrings.get(entry.getKey())), intern(oldStrings.get(entry.getValue())));
+            }
+        }
+        recording = wasRecording;
+        obsoleteRecords = 0;
+    }
+
+    /**
+     * Get the id of a string and add it to the string table if necessary.
+     *
+     * @param string
+     *            The string.
+     * @return The id of the string.
+     */
+    private int intern(String string) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            strings.add(string);
+            stringIds.put(string, id);
+            if (recording) {
+                record(() -> writeString(pendingRecords, string));
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Add an entry.
+     *
+     * @param resource
+     *            The id of the resource URI.
+     * @param fragment
+     *            The id of the fragment.
+     * @param target
+     *            The id of the target URI.
+     */
+    private void put(int resource, int fragment, int target) {
+        Integer oldTarget = entries.computeIfAbsent(resource, k -> new LinkedHashMap<Integer, Integer>())
+                .put(fragment, target);
+        if (oldTarget != null) {
+            obsoleteRecords++;
+        }
+        String targetResource = getResourceUri(strings.get(target));
+        if (targetResource != null) {
+            referencingResources.computeIfAbsent(targetResource, k -> new HashSet<Integer>()).add(resource);
+        }
+        if (recording) {
+            record(() -> writeEntry(pendingRecords, resource, fragment, target));
+        }
+    }
+
+    /**
+     * Remove all entries of a resource and all entries targeting an element of the resource.
+     *
+     * @param resource
+     *            The id of the resource URI.
+     */
+    private void invalidate(int resource) {
+        Map<Integer, Integer> removed = entries.remove(resource);
+        if (removed != null) {
+            obsoleteRecords += removed.size();
+        }
+        String resourceUri = strings.get(resource);
+        Set<Integer> referencing = referencingResources.remove(resourceUri);
+        if (referencing != null) {
+            for (Integer referencingResource : referencing) {
+                Map<Integer, Integer> targets = entries.get(referencingResource);
+                if (targets == null) {
+                    continue;
+                }
+                int sizeBefore = targets.size();
+                targets.values().removeIf(target -> resourceUri.equals(getResourceUri(strings.get(target))));
+                obsoleteRecords += sizeBefore - targets.size();
+            }
+        }
+        if (recording) {
+            record(() -> {
+                pendingRecords.writeByte(RECORD_INVALIDATION);
+                pendingRecords.writeInt(resource);
+            });
+        }
+        obsoleteRecords++;
+    }
+
+    /**
+     * Remove the entries of a resource.
+     *
+     * @param resource
+     *            The id of the resource URI.
+     */
+    private void removeEntries(int resource) {
+        Map<Integer, Integer> removed = entries.remove(resource);
+        if (removed == null) {
+            return;
+        }
+        obsoleteRecords += removed.size() + 1;
+        if (recording) {
+            record(() -> {
+                pendingRecords.writeByte(RECORD_REMOVAL);
+                pendingRecords.writeInt(resource);
+            });
+        }
+    }
+
+    /**
+     * Get the resource part of a target URI.
+     *
+     * @param targetUri
+     *            The URI of the target.
+     * @return The URI without the fragment or null if the URI has no fragment.
+     */
+    private static String getResourceUri(String targetUri) {
+        int fragmentStart = targetUri.indexOf('#');
+        return fragmentStart < 0 ? null : targetUri.substring(0, fragmentStart);
+    }
+
+    /**
+     * Count the entries of all resources.
+     *
+     * @return The number of entries.
+     */
+    private int countEntries() {
+        int count = 0;
+        for (Map<Integer, Integer> targets : entries.values()) {
+            count += targets.size();
+        }
+        return count;
+    }
+
+    /**
+     * Add a record to the pending records.
+     *
+     * @param writer
+     *            The writer of the record.
+     */
+    private void record(RecordWriter writer) {
+        try {
+            writer.write();
+        } catch (IOException e) {
+            // writing to an in-memory stream does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(RECORD_STRING);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeEntry(DataOutputStream out, int resource, int fragment, int target)
+            throws IOException {
+        out.writeByte(RECORD_ENTRY);
+        out.writeInt(resource);
+        out.writeInt(fragment);
+        out.writeInt(target);
+    }
+
+    /**
+     * Writer of a single record.
+     */
+    @FunctionalInterface
+    private interface RecordWriter {
+        /**
+         * Write the record.
+         *
+         * @throws IOException
+         *             if the record cannot be written.
+         */
+        void write() throws IOException;
+    }
+}
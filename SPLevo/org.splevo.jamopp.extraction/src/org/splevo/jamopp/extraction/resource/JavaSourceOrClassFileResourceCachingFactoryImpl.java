@@ -40,6 +40,19 @@ public class JavaSourceOrClassFileResourceCachingFactoryImpl implements Resource
         referenceCache = new ReferenceCache(cacheDirectories);
     }
 
+    /**
+     * Constructor to share the reference cache of another factory.
+     * 
+     * @param factory
+     *            The resource factory to which the requests are forwarded.
+     * @param referenceCache
+     *            The reference cache the created resources use for resolving.
+     */
+    public JavaSourceOrClassFileResourceCachingFactoryImpl(Resource.Factory factory, ReferenceCache referenceCache) {
+        this.factory = factory;
+        this.referenceCache = referenceCache;
+    }
+
     /**
      * Create a cache enabled resource for file scheme URIs.<br>
      *
@@ -0,0 +1,40 @@
+package org.example.shop;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public class Catalog {
+	private final Map<String, Product> products = new HashMap<>();
+
+	public void add(Product product) {
+		products.put(product.getId(), product);
+	}
+
+	public Optional<Product> find(String id) {
+		return Optional.ofNullable(products.get(id));
+	}
+
+	public List<Product> findByCategory(Product.Category category) {
+		return products.values().stream().filter(p -> p.getCategory() == category)
+				.collect(Collectors.toList());
+	}
+
+	public List<Product> findCheaperThan(long priceInCents) {
+		List<Product> result = new ArrayList<>();
+		for (Product product : products.values()) {
+			if (product.getPriceInCents() < priceInCents) {
+				result.add(product);
+			}
+		}
+		return result;
+	}
+
+	public Collection<Product> getProducts() {
+		return products.values();
+	}
+}
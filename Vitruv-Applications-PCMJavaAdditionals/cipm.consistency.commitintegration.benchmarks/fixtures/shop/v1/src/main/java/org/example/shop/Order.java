@@ -0,0 +1,66 @@
+package org.example.shop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Order {
+	private final String customer;
+	private final List<Item> items = new ArrayList<>();
+	private State state = State.OPEN;
+
+	public Order(String customer) {
+		this.customer = customer;
+	}
+
+	public void add(Product product, int quantity) {
+		if (state != State.OPEN) {
+			throw new IllegalStateException("The order is already " + state + ".");
+		}
+		for (Item item : items) {
+			if (item.getProduct().equals(product)) {
+				item.quantity += quantity;
+				return;
+			}
+		}
+		items.add(new Item(product, quantity));
+	}
+
+	public void close() {
+		state = State.CLOSED;
+	}
+
+	public String getCustomer() {
+		return customer;
+	}
+
+	public List<Item> getItems() {
+		return Collections.unmodifiableList(items);
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public enum State {
+		OPEN, CLOSED
+	}
+
+	public static class Item {
+		private final Product product;
+		private int quantity;
+
+		Item(Product product, int quantity) {
+			this.product = product;
+			this.quantity = quantity;
+		}
+
+		public Product getProduct() {
+			return product;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+	}
+}
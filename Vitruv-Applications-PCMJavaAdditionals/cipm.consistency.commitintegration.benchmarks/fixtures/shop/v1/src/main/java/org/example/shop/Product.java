@@ -0,0 +1,57 @@
+package org.example.shop;
+
+import java.util.Objects;
+
+public class Product {
+	private final String id;
+	private final String name;
+	private final long priceInCents;
+	private final Category category;
+
+	public Product(String id, String name, long priceInCents, Category category) {
+		this.id = Objects.requireNonNull(id);
+		this.name = name;
+		this.priceInCents = priceInCents;
+		this.category = category;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getPriceInCents() {
+		return priceInCents;
+	}
+
+	public Category getCategory() {
+		return category;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Product)) {
+			return false;
+		}
+		return id.equals(((Product) obj).id);
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+
+	public enum Category {
+		BOOK, ELECTRONICS, FOOD;
+
+		public boolean isTaxReduced() {
+			return this == BOOK || this == FOOD;
+		}
+	}
+}
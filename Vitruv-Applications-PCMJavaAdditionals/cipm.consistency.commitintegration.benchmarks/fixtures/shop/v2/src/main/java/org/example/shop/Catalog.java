@@ -0,0 +1,41 @@
+package org.example.shop;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public class Catalog {
+	private final Map<String, Product> products = new HashMap<>();
+
+	public void add(Product product) {
+		products.put(product.getId(), product);
+	}
+
+	public Optional<Product> find(String id) {
+		return Optional.ofNullable(products.get(id));
+	}
+
+	public List<Product> findByCategory(Product.Category category) {
+		return products.values().stream().filter(p -> p.getCategory() == category)
+				.collect(Collectors.toList());
+	}
+
+	public boolean remove(String id) {
+		return products.remove(id) != null;
+	}
+
+	public List<Product> sortedByPrice() {
+		List<Product> result = new ArrayList<>(products.values());
+		result.sort(Comparator.comparingLong(Product::getPriceInCents));
+		return result;
+	}
+
+	public Collection<Product> getProducts() {
+		return products.values();
+	}
+}
@@ -0,0 +1,23 @@
+package org.example.shop;
+
+public class Discount {
+	public static final Discount NONE = new Discount(0, 0);
+
+	private final int percent;
+	private final long minimumInCents;
+
+	public Discount(int percent, long minimumInCents) {
+		if (percent < 0 || percent > 100) {
+			throw new IllegalArgumentException("Invalid discount " + percent + ".");
+		}
+		this.percent = percent;
+		this.minimumInCents = minimumInCents;
+	}
+
+	public long apply(long priceInCents) {
+		if (priceInCents < minimumInCents) {
+			return priceInCents;
+		}
+		return priceInCents - priceInCents * percent / 100;
+	}
+}
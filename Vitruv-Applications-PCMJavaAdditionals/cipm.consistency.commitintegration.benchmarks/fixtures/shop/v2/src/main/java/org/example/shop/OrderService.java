@@ -0,0 +1,39 @@
+package org.example.shop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class OrderService {
+	private final Catalog catalog;
+	private final PriceCalculator calculator = new PriceCalculator();
+	private final List<Consumer<Order>> listeners = new ArrayList<>();
+
+	public OrderService(Catalog catalog) {
+		this.catalog = catalog;
+	}
+
+	public void addListener(Consumer<Order> listener) {
+		listeners.add(listener);
+	}
+
+	public Order order(String customer, List<String> productIds) {
+		Order order = new Order(customer);
+		for (String id : productIds) {
+			Product product = catalog.find(id)
+					.orElseThrow(() -> new IllegalArgumentException("Unknown product " + id));
+			order.add(product, 1);
+		}
+		return order;
+	}
+
+	public long checkout(Order order, Discount discount) {
+		if (order.getItems().isEmpty()) {
+			return 0;
+		}
+		long price = calculator.calculateGross(order.getItems(), discount);
+		order.close();
+		listeners.forEach(listener -> listener.accept(order));
+		return price;
+	}
+}
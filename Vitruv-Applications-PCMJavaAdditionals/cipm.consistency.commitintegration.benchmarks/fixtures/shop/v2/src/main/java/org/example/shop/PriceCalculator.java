@@ -0,0 +1,26 @@
+package org.example.shop;
+
+import java.util.List;
+
+public class PriceCalculator {
+	private static final int FULL_TAX_PERCENT = 19;
+	private static final int REDUCED_TAX_PERCENT = 7;
+
+	public long calculateNet(List<Order.Item> items) {
+		long sum = 0;
+		for (Order.Item item : items) {
+			sum += item.getProduct().getPriceInCents() * item.getQuantity();
+		}
+		return sum;
+	}
+
+	public long calculateGross(List<Order.Item> items, Discount discount) {
+		long sum = 0;
+		for (Order.Item item : items) {
+			long net = item.getProduct().getPriceInCents() * item.getQuantity();
+			int tax = item.getProduct().getCategory().isTaxReduced() ? REDUCED_TAX_PERCENT : FULL_TAX_PERCENT;
+			sum += net + net * tax / 100;
+		}
+		return discount.apply(sum);
+	}
+}
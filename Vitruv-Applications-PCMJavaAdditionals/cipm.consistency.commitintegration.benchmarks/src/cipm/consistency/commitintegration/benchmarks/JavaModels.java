@@ -0,0 +1,196 @@
+package cipm.consistency.commitintegration.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.emftext.language.java.classifiers.ConcreteClassifier;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.members.Member;
+import org.emftext.language.java.statements.Statement;
+
+import jamopp.options.ParserOptions;
+import jamopp.parser.jdt.singlefile.JaMoPPJDTSingleFileParser;
+
+/**
+ * Provides the Java code and models on which the benchmarks operate. The code is either taken from the
+ * checked-in fixtures or synthetically generated with a given size. Both sources exist in two versions
+ * so that the comparison of a changed version with its predecessor can be measured.
+ *
+ * @author Martin Armbruster
+ */
+public final class JavaModels {
+	/**
+	 * Name of the system property with the directory of the checked-in fixtures. By default, the directory
+	 * "fixtures" in the working directory is used.
+	 */
+	public static final String FIXTURES_PROPERTY = "cipm.benchmarks.fixtures";
+	/**
+	 * Source for the checked-in fixtures.
+	 */
+	public static final String FIXTURES = "fixtures";
+	/**
+	 * Source for the synthetically generated code.
+	 */
+	public static final String SYNTHETIC = "synthetic";
+	private static final String FIXTURE_PROJECT = "shop";
+	private static final String SYNTHETIC_PACKAGE = "synthetic";
+	private static final int CLASSES_PER_PACKAGE = 10;
+	private static final int CHANGED_METHOD_INTERVAL = 5;
+
+	private JavaModels() {
+	}
+
+	/**
+	 * Returns the directory with the Java code of a source. Synthetic code is generated into a new
+	 * temporary directory which should be removed with {@link #delete(Path)}.
+	 *
+	 * @param source  the source of the code, i.e., {@link #FIXTURES} or {@link #SYNTHETIC}.
+	 * @param classes the number of classes of the synthetic code.
+	 * @param changed true for the changed version of the code. false for the original version.
+	 * @return the directory with the Java code.
+	 * @throws IOException if the synthetic code cannot be generated.
+	 */
+	public static Path prepare(String source, int classes, boolean changed) throws IOException {
+		if (FIXTURES.equals(source)) {
+			Path fixture = Paths.get(System.getProperty(FIXTURES_PROPERTY, FIXTURES), FIXTURE_PROJECT,
+					changed ? "v2" : "v1");
+			if (!Files.isDirectory(fixture)) {
+				throw new IOException("The fixture " + fixture.toAbsolutePath() + " does not exist.");
+			}
+			return fixture;
+		} else if (SYNTHETIC.equals(source)) {
+			Path dir = Files.createTempDirectory("cipm-benchmark");
+			generate(dir, classes, changed);
+			return dir;
+		}
+		throw new IllegalArgumentException("Unknown source " + source + ".");
+	}
+
+	/**
+	 * Generates synthetic Java code. Every class references the next class and contains classes / 10,
+	 * but at least two, methods with loops, branches and calls. In the changed version, every fifth method has an
+	 * additional statement.
+	 *
+	 * @param dir     the directory into which the code is generated.
+	 * @param classes the number of classes.
+	 * @param changed true for the changed version of the code. false for the original version.
+	 * @throws IOException if a file cannot be written.
+	 */
+	public static void generate(Path dir, int classes, boolean changed) throws IOException {
+		int methods = Math.max(2, classes / CLASSES_PER_PACKAGE);
+		for (int i = 0; i < classes; i++) {
+			int next = (i + 1) % classes;
+			String packageName = SYNTHETIC_PACKAGE + ".p" + (i / CLASSES_PER_PACKAGE);
+			String nextClass = SYNTHETIC_PACKAGE + ".p" + (next / CLASSES_PER_PACKAGE) + ".C" + next;
+			StringBuilder code = new StringBuilder();
+			code.append("package ").append(packageName).append(";\n\n");
+			code.append("import java.util.ArrayList;\nimport java.util.List;\n\n");
+			code.append("public class C").append(i).append(" {\n");
+			code.append("\tprivate final List<").append(nextClass).append("> items = new ArrayList<>();\n");
+			code.append("\tprivate int counter;\n\n");
+			for (int m = 0; m < methods; m++) {
+				code.append("\tpublic int m").append(m).append("(int value) {\n");
+				code.append("\t\tint result = value;\n");
+				code.append("\t\tfor (int n = 0; n < value % 7; n++) {\n");
+				code.append("\t\t\tresult += counter * n;\n\t\t}\n");
+				code.append("\t\tif (result > ").append(m).append(") {\n");
+				code.append("\t\t\tresult = items.size() + result;\n");
+				code.append("\t\t} else if (!items.isEmpty()) {\n");
+				code.append("\t\t\tresult = items.get(0).m").append(m).append("(result - 1);\n\t\t}\n");
+				if (changed && (i + m) % CHANGED_METHOD_INTERVAL == 0) {
+					code.append("\t\tcounter++;\n");
+				}
+				code.append("\t\treturn result;\n\t}\n\n");
+			}
+			code.append("\tpublic void add(").append(nextClass).append(" item) {\n");
+			code.append("\t\titems.add(item);\n\t}\n}\n");
+			Path file = dir.resolve(Paths.get("src", "main", "java")).resolve(packageName.replace('.', '/'))
+					.resolve("C" + i + ".java");
+			Files.createDirectories(file.getParent());
+			Files.write(file, code.toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Parses all Java code in a directory in the same way as the commit integration.
+	 *
+	 * @param dir the directory.
+	 * @return the ResourceSet with the models.
+	 */
+	public static ResourceSet parse(Path dir) {
+		return createParser().parseDirectory(dir);
+	}
+
+	/**
+	 * Creates a parser with the options of the commit integration. Every parser has a new ResourceSet.
+	 *
+	 * @return the parser.
+	 */
+	public static JaMoPPJDTSingleFileParser createParser() {
+		ParserOptions.CREATE_LAYOUT_INFORMATION.setValue(Boolean.FALSE);
+		ParserOptions.REGISTER_LOCAL.setValue(Boolean.TRUE);
+		ParserOptions.RESOLVE_EVERYTHING.setValue(Boolean.TRUE);
+		ParserOptions.RESOLVE_ALL_BINDINGS.setValue(Boolean.TRUE);
+		JaMoPPJDTSingleFileParser parser = new JaMoPPJDTSingleFileParser();
+		parser.setResourceSet(new ResourceSetImpl());
+		return parser;
+	}
+
+	/**
+	 * Returns the Resources of the CompilationUnits ordered by their URI.
+	 *
+	 * @param resourceSet the ResourceSet with the models.
+	 * @return the Resources.
+	 */
+	public static List<Resource> getCompilationUnitResources(ResourceSet resourceSet) {
+		return resourceSet.getResources().stream()
+				.filter(r -> !r.getContents().isEmpty() && r.getContents().get(0) instanceof CompilationUnit)
+				.sorted(Comparator.comparing(r -> r.getURI().toString())).collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns the classifiers, members and statements of a Resource in the order of their containment.
+	 * These are the elements which are compared by the matching.
+	 *
+	 * @param resource the Resource.
+	 * @return the elements.
+	 */
+	public static List<EObject> getComparedElements(Resource resource) {
+		List<EObject> result = new ArrayList<>();
+		resource.getAllContents().forEachRemaining(obj -> {
+			if (obj instanceof ConcreteClassifier || obj instanceof Member || obj instanceof Statement) {
+				result.add(obj);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Removes a temporary directory with synthetic code. Directories of the fixtures are not removed.
+	 *
+	 * @param dir the directory.
+	 * @throws IOException if the directory cannot be removed.
+	 */
+	public static void delete(Path dir) throws IOException {
+		if (dir == null || !dir.getFileName().toString().startsWith("cipm-benchmark")) {
+			return;
+		}
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package cipm.consistency.commitintegration.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.common.util.BasicMonitor;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.compare.scope.IComparisonScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.splevo.diffing.match.HierarchicalMatchEngineFactory;
+import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
+
+import cipm.consistency.commitintegration.diff.util.HierarchicalMatchEngineFactoryGenerator;
+
+/**
+ * Measures the matching of the changed version with the original version by the HierarchicalMatchEngine
+ * as it is configured for the commit integration.
+ *
+ * @author Martin Armbruster
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MatchBenchmark {
+	@Param({ JavaModels.FIXTURES, JavaModels.SYNTHETIC })
+	private String source;
+	@Param({ "100" })
+	private int classes;
+	@Param({ "1", "4" })
+	private int parallelism;
+	private Path originalDir;
+	private Path changedDir;
+	private HierarchicalMatchEngineFactory factory;
+	private IComparisonScope scope;
+
+	@Setup
+	public void setUp() throws IOException {
+		originalDir = JavaModels.prepare(source, classes, false);
+		changedDir = JavaModels.prepare(source, classes, true);
+		scope = new DefaultComparisonScope(JavaModels.parse(changedDir), JavaModels.parse(originalDir), null);
+		// The parser resolves all proxies so that the models can be matched concurrently.
+		factory = HierarchicalMatchEngineFactoryGenerator.generateMatchEngineFactory(SimilarityChecker::new, "java",
+				parallelism);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		JavaModels.delete(originalDir);
+		JavaModels.delete(changedDir);
+	}
+
+	@Benchmark
+	public Comparison match() {
+		// The match engine clears the similarity cache before the comparison.
+		return factory.getMatchEngine().match(scope, new BasicMonitor());
+	}
+}
@@ -0,0 +1,82 @@
+package cipm.consistency.commitintegration.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.splevo.diffing.util.NormalizationUtil;
+
+/**
+ * Measures the normalization of classifier, compilation unit and package names as it is performed by the
+ * SimilarityChecker for every compared name.
+ *
+ * @author Martin Armbruster
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NormalizationBenchmark {
+	private static final int NAMES = 1_000;
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+	@Param({ "0", "4", "16" })
+	private int normalizations;
+	private LinkedHashMap<Pattern, String> classifierNormalizations;
+	private LinkedHashMap<Pattern, String> compilationUnitNormalizations;
+	private LinkedHashMap<Pattern, String> packageNormalizations;
+	private final List<String> classifierNames = new ArrayList<>();
+	private final List<String> compilationUnitNames = new ArrayList<>();
+	private final List<String> packageNames = new ArrayList<>();
+
+	@Setup
+	public void setUp() {
+		StringBuilder removeConfig = new StringBuilder();
+		StringBuilder replaceConfig = new StringBuilder();
+		for (int i = 0; i < normalizations; i++) {
+			removeConfig.append(i % 2 == 0 ? "*Suffix" + i : "Prefix" + i + "*").append(LINE_SEPARATOR);
+			replaceConfig.append("org\\.variant" + i + "\\.|org.base.").append(LINE_SEPARATOR);
+		}
+		classifierNormalizations = NormalizationUtil.loadRemoveNormalizations(removeConfig.toString(), null);
+		compilationUnitNormalizations = NormalizationUtil.loadRemoveNormalizations(removeConfig.toString(),
+				".java");
+		packageNormalizations = NormalizationUtil.loadReplaceNormalizations(replaceConfig.toString());
+		for (int i = 0; i < NAMES; i++) {
+			int variant = i % Math.max(1, normalizations);
+			String name = (i % 2 == 0 ? "Type" + i + "Suffix" + variant : "Prefix" + variant + "Type" + i);
+			classifierNames.add(name);
+			compilationUnitNames.add(name + ".java");
+			packageNames.add("org.variant" + variant + ".module" + i % 10 + ".impl");
+		}
+	}
+
+	@Benchmark
+	public void normalizeClassifiers(Blackhole blackhole) {
+		for (String name : classifierNames) {
+			blackhole.consume(NormalizationUtil.normalize(name, classifierNormalizations));
+		}
+	}
+
+	@Benchmark
+	public void normalizeCompilationUnits(Blackhole blackhole) {
+		for (String name : compilationUnitNames) {
+			blackhole.consume(NormalizationUtil.normalize(name, compilationUnitNormalizations));
+		}
+	}
+
+	@Benchmark
+	public void normalizePackages(Blackhole blackhole) {
+		for (String name : packageNames) {
+			blackhole.consume(NormalizationUtil.normalize(name, packageNormalizations));
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package cipm.consistency.commitintegration.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the parsing of a directory with the JaMoPPJDTSingleFileParser.
+ *
+ * @author Martin Armbruster
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+	@Param({ JavaModels.FIXTURES, JavaModels.SYNTHETIC })
+	private String source;
+	@Param({ "100" })
+	private int classes;
+	private Path dir;
+
+	@Setup
+	public void setUp() throws IOException {
+		dir = JavaModels.prepare(source, classes, false);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		JavaModels.delete(dir);
+	}
+
+	@Benchmark
+	public ResourceSet parseDirectory() {
+		return JavaModels.parse(dir);
+	}
+}
@@ -0,0 +1,103 @@
+package cipm.consistency.commitintegration.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.splevo.jamopp.extraction.cache.ReferenceCache;
+
+/**
+ * Measures the loading and saving of the ReferenceCache. The cache contains an entry for every reference
+ * between the parsed models.
+ *
+ * @author Martin Armbruster
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReferenceCacheBenchmark {
+	@Param({ JavaModels.FIXTURES, JavaModels.SYNTHETIC })
+	private String source;
+	@Param({ "100" })
+	private int classes;
+	private Path codeDir;
+	private Path loadDir;
+	private Path saveDir;
+	private List<String> loadDirectories;
+	private List<String> saveDirectories;
+	private ResourceSet resourceSet;
+
+	@Setup
+	public void setUp() throws IOException {
+		codeDir = JavaModels.prepare(source, classes, false);
+		loadDir = Files.createTempDirectory("cipm-benchmark");
+		saveDir = Files.createTempDirectory("cipm-benchmark");
+		loadDirectories = List.of(loadDir.toString());
+		saveDirectories = List.of(saveDir.toString());
+		resourceSet = JavaModels.parse(codeDir);
+		createCache(loadDirectories).save();
+	}
+
+	private ReferenceCache createCache(List<String> directories) {
+		ReferenceCache cache = new ReferenceCache(directories);
+		for (Resource resource : new ArrayList<>(resourceSet.getResources())) {
+			resource.getAllContents().forEachRemaining(obj -> {
+				for (EObject target : obj.eCrossReferences()) {
+					if (target.eResource() != null && target.eResource() != resource) {
+						cache.registerEObject(resource, target.eResource().getURIFragment(target), target);
+					}
+				}
+			});
+		}
+		return cache;
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		JavaModels.delete(codeDir);
+		JavaModels.delete(loadDir);
+		JavaModels.delete(saveDir);
+	}
+
+	@Benchmark
+	public ReferenceCache load() {
+		return new ReferenceCache(loadDirectories);
+	}
+
+	@Benchmark
+	public ReferenceCache save(UnsavedCache unsaved) {
+		unsaved.cache.save();
+		return unsaved.cache;
+	}
+
+	/**
+	 * A cache which has not been saved. It is created for every invocation so that the complete cache is
+	 * written.
+	 */
+	@State(Scope.Thread)
+	public static class UnsavedCache {
+		private ReferenceCache cache;
+
+		@Setup(Level.Invocation)
+		public void setUp(ReferenceCacheBenchmark benchmark) throws IOException {
+			Files.deleteIfExists(benchmark.saveDir.resolve(ReferenceCache.CACHE_FILE_NAME));
+			cache = benchmark.createCache(benchmark.saveDirectories);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package cipm.consistency.commitintegration.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
+
+/**
+ * Measures the similarity checks of the SimilaritySwitch. The classifiers, members and statements of the
+ * original and changed version are compared pairwise in the order of their containment. Since the changed
+ * version contains additional statements, the pairs consist of similar and dissimilar elements.
+ *
+ * @author Martin Armbruster
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimilarityBenchmark {
+	private static final long CACHE_SIZE = 500_000;
+	@Param({ JavaModels.FIXTURES, JavaModels.SYNTHETIC })
+	private String source;
+	@Param({ "100" })
+	private int classes;
+	@Param({ "false", "true" })
+	private boolean cached;
+	private Path originalDir;
+	private Path changedDir;
+	private final List<EObject> leftElements = new ArrayList<>();
+	private final List<EObject> rightElements = new ArrayList<>();
+	private SimilarityChecker checker;
+
+	@Setup
+	public void setUp() throws IOException {
+		originalDir = JavaModels.prepare(source, classes, false);
+		changedDir = JavaModels.prepare(source, classes, true);
+		List<Resource> left = JavaModels.getCompilationUnitResources(JavaModels.parse(changedDir));
+		List<Resource> right = JavaModels.getCompilationUnitResources(JavaModels.parse(originalDir));
+		for (int i = 0; i < Math.min(left.size(), right.size()); i++) {
+			List<EObject> leftContent = JavaModels.getComparedElements(left.get(i));
+			List<EObject> rightContent = JavaModels.getComparedElements(right.get(i));
+			for (int j = 0; j < Math.min(leftContent.size(), rightContent.size()); j++) {
+				if (leftContent.get(j).eClass() == rightContent.get(j).eClass()) {
+					leftElements.add(leftContent.get(j));
+					rightElements.add(rightContent.get(j));
+				}
+			}
+		}
+		checker = new SimilarityChecker();
+		if (cached) {
+			checker.enableCache(CACHE_SIZE);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		JavaModels.delete(originalDir);
+		JavaModels.delete(changedDir);
+	}
+
+	@Benchmark
+	public void isSimilar(Blackhole blackhole) {
+		checker.clearCache();
+		for (int i = 0; i < leftElements.size(); i++) {
+			blackhole.consume(checker.isSimilar(leftElements.get(i), rightElements.get(i)));
+		}
+	}
+}
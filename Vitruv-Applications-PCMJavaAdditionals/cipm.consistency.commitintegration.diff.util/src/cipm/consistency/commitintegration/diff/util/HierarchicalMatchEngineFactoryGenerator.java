@@ -1,6 +1,7 @@
 package cipm.consistency.commitintegration.diff.util;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.eclipse.emf.compare.match.IMatchEngine;
 import org.eclipse.emf.compare.match.eobject.EqualityHelperExtensionProvider;
@@ -12,6 +13,7 @@ import org.splevo.diffing.match.HierarchicalStrategyResourceMatcher;
 import org.splevo.jamopp.diffing.match.JaMoPPEqualityStrategy;
 import org.splevo.jamopp.diffing.match.JaMoPPIgnoreStrategy;
 import org.splevo.jamopp.diffing.scope.PackageIgnoreChecker;
+import org.splevo.jamopp.diffing.similarity.SimilarityCache;
 import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
 
 import com.google.common.cache.CacheBuilder;
@@ -22,24 +24,64 @@ import com.google.common.cache.CacheBuilder;
  * @author Martin Armbruster
  */
 public final class HierarchicalMatchEngineFactoryGenerator {
+	/**
+	 * The maximum number of similarity results which are cached during one comparison.
+	 */
+	private static final long SIMILARITY_CACHE_SIZE = 500_000;
+	
 	private HierarchicalMatchEngineFactoryGenerator() {
 	}
 	
 	/**
-	 * Generates a HierarchicalMatchEngineFactory.
+	 * Generates a HierarchicalMatchEngineFactory. The caching of the similarity results is
+	 * enabled for the given SimilarityChecker.
 	 * 
 	 * @param simChecker the SimilarityChecker which is internally used to compare model elements.
 	 * @param key a key to identify the compared models.
 	 * @return the generated factory.
 	 */
 	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(SimilarityChecker simChecker, String key) {
+		simChecker.enableCache(SIMILARITY_CACHE_SIZE);
+		return generateMatchEngineFactory(simChecker, new JaMoPPEqualityStrategy(simChecker), key);
+	}
+	
+	/**
+	 * Generates a HierarchicalMatchEngineFactory whose match engines compare the models with several threads.
+	 * Every thread uses its own SimilarityChecker. All SimilarityCheckers share one cache. As the concurrent
+	 * comparison requires that the compared models do not contain any proxies, the factory must only be used
+	 * for resolved models.
+	 * 
+	 * @param simCheckerFactory creates the SimilarityCheckers which are internally used to compare model elements.
+	 * @param key a key to identify the compared models.
+	 * @param parallelism the number of threads. For one thread, the comparison is performed sequentially.
+	 * @return the generated factory.
+	 */
+	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(
+			Supplier<SimilarityChecker> simCheckerFactory, String key, int parallelism) {
+		if (parallelism <= 1) {
+			return generateMatchEngineFactory(simCheckerFactory.get(), key);
+		}
+		SimilarityCache cache = new SimilarityCache(SIMILARITY_CACHE_SIZE);
+		Supplier<SimilarityChecker> cachedSimCheckerFactory = () -> {
+			SimilarityChecker simChecker = simCheckerFactory.get();
+			simChecker.enableCache(cache);
+			return simChecker;
+		};
+		var factory = generateMatchEngineFactory(cachedSimCheckerFactory.get(),
+				new JaMoPPEqualityStrategy(cachedSimCheckerFactory), key);
+		factory.setParallelism(parallelism);
+		return factory;
+	}
+	
+	private static HierarchicalMatchEngineFactory generateMatchEngineFactory(SimilarityChecker simChecker,
+			JaMoPPEqualityStrategy equalityStrategy, String key) {
 		EqualityHelperExtensionProvider.Descriptor.Registry descRegistryImpl =
 				EqualityHelperExtensionProviderDescriptorRegistryImpl.createStandaloneInstance();
 		descRegistryImpl.put(key, new SimilarityCheckerBasedEqualityHelperExtensionProviderDescriptor(simChecker));
 		return new HierarchicalMatchEngineFactory(
 				new EqualityHelper(EqualityHelper.createDefaultCache(
 						CacheBuilder.newBuilder()), descRegistryImpl),
-				new JaMoPPEqualityStrategy(simChecker),
+				equalityStrategy,
 				new JaMoPPIgnoreStrategy(new PackageIgnoreChecker(List.of())),
 				new HierarchicalStrategyResourceMatcher());
 	}
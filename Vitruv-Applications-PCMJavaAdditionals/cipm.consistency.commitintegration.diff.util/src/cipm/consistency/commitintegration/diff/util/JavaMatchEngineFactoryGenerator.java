@@ -20,4 +20,15 @@ public final class JavaMatchEngineFactoryGenerator {
 	public static HierarchicalMatchEngineFactory generateMatchEngineFactory() {
 		return HierarchicalMatchEngineFactoryGenerator.generateMatchEngineFactory(new SimilarityChecker(), "javaxmi");
 	}
+	
+	/**
+	 * Generates the HierarchicalMatchEngineFactory for models without proxies.
+	 * 
+	 * @param parallelism the number of threads which compare the models.
+	 * @return the generated factory.
+	 */
+	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(int parallelism) {
+		return HierarchicalMatchEngineFactoryGenerator.generateMatchEngineFactory(SimilarityChecker::new, "javaxmi",
+				parallelism);
+	}
 }
@@ -43,6 +43,27 @@ public final class JavaModelComparator {
 	public static Comparison compareJavaModels(Notifier newState, Notifier currentState,
 			List<Resource> newResources, List<Resource> currentResources,
 			IPostProcessor postProcessor) {
+		return compareJavaModels(newState, currentState, newResources, currentResources, postProcessor, 1);
+	}
+	
+	/**
+	 * Compares Java models using EMF Compare. The models are matched with several threads which requires
+	 * that the models do not contain any proxies.
+	 * 
+	 * @param newState contains the new state.
+	 * @param currentState contains the current or old state compared to the new state.
+	 * @param newResources a list of Resources which represent the new state of Java models.
+	 *                     If the newState is a ResourceSet, this list is used to filter the Resources in the newState.
+	 * @param currentResources a list of Resources which represent the current or old state of Java models.
+	 *                         If the currentState is a ResourceSet, this list is used to filter the Resources in the
+	 *                         currentState.
+	 * @param postProcessor an optional post processor for the comparison process.
+	 * @param matchParallelism the number of threads which match the models.
+	 * @return the comparison result.
+	 */
+	public static Comparison compareJavaModels(Notifier newState, Notifier currentState,
+			List<Resource> newResources, List<Resource> currentResources,
+			IPostProcessor postProcessor, int matchParallelism) {
 		
 		var scope = new ResourceListFilteringComparisonScope(newState, currentState, newResources, currentResources);
 		scope.getNsURIs().add(JavaPackage.eNS_URI);
@@ -58,7 +79,7 @@ public final class JavaModelComparator {
 		
 		var engineRegistry = HierarchicalMatchEngineFactoryGenerator
 				.generateMatchEngineRegistry(JavaMatchEngineFactoryGenerator
-						.generateMatchEngineFactory());
+						.generateMatchEngineFactory(matchParallelism));
 		
 		var builder = EMFCompare.builder()
 			.setMatchEngineFactoryRegistry(engineRegistry)
@@ -14,11 +14,48 @@ public final class SettingKeys {
 	 * A setting which controls if an adaptive or full instrumentation is performed.
 	 */
 	public static final String PERFORM_FULL_INSTRUMENTATION = KEY_BASE + "instrumentation.full";
+	/**
+	 * A setting which controls if the instrumented code is kept between the commits
+	 * so that only the changed compilation units are instrumented again.
+	 */
+	public static final String PERFORM_INCREMENTAL_INSTRUMENTATION = KEY_BASE + "instrumentation.incremental";
+	/**
+	 * A list of regular expressions for the exclusion of files during the printing
+	 * of the instrumented code. The expressions are separated by ";".
+	 */
+	public static final String INSTRUMENTATION_EXCLUSION_PATTERNS = KEY_BASE + "instrumentation.excludes";
+	/**
+	 * The maximum number of threads for printing the instrumented code. If the setting
+	 * is absent, the instrumented code is printed sequentially.
+	 */
+	public static final String INSTRUMENTATION_SAVING_THREADS = KEY_BASE + "instrumentation.save.threads";
+	/**
+	 * A setting which controls if the ring buffer monitoring runtime is added to the
+	 * instrumented code instead of the minimal monitoring environment.
+	 */
+	public static final String USE_RING_BUFFER_MONITORING_RUNTIME = KEY_BASE + "instrumentation.runtime.ringbuffer";
+	/**
+	 * The sampling rates of the services as list of entries "seff-id:rate" separated
+	 * by ";". The seff-id "*" applies to all other services. The rate is either N to
+	 * monitor one of N calls or a time in milliseconds with the suffix "ms" to
+	 * monitor at most one call per interval. The sampling requires the ring buffer
+	 * monitoring runtime.
+	 */
+	public static final String INSTRUMENTATION_SAMPLING_RATES = KEY_BASE + "instrumentation.sampling";
 	/**
 	 * A setting which controls if the incremental fine-grained SEFF reconstruction
 	 * is performed.
 	 */
 	public static final String PERFORM_FINE_GRAINED_SEFF_RECONSTRUCTION = KEY_BASE + "reconstruction.finegrained";
+	/**
+	 * The number of threads which reconstruct the SEFFs of the methods with changed
+	 * bodies concurrently. If it is not set or 1, the methods are processed one
+	 * after another. The concurrent reconstruction resolves the proxies reachable
+	 * from the changed methods beforehand, serializes the lookups in the
+	 * correspondence model, and requires that the finders of the SEFF
+	 * reconstruction do not modify the models.
+	 */
+	public static final String SEFF_RECONSTRUCTION_THREADS = KEY_BASE + "reconstruction.threads";
 	/**
 	 * A setting which controls if the CPRs between the PCM and extended IM should
 	 * be used.
@@ -29,6 +66,59 @@ public final class SettingKeys {
 	 * parsing.
 	 */
 	public static final String JAVA_PARSER_EXCLUSION_PATTERNS = KEY_BASE + "parser.excludes";
+	/**
+	 * A setting which controls if only the Java files changed by a commit are
+	 * parsed while the models of the unchanged Java files are reused.
+	 */
+	public static final String PERFORM_INCREMENTAL_PARSING = KEY_BASE + "parser.incremental";
+	/**
+	 * A setting which controls if the models of the Java files are cached by the
+	 * Git blob ids of the files so that unchanged files are not parsed again.
+	 */
+	public static final String USE_PARSE_CACHE = KEY_BASE + "parser.cache";
+	/**
+	 * The maximum size of the cache for the models of the Java files in MiB.
+	 */
+	public static final String PARSE_CACHE_SIZE = KEY_BASE + "parser.cache.size";
+	/**
+	 * A setting which controls if a range of commits is propagated at once
+	 * instead of commit by commit.
+	 */
+	public static final String COALESCE_COMMITS = KEY_BASE + "propagation.coalesce";
+	/**
+	 * The maximum number of commits which are checked out, preprocessed, and
+	 * parsed in separate working copies while a previous commit is propagated.
+	 * If the setting is absent or 0, the commits are processed one after another.
+	 */
+	public static final String PIPELINE_LOOK_AHEAD = KEY_BASE + "propagation.lookahead";
+	/**
+	 * A setting which controls if the checkout of a commit only updates the files
+	 * which changed instead of recreating the complete working tree.
+	 */
+	public static final String PERFORM_INCREMENTAL_CHECKOUT = KEY_BASE + "checkout.incremental";
+	/**
+	 * A setting which controls if untracked and ignored files (e.g., build output)
+	 * are kept between the checkouts of commits. It only applies to the
+	 * incremental checkout.
+	 */
+	public static final String KEEP_UNTRACKED_FILES = KEY_BASE + "checkout.keepuntracked";
+	/**
+	 * The maximum number of changed Java files of a commit for which renamed files
+	 * are detected. For commits with more changed files, renames are treated as a
+	 * deletion and an addition. If the setting is absent, the limit is 1000.
+	 */
+	public static final String RENAME_DETECTION_LIMIT = KEY_BASE + "diff.renames.limit";
+	/**
+	 * A setting which controls if only the changed parts of the old Java model
+	 * are copied for the state-based change resolution instead of the complete
+	 * model.
+	 */
+	public static final String USE_SCOPED_SNAPSHOT = KEY_BASE + "propagation.scopedsnapshot";
+	/**
+	 * Number of threads which match the Java models in the state-based change
+	 * resolution. If the setting is absent, the models are matched sequentially.
+	 */
+	public static final String MATCH_PARALLELISM = KEY_BASE + "propagation.match.threads";
 	/**
 	 * Path to a script for the preprocessing of a commit.
 	 */
@@ -42,6 +132,31 @@ public final class SettingKeys {
 	 * code are deployed.
 	 */
 	public static final String DEPLOYMENT_PATH = KEY_BASE + "path.deployment";
+	/**
+	 * Path to a file to which the evaluation data of every commit is appended in the JSON Lines format as soon
+	 * as it is available. In this case, the statistics of the single commits and the recorded phases are removed
+	 * from the global EvaluationDataContainer after the data of the commit has been written completely. If the
+	 * setting is absent, the data is only kept in the global EvaluationDataContainer.
+	 */
+	public static final String EVALUATION_DATA_STREAM = KEY_BASE + "path.evaluationstream";
+	/**
+	 * Interval in seconds in which the CommitIntegrationDaemon polls the remote
+	 * repository for new commits. If the setting is absent, the interval is 60
+	 * seconds.
+	 */
+	public static final String DAEMON_POLL_INTERVAL = KEY_BASE + "daemon.interval";
+	/**
+	 * A setting which controls if the CommitIntegrationDaemon compiles and
+	 * deploys the instrumented code after new commits have been integrated.
+	 */
+	public static final String DAEMON_DEPLOYMENT = KEY_BASE + "daemon.deploy";
+	/**
+	 * Number of attempts in which the CommitIntegrationDaemon tries to integrate
+	 * the commits up to a head commit. Afterwards, the commits are skipped until
+	 * new commits arrive. If the setting is absent, the commits are tried 3
+	 * times.
+	 */
+	public static final String DAEMON_MAX_ATTEMPTS = KEY_BASE + "daemon.attempts";
 	/**
 	 * A list of packages which realize a REST Client to identify REST calls.
 	 */
@@ -2,18 +2,23 @@ package cipm.consistency.commitintegration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.revwalk.RevCommit;
 
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.tools.evaluation.data.ChangeStatistic;
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import cipm.consistency.tools.evaluation.data.SpanRecorder;
 import tools.vitruv.framework.vsum.internal.InternalVirtualModel;
 
 /**
@@ -34,6 +39,9 @@ public class CommitChangePropagator {
 	private InternalVirtualModel vsum;
 	private String remoteRepository;
 	private JavaFileSystemLayout fileLayout;
+	private JavaParseCache parseCache;
+	private PipelinedCommitScheduler scheduler;
+	private Path sourceDirectory;
 
 	/**
 	 * Creates a new instance.
@@ -117,16 +125,46 @@ public class CommitChangePropagator {
 		if (commits.size() > 0) {
 			RevCommit first = commits.remove(0);
 			LOGGER.debug("Propagating " + commits.size() + " commits.");
-			for (RevCommit next : commits) {
-				boolean result = propagateChanges(first, next);
-				if (result) {
-					first = next;
+			try (var pipeline = schedule(commits)) {
+				for (RevCommit next : commits) {
+					boolean result = propagateChanges(first, next);
+					if (result) {
+						first = next;
+					}
 				}
 			}
 			LOGGER.debug("Finished propagating the commits.");
 		}
 	}
 
+	/**
+	 * Starts to prepare commits ahead of their propagation if the setting
+	 * {@link SettingKeys#PIPELINE_LOOK_AHEAD} is greater than 0. Until the returned
+	 * scheduler is closed, {@link #propagateChanges(RevCommit, RevCommit)} uses the
+	 * prepared commits. If the incremental parsing is enabled, the first commit is
+	 * parsed completely ahead, and the further commits are parsed incrementally
+	 * from the model of the commit before them.
+	 * 
+	 * @param commits the commits in the order of their propagation.
+	 * @return the scheduler which has to be closed after the propagation or null
+	 *         if the commits are not prepared ahead.
+	 */
+	public PipelinedCommitScheduler schedule(List<RevCommit> commits) {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		String lookAheadSetting = settings.getProperty(SettingKeys.PIPELINE_LOOK_AHEAD);
+		int lookAhead = lookAheadSetting != null ? Integer.parseInt(lookAheadSetting.trim()) : 0;
+		if (lookAhead < 1 || commits.isEmpty()) {
+			return null;
+		}
+		if (scheduler != null) {
+			scheduler.close();
+		}
+		LOGGER.debug("Preparing up to " + lookAhead + " commits ahead.");
+		scheduler = new PipelinedCommitScheduler(repoWrapper, fileLayout, commits, lookAhead,
+				settings.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_PARSING), getParseCache());
+		return scheduler;
+	}
+
 	/**
 	 * Propagates changes between an empty repository and a specific commit.
 	 * 
@@ -176,7 +214,10 @@ public class CommitChangePropagator {
 	public boolean propagateChanges(RevCommit start, RevCommit end) throws GitAPIException, IOException {
 		String commitId = end.getId().getName();
 		LOGGER.debug("Obtaining all differences.");
-		List<DiffEntry> diffs = repoWrapper.computeDiffsBetweenTwoCommits(start, end, true, true);
+		List<DiffEntry> diffs;
+		try (var span = SpanRecorder.start("diff")) {
+			diffs = repoWrapper.computeDiffsBetweenTwoCommits(start, end, true, true);
+		}
 		if (diffs.size() == 0) {
 			LOGGER.debug("No Java files changed for " + commitId + " so that no propagation is performed.");
 			return false;
@@ -186,28 +227,160 @@ public class CommitChangePropagator {
 		cs.setOldCommit(oldId != null ? oldId : "");
 		cs.setNewCommit(commitId);
 		cs.setNumberCommits(repoWrapper.getAllCommitsBetweenTwoCommits(oldId, commitId).size() + 1);
-		LOGGER.debug("Cleaning the repository.");
-		repoWrapper.performCompleteClean();
-		LOGGER.debug("Checkout of " + commitId);
-		repoWrapper.checkout(commitId);
-		boolean preprocessResult = preprocess();
+		if (scheduler != null && scheduler.isClosed()) {
+			scheduler = null;
+		}
+		var prepared = scheduler != null ? scheduler.take(end) : null;
+		if (prepared != null) {
+			// The commit is checked out in the working copy. The local repository
+			// keeps its files until the next checkout, but the next fetch continues
+			// after the commit.
+			repoWrapper.setLatestCommit(end);
+		} else {
+			try (var span = SpanRecorder.start("checkout")) {
+				checkout(repoWrapper, commitId);
+			}
+		}
+		Path dir = repoWrapper.getRootDirectory().toPath();
+		boolean preprocessResult;
+		if (prepared != null) {
+			LOGGER.debug("Using the preparation of " + commitId + " in " + prepared.getDirectory());
+			dir = prepared.getDirectory();
+			preprocessResult = prepared.isPreprocessed();
+		} else {
+			try (var span = SpanRecorder.start("preprocess")) {
+				preprocessResult = preprocess(repoWrapper.getRootDirectory());
+			}
+		}
 		if (!preprocessResult) {
 			LOGGER.debug("The preprocessing failed. Aborting.");
 			return false;
 		}
+		sourceDirectory = dir;
 		LOGGER.debug("Delegating the change propagation to the JavaParserAndPropagatorUtility.");
-		JavaParserAndPropagatorUtils.parseAndPropagateJavaCode(repoWrapper.getRootDirectory().toPath(),
-				fileLayout.getJavaModelFile(), vsum, fileLayout.getModuleConfiguration());
+		Resource parsed = prepared != null ? prepared.getJavaModel() : null;
+		Resource previous = start != null && CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_PARSING) ? getJavaModelResource() : null;
+		if (parsed != null) {
+			// The scheduler unloads the prepared model when the commit is released.
+			JavaParserAndPropagatorUtils.propagateJavaModel(parsed, vsum, false);
+		} else if (previous != null) {
+			JavaParserAndPropagatorUtils.parseAndPropagateChangedJavaCode(dir, previous, diffs,
+					fileLayout.getJavaModelFile(), vsum, fileLayout.getModuleConfiguration(), getParseCache());
+		} else {
+			JavaParserAndPropagatorUtils.parseAndPropagateJavaCode(dir, fileLayout.getJavaModelFile(), vsum,
+					fileLayout.getModuleConfiguration(), getParseCache());
+		}
 		LOGGER.debug("Finished the propagation of " + commitId);
 		return true;
 	}
 
-	private boolean preprocess() {
+	/**
+	 * Returns the directory with the code of the last propagated commit. It is the
+	 * local repository or, if the commit was prepared by a
+	 * {@link PipelinedCommitScheduler}, the working copy in which it was
+	 * preprocessed. In the latter case, the local repository is not checked out.
+	 * The working copy remains valid until the next commit is propagated or a new
+	 * scheduler prepares commits.
+	 * 
+	 * @return the directory.
+	 */
+	public Path getSourceDirectory() {
+		return sourceDirectory != null ? sourceDirectory : fileLayout.getLocalJavaRepo();
+	}
+
+	/**
+	 * Cleans a repository and checks a commit out.
+	 * 
+	 * @param wrapper  the repository.
+	 * @param commitId id of the commit.
+	 * @throws GitAPIException if a Git operation fails.
+	 * @throws IOException     if the repository cannot be cleaned.
+	 */
+	static void checkout(GitRepositoryWrapper wrapper, String commitId) throws GitAPIException, IOException {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		if (settings.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_CHECKOUT)) {
+			LOGGER.debug("Resetting the changed files of the repository.");
+			wrapper.performIncrementalClean(settings.getPropertyAsBoolean(SettingKeys.KEEP_UNTRACKED_FILES));
+		} else {
+			LOGGER.debug("Cleaning the repository.");
+			wrapper.performCompleteClean();
+		}
+		LOGGER.debug("Checkout of " + commitId);
+		wrapper.checkout(commitId);
+	}
+
+	/**
+	 * Computes the statistics about the changed Java files for every single commit
+	 * of a range without propagating the changes.
+	 * 
+	 * @param start   the commit before the range or null.
+	 * @param commits the commits of the range in their chronological order.
+	 * @return the statistics for every commit.
+	 * @throws IOException if the repository cannot be read.
+	 */
+	public List<ChangeStatistic> computeChangeStatistics(RevCommit start, List<RevCommit> commits)
+			throws IOException {
+		List<ChangeStatistic> result = new ArrayList<>();
+		// The diff computation records its statistics in the global container.
+		EvaluationDataContainer global = EvaluationDataContainer.getGlobalContainer();
+		try {
+			RevCommit previous = start;
+			for (RevCommit next : commits) {
+				EvaluationDataContainer commitContainer = new EvaluationDataContainer();
+				EvaluationDataContainer.setGlobalContainer(commitContainer);
+				repoWrapper.computeDiffsBetweenTwoCommits(previous, next, true, true);
+				var cs = commitContainer.getChangeStatistic();
+				cs.setOldCommit(previous != null ? previous.getId().getName() : "");
+				cs.setNewCommit(next.getId().getName());
+				cs.setNumberCommits(1);
+				result.add(cs);
+				previous = next;
+			}
+		} finally {
+			EvaluationDataContainer.setGlobalContainer(global);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the Resource with the Java models in the VSUM.
+	 * 
+	 * @return the Resource or null if the VSUM does not contain Java models yet.
+	 */
+	private Resource getJavaModelResource() {
+		var modelInstance = vsum.getModelInstance(URI.createFileURI(fileLayout.getJavaModelFile().toString()));
+		if (modelInstance == null || modelInstance.getResource().getContents().isEmpty()) {
+			return null;
+		}
+		return modelInstance.getResource();
+	}
+
+	/**
+	 * Returns the cache for the models of the Java files.
+	 * 
+	 * @return the cache or null if it is disabled.
+	 */
+	private JavaParseCache getParseCache() {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		if (!settings.getPropertyAsBoolean(SettingKeys.USE_PARSE_CACHE)) {
+			return null;
+		}
+		if (parseCache == null) {
+			String size = settings.getProperty(SettingKeys.PARSE_CACHE_SIZE);
+			long maximumSize = size != null ? Long.parseLong(size.trim()) * 1024 * 1024
+					: JavaParseCache.DEFAULT_MAXIMUM_SIZE;
+			parseCache = new JavaParseCache(fileLayout.getParseCache(), maximumSize);
+		}
+		return parseCache;
+	}
+
+	static boolean preprocess(File directory) {
 		File possibleFile = new File(CommitIntegrationSettingsContainer.getSettingsContainer()
 				.getProperty(SettingKeys.PATH_TO_PREPROCESSING_SCRIPT));
 		String absPath = possibleFile.getAbsolutePath();
 		if (possibleFile.exists()) {
-			return ExternalCommandExecutionUtils.runScript(this.repoWrapper.getRootDirectory(), absPath);
+			return ExternalCommandExecutionUtils.runScript(directory, absPath);
 		} else {
 			LOGGER.debug(absPath + " not found.");
 		}
@@ -235,6 +408,15 @@ public class CommitChangePropagator {
 			}
 			LOGGER.debug("Finished initialization.");
 		}
+		String renameLimit = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.RENAME_DETECTION_LIMIT);
+		if (renameLimit != null) {
+			int limit = Integer.parseInt(renameLimit.trim());
+			if (limit < 0) {
+				throw new IllegalArgumentException("The rename detection limit must not be negative.");
+			}
+			repoWrapper.setRenameDetectionLimit(limit);
+		}
 	}
 
 	/**
@@ -242,6 +424,9 @@ public class CommitChangePropagator {
 	 */
 	public void shutdown() {
 		LOGGER.debug("Shutting down.");
+		if (scheduler != null) {
+			scheduler.close();
+		}
 		repoWrapper.closeRepository();
 	}
 
@@ -23,7 +23,9 @@ public final class ExternalCommandExecutionUtils {
 	 * 
 	 * @param directory directory in which the script shall run.
 	 * @param command   the script to run.
-	 * @return true if the script was successfully executed. false otherwise.
+	 * @return true if the script was successfully executed. false otherwise. If the
+	 *         calling thread is interrupted, the script is terminated and false is
+	 *         returned.
 	 */
 	public static boolean runScript(File directory, String command) {
 		int result = -1;
@@ -37,10 +39,18 @@ public final class ExternalCommandExecutionUtils {
 	}
 
 	private static int internalRunScript(File directory, String... command) {
+		Process process;
+		try {
+			process = new ProcessBuilder().directory(directory).inheritIO().command(command).start();
+		} catch (IOException e) {
+			return -1;
+		}
 		try {
-			Process process = new ProcessBuilder().directory(directory).inheritIO().command(command).start();
 			return process.waitFor();
-		} catch (IOException | InterruptedException e) {
+		} catch (InterruptedException e) {
+			LOGGER.debug("Terminating " + String.join(" ", command));
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
 			return -1;
 		}
 	}
@@ -4,11 +4,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.errors.CheckoutConflictException;
@@ -21,18 +23,25 @@ import org.eclipse.jgit.api.errors.RefNotFoundException;
 import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
 import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.patch.FileHeader;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
@@ -50,10 +59,16 @@ import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
  * @author Martin Armbruster
  */
 public class GitRepositoryWrapper {
+	/**
+	 * Default maximum number of diffs for which renames are detected.
+	 */
+	public static final int DEFAULT_RENAME_DETECTION_LIMIT = 1000;
+	private static final Logger LOGGER = Logger.getLogger("cipm." + GitRepositoryWrapper.class.getSimpleName());
 	private Git git;
 	private RevCommit latestCommit;
 	private File rootDirectory;
 	private String defaultBranch;
+	private int renameDetectionLimit = DEFAULT_RENAME_DETECTION_LIMIT;
 	
 	/**
 	 * Creates a new Git repository wrapper with a local copy in <code>rootDirectory</code>.
@@ -108,6 +123,14 @@ public class GitRepositoryWrapper {
 	
 	private void readInitialState() throws IOException, NoHeadException, GitAPIException {
 		defaultBranch = git.getRepository().getBranch();
+		if (ObjectId.isId(defaultBranch)) {
+			// The HEAD is detached, e.g., because a commit was checked out before the repository was opened. In
+			// this case, the only local branch of the clone is the default branch.
+			var branches = git.branchList().call();
+			if (branches.size() == 1) {
+				defaultBranch = Repository.shortenRefName(branches.get(0).getName());
+			}
+		}
 		git.log().setMaxCount(1).call().forEach(c -> latestCommit = c);
 	}
 	
@@ -222,6 +245,34 @@ public class GitRepositoryWrapper {
 	 */
 	public List<DiffEntry> computeDiffsBetweenTwoCommits(RevCommit oldRevCommit, RevCommit newRevCommit,
 			boolean onlyChangesOnJavaFiles, boolean detectRenames) throws IncorrectObjectTypeException, IOException {
+		List<DiffEntry> diffs = computeDiffsWithoutStatistics(oldRevCommit, newRevCommit, onlyChangesOnJavaFiles,
+				detectRenames);
+		
+		long[] lines = computeLineStatistics(diffs);
+		var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
+		cs.setNumberAddedLines(cs.getNumberAddedLines() + lines[0]);
+		cs.setNumberRemovedLines(cs.getNumberRemovedLines() + lines[1]);
+		cs.setNumberChangedJavaFiles(diffs.size());
+		
+		return diffs;
+	}
+
+	/**
+	 * Computes all {@link DiffEntry} between two commits like
+	 * {@link #computeDiffsBetweenTwoCommits(RevCommit, RevCommit, boolean, boolean)}, but does not record the line
+	 * and file statistics in the global {@link EvaluationDataContainer}. Therefore, it can be used by another thread
+	 * than the one which propagates the changes.
+	 * 
+	 * @param oldRevCommit start commit (usually an older commit).
+	 * @param newRevCommit end commit (usually a newer commit).
+	 * @param onlyChangesOnJavaFiles If the flag is true, only changes on Java files will be detected.
+	 * @param detectRenames If the flag is true, renames on files will be detected.
+	 * @return computed {@link List} with {@link DiffEntry}.
+	 * @throws IOException if an IO operation fails.
+	 * @throws IncorrectObjectTypeException if one of the given commits is invalid.
+	 */
+	public List<DiffEntry> computeDiffsWithoutStatistics(RevCommit oldRevCommit, RevCommit newRevCommit,
+			boolean onlyChangesOnJavaFiles, boolean detectRenames) throws IncorrectObjectTypeException, IOException {
 
 		ObjectReader treeReader = git.getRepository().newObjectReader();
 		
@@ -240,19 +291,7 @@ public class GitRepositoryWrapper {
 		newTreeParser.reset(treeReader, newTreeId);
 
 		OutputStream outputStream = NullOutputStream.INSTANCE;
-		DiffFormatter df = new DiffFormatter(outputStream) {
-			@Override
-			protected void writeAddedLine(RawText text, int line) {
-				var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
-				cs.setNumberAddedLines(cs.getNumberAddedLines() + 1);
-			}
-			
-			@Override
-			protected void writeRemovedLine(RawText text, int line) {
-				var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
-				cs.setNumberRemovedLines(cs.getNumberRemovedLines() + 1);
-			}
-		};
+		DiffFormatter df = new DiffFormatter(outputStream);
 		df.setRepository(git.getRepository());
 		
 		// Set filter to detect only changes on Java files if necessary. 
@@ -262,24 +301,95 @@ public class GitRepositoryWrapper {
 		}
 		// Compute diffs between the commits.
 		List<DiffEntry> diffs = df.scan(oldParser, newTreeParser);
+		df.close();
+		treeReader.close();
 		
 		// Detect renames on changed files if necessary.
-		if (detectRenames) {
+		if (detectRenames && diffs.size() <= renameDetectionLimit) {
 			 RenameDetector rd = new RenameDetector(git.getRepository());
 			 rd.addAll(diffs);
 			 diffs = rd.compute();
+		} else if (detectRenames) {
+			LOGGER.debug("Skipping the rename detection for " + diffs.size() + " changed files because they exceed "
+					+ "the limit of " + renameDetectionLimit + ".");
 		}
 		
-		for (DiffEntry diff : diffs) {
-			df.format(diff);
-		}
-		df.close();
-		
-		EvaluationDataContainer.getGlobalContainer().getChangeStatistic().setNumberChangedJavaFiles(diffs.size());
-		
 		return diffs;
 	}
 
+	/**
+	 * Counts the added and removed lines of all diffs. The diffs are processed in parallel, and their lines are
+	 * compared with the histogram diff algorithm. Binary files are not counted.
+	 * 
+	 * @param diffs the diffs.
+	 * @return an array with the number of added lines at the first index and the number of removed lines at the
+	 *         second index.
+	 * @throws IOException if the content of a file cannot be read.
+	 */
+	private long[] computeLineStatistics(List<DiffEntry> diffs) throws IOException {
+		try {
+			return diffs.parallelStream().map(diff -> {
+				// Object readers are not thread-safe. Therefore, every diff gets its own reader.
+				try (ObjectReader reader = git.getRepository().newObjectReader()) {
+					RawText oldText = readRawText(reader, diff.getOldId().toObjectId(), diff.getOldMode());
+					RawText newText = readRawText(reader, diff.getNewId().toObjectId(), diff.getNewMode());
+					if (oldText == null || newText == null) {
+						return new long[2];
+					}
+					long added = 0;
+					long removed = 0;
+					for (Edit edit : new HistogramDiff().diff(RawTextComparator.DEFAULT, oldText, newText)) {
+						added += edit.getLengthB();
+						removed += edit.getLengthA();
+					}
+					return new long[] {added, removed};
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}).reduce(new long[2], (first, second) -> new long[] {first[0] + second[0], first[1] + second[1]});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * Reads the content of a file version as text.
+	 * 
+	 * @param reader the reader for the objects.
+	 * @param id the id of the file version.
+	 * @param mode the mode of the file version.
+	 * @return the text, an empty text if the file version does not exist, or null if the file version is binary.
+	 * @throws IOException if the file version cannot be read.
+	 */
+	private RawText readRawText(ObjectReader reader, ObjectId id, FileMode mode) throws IOException {
+		if (mode == FileMode.MISSING || ObjectId.zeroId().equals(id)) {
+			return new RawText(new byte[0]);
+		}
+		if (mode == FileMode.GITLINK) {
+			return new RawText(Constants.encode("Subproject commit " + id.getName() + "\n"));
+		}
+		ObjectLoader loader = reader.open(id, Constants.OBJ_BLOB);
+		if (loader.isLarge()) {
+			return null;
+		}
+		byte[] content = loader.getCachedBytes();
+		return RawText.isBinary(content) ? null : new RawText(content);
+	}
+	
+	/**
+	 * Sets the maximum number of diffs for which renames are detected. For commits with more changed files, the
+	 * rename detection is skipped.
+	 * 
+	 * @param renameDetectionLimit the maximum number of diffs.
+	 */
+	public void setRenameDetectionLimit(int renameDetectionLimit) {
+		this.renameDetectionLimit = renameDetectionLimit;
+	}
+	
+	public int getRenameDetectionLimit() {
+		return renameDetectionLimit;
+	}
+	
 	/**
 	 * Computes changes from the given {@link DiffEntry}.
 	 * An {@link EditList} contain numbers of lines which have to be added, removed, or replaced 
@@ -392,6 +502,17 @@ public class GitRepositoryWrapper {
 		return latestCommit;
 	}
 	
+	/**
+	 * Sets the latest commit without checking it out. It is used if the commit was checked out in another working
+	 * copy so that {@link #fetchAndGetNewCommits()} continues after it. The files of this repository are not changed
+	 * until the next checkout.
+	 * 
+	 * @param commit the commit.
+	 */
+	public void setLatestCommit(RevCommit commit) {
+		latestCommit = commit;
+	}
+	
 	public File getRootDirectory() {
 		return rootDirectory;
 	}
@@ -408,6 +529,9 @@ public class GitRepositoryWrapper {
 			git.fetch().call();
 			ObjectId curCommit = latestCommit.getId();
 			ObjectId lastCommit = git.getRepository().resolve("origin/" + defaultBranch);
+			if (lastCommit == null) {
+				return result;
+			}
 			git.log().addRange(curCommit, lastCommit).call().forEach(result::add);
 		} catch (GitAPIException | IOException e) {
 		}
@@ -415,6 +539,20 @@ public class GitRepositoryWrapper {
 		return result;
 	}
 	
+	/**
+	 * Performs a <code>git fetch</code> which receives the branches, remote-tracking branches and tags of the
+	 * remote repository. In contrast to {@link #fetchAndGetNewCommits()}, the remote-tracking branches are
+	 * included so that a copy created with {@link #initFromLocalRepository(File)} contains all commits which
+	 * the local repository fetched.
+	 * 
+	 * @throws GitAPIException if the fetch fails.
+	 */
+	public void fetchAllReferences() throws GitAPIException {
+		git.fetch().setRefSpecs(new RefSpec("+refs/heads/*:refs/remotes/origin/*"),
+				new RefSpec("+refs/remotes/*:refs/remotes/mirrored/*"), new RefSpec("+refs/tags/*:refs/tags/*"))
+				.call();
+	}
+	
 	/**
 	 * Performs a complete cleaning of the git repository, i. e., all untracked and ignored files are removed,
 	 * and all changes are reset to the last commit.
@@ -438,4 +576,20 @@ public class GitRepositoryWrapper {
 		}
 		git.reset().setMode(ResetType.HARD).call();
 	}
+	
+	/**
+	 * Performs an incremental cleaning of the git repository, i. e., only the tracked files with changes are reset
+	 * to the last commit, and untracked files are removed if requested. In contrast to
+	 * {@link #performCompleteClean()}, unchanged files are not touched so that a subsequent checkout only updates the
+	 * files which differ between the commits.
+	 * 
+	 * @param keepUntrackedFiles true if untracked and ignored files (e. g., build output) are kept.
+	 * @throws GitAPIException if a Git operation cannot be performed.
+	 */
+	public void performIncrementalClean(boolean keepUntrackedFiles) throws GitAPIException {
+		git.reset().setMode(ResetType.HARD).call();
+		if (!keepUntrackedFiles) {
+			git.clean().setCleanDirectories(true).setIgnore(false).call();
+		}
+	}
 }
@@ -0,0 +1,414 @@
+package cipm.consistency.commitintegration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.emftext.language.java.JavaClasspath;
+import org.emftext.language.java.LogicalJavaURIGenerator;
+import org.emftext.language.java.commons.NamedElement;
+import org.emftext.language.java.commons.NamespaceAwareElement;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.JavaRoot;
+import org.emftext.language.java.containers.Origin;
+import org.emftext.language.java.parameters.Parametrizable;
+
+import jamopp.parser.jdt.singlefile.JaMoPPJDTSingleFileParser;
+
+/**
+ * Parses only the Java files which changed between two commits. The models of
+ * the unchanged Java files are copied from the Java model of the previous
+ * commit so that the parsing effort depends on the size of the changes instead
+ * of the size of the repository.
+ *
+ * References from a reused model into a re-parsed model are redirected to the
+ * newly parsed element with the same name. If a reference cannot be redirected
+ * unambiguously, the Java file of the reused model is re-parsed, too.
+ *
+ * @author Martin Armbruster
+ */
+public final class IncrementalJavaParser {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + IncrementalJavaParser.class.getSimpleName());
+	/**
+	 * Maximum share of all Java files which is re-parsed. If more files need to be
+	 * parsed, parsing the complete directory is cheaper.
+	 */
+	private static final double MAX_REPARSED_SHARE = 0.5;
+	private static final char PATH_SEPARATOR = '/';
+
+	private IncrementalJavaParser() {
+	}
+
+	/**
+	 * Parses the changed Java files and reuses the models of the unchanged Java
+	 * files.
+	 *
+	 * @param parser            the parser for the changed Java files.
+	 * @param dir               the directory with the Java code of the new commit.
+	 * @param previous          the Resource with the Java models of the previous
+	 *                          commit.
+	 * @param diffs             the differences of the Java files between the
+	 *                          previous and new commit.
+	 * @param exclusionPatterns regular expressions for Java files which are not
+	 *                          parsed.
+	 * @param resolveAll        true if all references of the newly parsed models
+	 *                          shall be resolved.
+	 * @return a ResourceSet with one Resource for every Java model or null if the
+	 *         incremental parsing is not applicable and the complete directory
+	 *         needs to be parsed.
+	 */
+	public static ResourceSet parseChangedFiles(JaMoPPJDTSingleFileParser parser, Path dir, Resource previous,
+			List<DiffEntry> diffs, String[] exclusionPatterns, boolean resolveAll) {
+		Path root = dir.toAbsolutePath();
+		Set<String> changedFiles = new LinkedHashSet<>();
+		Set<String> obsoleteFiles = new HashSet<>();
+		for (DiffEntry diff : diffs) {
+			switch (diff.getChangeType()) {
+			case ADD:
+			case COPY:
+				changedFiles.add(diff.getNewPath());
+				break;
+			case MODIFY:
+			case RENAME:
+				changedFiles.add(diff.getNewPath());
+				obsoleteFiles.add(diff.getOldPath());
+				break;
+			case DELETE:
+				obsoleteFiles.add(diff.getOldPath());
+				break;
+			default:
+				break;
+			}
+		}
+
+		// 1. Find all Java files in the new commit.
+		Map<String, List<String>> filesByName = new HashMap<>();
+		int numberOfFiles;
+		try {
+			List<Path> javaFiles = findJavaFiles(root, exclusionPatterns);
+			numberOfFiles = javaFiles.size();
+			javaFiles.forEach(p -> filesByName.computeIfAbsent(p.getFileName().toString(), k -> new ArrayList<>())
+					.add(toRelativePath(root, p)));
+		} catch (IOException e) {
+			LOGGER.debug("Could not list the Java files in " + root + ": " + e.getMessage());
+			return null;
+		}
+		Set<String> existingFiles = filesByName.values().stream().flatMap(List::stream).collect(Collectors.toSet());
+		changedFiles.retainAll(existingFiles);
+		if (changedFiles.size() > numberOfFiles * MAX_REPARSED_SHARE) {
+			LOGGER.debug(changedFiles.size() + " of " + numberOfFiles + " Java files changed.");
+			return null;
+		}
+
+		// 2. Relate the models of the previous commit to the Java files of the new
+		// commit.
+		Map<JavaRoot, String> reusableRoots = new LinkedHashMap<>();
+		List<JavaRoot> libraryRoots = new ArrayList<>();
+		Map<EObject, String> replacedRoots = new HashMap<>();
+		Set<String> relatedFiles = new HashSet<>();
+		for (EObject obj : previous.getContents()) {
+			if (obj instanceof org.emftext.language.java.containers.Module) {
+				// Modules are recreated by the component detection. Therefore, references to
+				// them are removed (indicated by an empty logical path).
+				replacedRoots.put(obj, "");
+				continue;
+			}
+			if (!(obj instanceof JavaRoot)) {
+				continue;
+			}
+			JavaRoot javaRoot = (JavaRoot) obj;
+			if (javaRoot.getOrigin() != Origin.FILE) {
+				libraryRoots.add(javaRoot);
+				continue;
+			}
+			String logicalPath = createLogicalPath(javaRoot);
+			List<String> candidates = filesByName.getOrDefault(getFileName(logicalPath), List.of()).stream()
+					.filter(f -> f.equals(logicalPath) || f.endsWith(PATH_SEPARATOR + logicalPath))
+					.collect(Collectors.toList());
+			if (candidates.size() > 1 || candidates.size() == 1 && !relatedFiles.add(candidates.get(0))) {
+				LOGGER.debug("The Java file for " + logicalPath + " is ambiguous.");
+				return null;
+			}
+			if (candidates.isEmpty() || changedFiles.contains(candidates.get(0))
+					|| obsoleteFiles.contains(candidates.get(0))) {
+				replacedRoots.put(javaRoot, logicalPath);
+			} else {
+				reusableRoots.put(javaRoot, candidates.get(0));
+			}
+		}
+
+		// 3. Copy the reusable models.
+		LOGGER.debug("Reusing " + reusableRoots.size() + " Java models.");
+		ResourceSet resourceSet = JavaParserAndPropagatorUtils.createResourceSet();
+		parser.setResourceSet(resourceSet);
+		EcoreUtil.Copier copier = new EcoreUtil.Copier();
+		copier.copyAll(reusableRoots.keySet());
+		copier.copyAll(libraryRoots);
+		copier.copyReferences();
+		Map<JavaRoot, String> reusedCopies = new LinkedHashMap<>();
+		reusableRoots.forEach((orig, file) -> {
+			JavaRoot copy = (JavaRoot) copier.get(orig);
+			Resource resource = resourceSet.createResource(URI.createFileURI(root.resolve(file).toString()));
+			resource.getContents().add(copy);
+			JavaClasspath.get(resourceSet).registerJavaRoot(copy, resource.getURI());
+			reusedCopies.put(copy, file);
+		});
+		for (JavaRoot orig : libraryRoots) {
+			JavaRoot copy = (JavaRoot) copier.get(orig);
+			Resource resource = resourceSet.createResource(createLogicalURI(copy));
+			resource.getContents().add(copy);
+		}
+
+		// 4. Parse the changed Java files and redirect the references of the reused
+		// models.
+		Map<String, JavaRoot> parsedRoots = new HashMap<>();
+		Set<String> filesToParse = changedFiles;
+		int numberOfParsedFiles = 0;
+		while (!filesToParse.isEmpty()) {
+			numberOfParsedFiles += filesToParse.size();
+			if (numberOfParsedFiles > numberOfFiles * MAX_REPARSED_SHARE) {
+				LOGGER.debug("Too many Java files depend on the changed Java files.");
+				return null;
+			}
+			for (String file : filesToParse) {
+				JavaRoot parsed = parseFile(parser, resourceSet, root.resolve(file), resolveAll);
+				if (parsed == null) {
+					return null;
+				}
+				parsedRoots.put(createLogicalPath(parsed), parsed);
+			}
+			filesToParse = new LinkedHashSet<>();
+			for (JavaRoot copy : new ArrayList<>(reusedCopies.keySet())) {
+				if (!redirectReferences(copy, replacedRoots, parsedRoots)) {
+					String file = reusedCopies.remove(copy);
+					Resource resource = copy.eResource();
+					resource.getContents().clear();
+					resourceSet.getResources().remove(resource);
+					replacedRoots.put(copy, createLogicalPath(copy));
+					filesToParse.add(file);
+				}
+			}
+		}
+		LOGGER.debug("Parsed " + numberOfParsedFiles + " changed or dependent Java files.");
+		return resourceSet;
+	}
+
+	/**
+	 * Finds all Java files in a directory which are not excluded from the parsing.
+	 *
+	 * @param root              the directory.
+	 * @param exclusionPatterns regular expressions for Java files which are not
+	 *                          parsed.
+	 * @return the found Java files.
+	 * @throws IOException if the directory cannot be read.
+	 */
+	static List<Path> findJavaFiles(Path root, String[] exclusionPatterns) throws IOException {
+		try (Stream<Path> files = Files.walk(root)) {
+			return files.filter(Files::isRegularFile)
+					.filter(p -> p.toString().endsWith(LogicalJavaURIGenerator.JAVA_FILE_EXTENSION))
+					.filter(p -> !isExcluded(p, exclusionPatterns)).collect(Collectors.toList());
+		}
+	}
+
+	static JavaRoot parseFile(JaMoPPJDTSingleFileParser parser, ResourceSet resourceSet, Path file,
+			boolean resolveAll) {
+		LOGGER.debug("Parsing " + file);
+		JavaRoot parsed;
+		try {
+			parsed = parser.parseFile(file);
+		} catch (RuntimeException e) {
+			LOGGER.debug("Could not parse " + file + ": " + e.getMessage());
+			return null;
+		}
+		if (parsed == null) {
+			return null;
+		}
+		Resource resource = parsed.eResource();
+		if (resource == null) {
+			resource = resourceSet.createResource(URI.createFileURI(file.toString()));
+			resource.getContents().add(parsed);
+		}
+		if (resolveAll) {
+			EcoreUtil.resolveAll(resource);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Redirects all references of a reused model which point to replaced models.
+	 *
+	 * @param copy          the reused model.
+	 * @param replacedRoots all models which are replaced, mapped to their logical
+	 *                      path.
+	 * @param parsedRoots   the newly parsed models for a logical path.
+	 * @return true if all references could be redirected. false otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean redirectReferences(JavaRoot copy, Map<EObject, String> replacedRoots,
+			Map<String, JavaRoot> parsedRoots) {
+		TreeIterator<EObject> iterator = copy.eAllContents();
+		EObject current = copy;
+		while (current != null) {
+			for (EReference ref : current.eClass().getEAllReferences()) {
+				if (ref.isContainment() || ref.isContainer() || ref.isDerived() || !ref.isChangeable()
+						|| !current.eIsSet(ref)) {
+					continue;
+				}
+				if (ref.isMany()) {
+					InternalEList<EObject> targets = (InternalEList<EObject>) current.eGet(ref);
+					for (int idx = 0; idx < targets.size(); idx++) {
+						EObject target = targets.basicGet(idx);
+						String logicalPath = replacedRoots.get(EcoreUtil.getRootContainer(target));
+						if (logicalPath == null) {
+							continue;
+						} else if (logicalPath.isEmpty()) {
+							targets.remove(idx);
+							idx--;
+							continue;
+						}
+						EObject replacement = findCounterpart(target, parsedRoots.get(logicalPath));
+						if (replacement == null) {
+							return false;
+						}
+						targets.setUnique(idx, replacement);
+					}
+				} else {
+					EObject target = (EObject) current.eGet(ref, false);
+					String logicalPath = replacedRoots.get(EcoreUtil.getRootContainer(target));
+					if (logicalPath == null) {
+						continue;
+					} else if (logicalPath.isEmpty()) {
+						current.eUnset(ref);
+						continue;
+					}
+					EObject replacement = findCounterpart(target, parsedRoots.get(logicalPath));
+					if (replacement == null) {
+						return false;
+					}
+					current.eSet(ref, replacement);
+				}
+			}
+			current = iterator.hasNext() ? iterator.next() : null;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the element in a newly parsed model which corresponds to an element of
+	 * a replaced model. Elements are related by their names. Parametrizable
+	 * elements are additionally related by their number of parameters.
+	 *
+	 * @param oldElement the element of the replaced model.
+	 * @param newRoot    the newly parsed model.
+	 * @return the corresponding element or null if there is no unambiguous
+	 *         corresponding element.
+	 */
+	private static EObject findCounterpart(EObject oldElement, JavaRoot newRoot) {
+		if (newRoot == null) {
+			return null;
+		}
+		EObject oldContainer = oldElement.eContainer();
+		if (oldContainer == null) {
+			return newRoot;
+		}
+		if (!(oldElement instanceof NamedElement)) {
+			return null;
+		}
+		EObject newContainer = findCounterpart(oldContainer, newRoot);
+		EStructuralFeature feature = oldElement.eContainingFeature();
+		if (newContainer == null || !newContainer.eClass().getEAllStructuralFeatures().contains(feature)
+				|| findSimilarElements(oldContainer, feature, oldElement).size() != 1) {
+			return null;
+		}
+		List<EObject> candidates = findSimilarElements(newContainer, feature, oldElement);
+		return candidates.size() == 1 ? candidates.get(0) : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<EObject> findSimilarElements(EObject container, EStructuralFeature feature,
+			EObject element) {
+		List<EObject> contents;
+		if (feature.isMany()) {
+			contents = (List<EObject>) container.eGet(feature);
+		} else {
+			EObject value = (EObject) container.eGet(feature);
+			contents = value == null ? List.of() : List.of(value);
+		}
+		String name = ((NamedElement) element).getName();
+		return contents.stream().filter(c -> c.eClass() == element.eClass())
+				.filter(c -> name != null && name.equals(((NamedElement) c).getName()))
+				.filter(c -> !(element instanceof Parametrizable) || ((Parametrizable) element).getParameters()
+						.size() == ((Parametrizable) c).getParameters().size())
+				.collect(Collectors.toList());
+	}
+
+	private static boolean isExcluded(Path file, String[] exclusionPatterns) {
+		String abs = file.toAbsolutePath().toString();
+		for (String pattern : exclusionPatterns) {
+			if (!pattern.isEmpty() && abs.matches(pattern)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static String toRelativePath(Path root, Path file) {
+		return root.relativize(file.toAbsolutePath()).toString().replace(File.separatorChar, PATH_SEPARATOR);
+	}
+
+	// Converts a Java model to the path of its Java file relative to its source
+	// folder.
+	private static String createLogicalPath(JavaRoot javaRoot) {
+		StringBuilder builder = new StringBuilder();
+		if (javaRoot instanceof NamespaceAwareElement) {
+			for (String ns : ((NamespaceAwareElement) javaRoot).getNamespaces()) {
+				builder.append(ns);
+				builder.append(PATH_SEPARATOR);
+			}
+		}
+		if (javaRoot instanceof CompilationUnit) {
+			builder.append(javaRoot.getName());
+			builder.append(LogicalJavaURIGenerator.JAVA_FILE_EXTENSION);
+		} else if (javaRoot instanceof org.emftext.language.java.containers.Package) {
+			builder.append(LogicalJavaURIGenerator.JAVA_PACKAGE_FILE_NAME);
+		} else if (javaRoot instanceof org.emftext.language.java.containers.Module) {
+			builder.append(LogicalJavaURIGenerator.JAVA_MODULE_FILE_NAME);
+		}
+		return builder.toString();
+	}
+
+	private static URI createLogicalURI(JavaRoot javaRoot) {
+		String fullName = String.join(".", javaRoot.getNamespaces());
+		if (javaRoot instanceof CompilationUnit) {
+			fullName = fullName.isEmpty() ? javaRoot.getName() : fullName + "." + javaRoot.getName();
+			return LogicalJavaURIGenerator.getJavaFileResourceURI(fullName);
+		}
+		return LogicalJavaURIGenerator.getPackageURI(fullName);
+	}
+
+	private static String getFileName(String logicalPath) {
+		return logicalPath.substring(logicalPath.lastIndexOf(PATH_SEPARATOR) + 1);
+	}
+}
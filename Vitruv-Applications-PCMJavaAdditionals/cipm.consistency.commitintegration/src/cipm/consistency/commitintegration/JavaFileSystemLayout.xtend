@@ -16,12 +16,16 @@ class JavaFileSystemLayout {
 	static final String instrumentationDirName = "instrumented";
 	static final String moduleConfigurationFileName = "module-configuration.properties";
 	static final String externalCallTargetPairsFileName = "external-call-target-pairs.json";
+	static final String parseCacheDirName = "parse-cache";
+	static final String preparedCommitsDirName = "prepared-commits";
 	Path localJavaRepo;
 	Path javaModelFileContainer;
 	Path javaModelFile;
 	Path instrumentationCopy;
 	Path moduleConfiguration;
 	Path externalCallTargetPairsFile;
+	Path parseCache;
+	Path preparedCommits;
 	
 	new(Path parent) {
 		localJavaRepo = parent.resolve(localJavaRepoDirName)
@@ -30,5 +34,7 @@ class JavaFileSystemLayout {
 		instrumentationCopy = parent.resolve(instrumentationDirName)
 		moduleConfiguration = parent.resolve(moduleConfigurationFileName);
 		externalCallTargetPairsFile = parent.resolve(externalCallTargetPairsFileName);
+		parseCache = parent.resolve(parseCacheDirName);
+		preparedCommits = parent.resolve(preparedCommitsDirName);
 	}
 }
@@ -0,0 +1,491 @@
+package cipm.consistency.commitintegration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.emftext.language.java.JavaClasspath;
+import org.emftext.language.java.containers.JavaRoot;
+import org.emftext.language.java.containers.Origin;
+
+import jamopp.parser.jdt.singlefile.JaMoPPJDTSingleFileParser;
+
+/**
+ * A persistent cache for the models of Java files. The models are stored in the
+ * binary EMF format and are addressed by the Git blob id of the content of
+ * their Java file together with the path of the file. Thus, the models of unchanged Java files can be loaded
+ * instead of parsing them again.
+ *
+ * A cached model is only reused if the Java files it references are unchanged,
+ * too, because references between models are stored as URIs with
+ * position-based fragments. Cached models are evicted in the order of their
+ * last usage if the cache exceeds its maximum size. The complete cache is
+ * invalidated if the options for the parsing change.
+ *
+ * @author Martin Armbruster
+ */
+public class JavaParseCache {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + JavaParseCache.class.getSimpleName());
+	/**
+	 * Default maximum size of the cache in bytes.
+	 */
+	public static final long DEFAULT_MAXIMUM_SIZE = 512L * 1024 * 1024;
+	/**
+	 * Minimum share of all Java files which needs to be loaded from the cache.
+	 * Otherwise, parsing the complete directory is cheaper.
+	 */
+	private static final double MIN_HIT_SHARE = 0.5;
+	private static final int MAGIC = 0x4A504331;
+	private static final int FORMAT_VERSION = 2;
+	private static final String ENTRY_FILE_EXTENSION = ".bin";
+	private static final String OPTIONS_FILE_NAME = "options";
+	private final Path directory;
+	private final long maximumSize;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param directory   the directory in which the models are stored.
+	 * @param maximumSize the maximum size of all stored models in bytes.
+	 */
+	public JavaParseCache(Path directory, long maximumSize) {
+		this.directory = directory.toAbsolutePath();
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Removes all cached models.
+	 *
+	 * @throws IOException if the cache cannot be cleared.
+	 */
+	public synchronized void clear() throws IOException {
+		if (Files.exists(directory)) {
+			FileUtils.cleanDirectory(directory.toFile());
+		}
+	}
+
+	/**
+	 * Parses all Java files in a directory. The models of Java files whose content
+	 * is cached are loaded from the cache. The models of the remaining Java files
+	 * are parsed and added to the cache. As the cache can be used by the thread
+	 * which propagates the changes and a thread which parses commits ahead, the
+	 * directories are parsed one after another.
+	 *
+	 * @param parser            the parser for the Java files.
+	 * @param dir               the directory with the Java files.
+	 * @param exclusionPatterns regular expressions for Java files which are not
+	 *                          parsed.
+	 * @param resolveAll        true if all references of the models shall be
+	 *                          resolved.
+	 * @return a ResourceSet with one Resource for every Java model or null if the
+	 *         cache cannot be used.
+	 */
+	public synchronized ResourceSet parseDirectory(JaMoPPJDTSingleFileParser parser, Path dir,
+			String[] exclusionPatterns, boolean resolveAll) {
+		Path root = dir.toAbsolutePath();
+		Map<String, String> blobIds = new TreeMap<>();
+		try {
+			validateOptions(createOptionsFingerprint(exclusionPatterns, resolveAll));
+			for (Path file : IncrementalJavaParser.findJavaFiles(root, exclusionPatterns)) {
+				blobIds.put(IncrementalJavaParser.toRelativePath(root, file), computeBlobId(file));
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not prepare the parse cache: " + e.getMessage());
+			return null;
+		}
+
+		// 1. Determine the cached models which can be reused.
+		Map<String, CacheEntry> hits = findReusableEntries(blobIds);
+		LOGGER.debug(hits.size() + " of " + blobIds.size() + " Java models are cached.");
+		ResourceSet resourceSet = JavaParserAndPropagatorUtils.createResourceSet();
+		parser.setResourceSet(resourceSet);
+		Map<Resource, String> fileResources = new HashMap<>();
+		if (hits.size() < blobIds.size() * MIN_HIT_SHARE
+				|| !loadAndParse(parser, resourceSet, root, blobIds, hits, fileResources, resolveAll)) {
+			// 2a. Parse the complete directory if too few models are cached.
+			resourceSet = JavaParserAndPropagatorUtils.createResourceSet();
+			parser.setResourceSet(resourceSet);
+			LOGGER.debug("Parsing " + root.toString());
+			resourceSet = parser.parseDirectory(root);
+			fileResources.clear();
+			collectFileResources(resourceSet, root, blobIds, fileResources);
+		}
+
+		// 3. Store the newly parsed models.
+		store(fileResources, root, blobIds, hits.keySet());
+		evict();
+		return resourceSet;
+	}
+
+	private boolean loadAndParse(JaMoPPJDTSingleFileParser parser, ResourceSet resourceSet, Path root,
+			Map<String, String> blobIds, Map<String, CacheEntry> hits, Map<Resource, String> fileResources,
+			boolean resolveAll) {
+		// 2b. Load the cached models.
+		URI rootURI = createRootURI(root);
+		for (var hit : hits.entrySet()) {
+			Resource resource = resourceSet.createResource(URI.createURI(hit.getValue().uri).resolve(rootURI));
+			if (resource == null || !load(hit.getValue(), resource)) {
+				return false;
+			}
+			resource.getContents().forEach(obj -> JavaClasspath.get(resourceSet)
+					.registerJavaRoot((JavaRoot) obj, resource.getURI()));
+			fileResources.put(resource, hit.getKey());
+		}
+
+		// 2c. Parse the Java files which are not cached.
+		for (String file : blobIds.keySet()) {
+			if (hits.containsKey(file)) {
+				continue;
+			}
+			JavaRoot parsed = IncrementalJavaParser.parseFile(parser, resourceSet, root.resolve(file), resolveAll);
+			if (parsed == null) {
+				return false;
+			}
+			fileResources.put(parsed.eResource(), file);
+		}
+		fileResources.keySet().stream().filter(r -> hits.containsKey(fileResources.get(r)))
+				.forEach(EcoreUtil::resolveAll);
+		return true;
+	}
+
+	/**
+	 * Finds all cached models which can be reused. A model can be reused if its
+	 * Java file is unchanged and all Java files with referenced models are
+	 * unchanged and reused, too.
+	 *
+	 * @param blobIds the blob ids of all current Java files.
+	 * @return the reusable cache entries for their Java files.
+	 */
+	private Map<String, CacheEntry> findReusableEntries(Map<String, String> blobIds) {
+		Map<String, CacheEntry> hits = new LinkedHashMap<>();
+		for (var blob : blobIds.entrySet()) {
+			Path entryFile = getEntryFile(blob.getValue(), blob.getKey());
+			if (!Files.exists(entryFile)) {
+				continue;
+			}
+			try {
+				CacheEntry entry = readHeader(entryFile, blob.getValue());
+				if (entry.file.equals(blob.getKey())) {
+					hits.put(blob.getKey(), entry);
+				}
+			} catch (IOException e) {
+				LOGGER.debug("Removing the corrupt cache entry " + entryFile + ": " + e.getMessage());
+				deleteQuietly(entryFile);
+			}
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = hits.values().removeIf(entry -> entry.dependencies.entrySet().stream().anyMatch(
+					dep -> !hits.containsKey(dep.getKey()) || !dep.getValue().equals(blobIds.get(dep.getKey()))));
+		}
+		return hits;
+	}
+
+	private boolean load(CacheEntry entry, Resource resource) {
+		Path entryFile = getEntryFile(entry.blobId, entry.file);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryFile)))) {
+			readHeader(in, entry.blobId);
+			BinaryResourceImpl binary = new BinaryResourceImpl(resource.getURI());
+			binary.load(in, null);
+			resource.getContents().addAll(binary.getContents());
+			Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+			return true;
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Could not load the cache entry " + entryFile + ": " + e.getMessage());
+			deleteQuietly(entryFile);
+			return false;
+		}
+	}
+
+	private void store(Map<Resource, String> fileResources, Path root, Map<String, String> blobIds,
+			Set<String> cachedFiles) {
+		int stored = 0;
+		for (var fileResource : fileResources.entrySet()) {
+			if (cachedFiles.contains(fileResource.getValue())) {
+				continue;
+			}
+			Map<String, String> dependencies = collectDependencies(fileResource.getKey(), fileResources, blobIds);
+			if (dependencies == null) {
+				continue;
+			}
+			CacheEntry entry = new CacheEntry(blobIds.get(fileResource.getValue()), fileResource.getValue(),
+					fileResource.getKey().getURI().deresolve(createRootURI(root)).toString(), dependencies);
+			try {
+				write(entry, fileResource.getKey());
+				stored++;
+			} catch (IOException | RuntimeException e) {
+				LOGGER.debug("Could not cache the model of " + entry.file + ": " + e.getMessage());
+			}
+		}
+		LOGGER.debug("Cached " + stored + " Java models.");
+	}
+
+	private void write(CacheEntry entry, Resource resource) throws IOException {
+		Path entryFile = getEntryFile(entry.blobId, entry.file);
+		Files.createDirectories(entryFile.getParent());
+		Path tmp = Files.createTempFile(entryFile.getParent(), entry.blobId, ".tmp");
+		List<EObject> contents = new ArrayList<>(resource.getContents());
+		BinaryResourceImpl binary = new BinaryResourceImpl(resource.getURI());
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(entry.file);
+				out.writeUTF(entry.uri);
+				out.writeInt(entry.dependencies.size());
+				for (var dep : entry.dependencies.entrySet()) {
+					out.writeUTF(dep.getKey());
+					out.writeUTF(dep.getValue());
+				}
+				// The models are temporarily moved into a binary Resource with the same URI so
+				// that the references from and to other Resources are kept.
+				binary.getContents().addAll(contents);
+				binary.save(out, null);
+			} finally {
+				resource.getContents().addAll(contents);
+			}
+			Files.move(tmp, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			deleteQuietly(tmp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Collects the Java files whose models are referenced by a model.
+	 *
+	 * @param resource      the Resource of the model.
+	 * @param fileResources the Resources for all Java files.
+	 * @param blobIds       the blob ids of all Java files.
+	 * @return the referenced Java files with their blob ids or null if the model
+	 *         references a model which cannot be related to a Java file.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, String> collectDependencies(Resource resource, Map<Resource, String> fileResources,
+			Map<String, String> blobIds) {
+		Map<String, String> dependencies = new TreeMap<>();
+		for (var iterator = resource.getAllContents(); iterator.hasNext();) {
+			EObject current = iterator.next();
+			for (EReference ref : current.eClass().getEAllReferences()) {
+				if (ref.isContainment() || ref.isContainer() || ref.isDerived() || ref.isTransient()
+						|| !current.eIsSet(ref)) {
+					continue;
+				}
+				List<EObject> targets;
+				if (ref.isMany()) {
+					targets = ((InternalEList<EObject>) current.eGet(ref)).basicList();
+				} else {
+					targets = List.of((EObject) current.eGet(ref, false));
+				}
+				for (EObject target : targets) {
+					if (target.eIsProxy()) {
+						continue;
+					}
+					Resource targetResource = target.eResource();
+					if (targetResource == null) {
+						return null;
+					}
+					if (targetResource == resource) {
+						continue;
+					}
+					String file = fileResources.get(targetResource);
+					if (file != null) {
+						dependencies.put(file, blobIds.get(file));
+					} else if (targetResource.getContents().stream()
+							.anyMatch(obj -> obj instanceof JavaRoot && ((JavaRoot) obj).getOrigin() == Origin.FILE)) {
+						return null;
+					}
+				}
+			}
+		}
+		return dependencies;
+	}
+
+	private void collectFileResources(ResourceSet resourceSet, Path root, Map<String, String> blobIds,
+			Map<Resource, String> fileResources) {
+		for (Resource resource : resourceSet.getResources()) {
+			if (!resource.getURI().isFile()) {
+				continue;
+			}
+			Path file = Paths.get(resource.getURI().toFileString());
+			if (file.startsWith(root)) {
+				String relativePath = IncrementalJavaParser.toRelativePath(root, file);
+				if (blobIds.containsKey(relativePath)) {
+					fileResources.put(resource, relativePath);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the least recently used models until the cache does not exceed its
+	 * maximum size.
+	 */
+	private void evict() {
+		List<Path> entryFiles;
+		try (Stream<Path> files = Files.walk(directory)) {
+			entryFiles = files.filter(p -> p.toString().endsWith(ENTRY_FILE_EXTENSION)).collect(Collectors.toList());
+		} catch (IOException e) {
+			LOGGER.debug("Could not list the cache entries: " + e.getMessage());
+			return;
+		}
+		Map<Path, Long> sizes = new HashMap<>();
+		Map<Path, Long> lastUsage = new HashMap<>();
+		long size = 0;
+		for (Path entryFile : entryFiles) {
+			try {
+				sizes.put(entryFile, Files.size(entryFile));
+				lastUsage.put(entryFile, Files.getLastModifiedTime(entryFile).toMillis());
+				size += sizes.get(entryFile);
+			} catch (IOException e) {
+				sizes.put(entryFile, 0L);
+				lastUsage.put(entryFile, 0L);
+			}
+		}
+		if (size <= maximumSize) {
+			return;
+		}
+		entryFiles.sort(Comparator.comparing(lastUsage::get));
+		int evicted = 0;
+		for (Path entryFile : entryFiles) {
+			if (size <= maximumSize) {
+				break;
+			}
+			deleteQuietly(entryFile);
+			size -= sizes.get(entryFile);
+			evicted++;
+		}
+		LOGGER.debug("Evicted " + evicted + " Java models from the parse cache.");
+	}
+
+	/**
+	 * Clears the cache if it was filled with other options for the parsing.
+	 *
+	 * @param fingerprint the current options.
+	 * @throws IOException if the cache cannot be accessed.
+	 */
+	private void validateOptions(String fingerprint) throws IOException {
+		Path optionsFile = directory.resolve(OPTIONS_FILE_NAME);
+		if (Files.exists(optionsFile) && Files.readString(optionsFile).equals(fingerprint)) {
+			return;
+		}
+		if (Files.exists(directory)) {
+			LOGGER.debug("The options for the parsing changed. Clearing the parse cache.");
+			FileUtils.cleanDirectory(directory.toFile());
+		}
+		Files.createDirectories(directory);
+		Files.writeString(optionsFile, fingerprint);
+	}
+
+	/**
+	 * Creates a textual representation of the options which influence the parsed
+	 * models. The ParserOptions are derived from resolveAll so that they are
+	 * covered, too.
+	 */
+	private static String createOptionsFingerprint(String[] exclusionPatterns, boolean resolveAll) {
+		return "version=" + FORMAT_VERSION + "\nresolveAll=" + resolveAll + "\nexcludes="
+				+ String.join(";", exclusionPatterns) + "\n";
+	}
+
+	/**
+	 * Computes the Git blob id of a file. It is identical to the id Git assigns to
+	 * the file content.
+	 */
+	private static String computeBlobId(Path file) throws IOException {
+		try (ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+			return formatter.idFor(Constants.OBJ_BLOB, Files.readAllBytes(file)).getName();
+		}
+	}
+
+	/**
+	 * Returns the file of the cache entry for a Java file. Files with the same
+	 * content at different paths get separate entries because their models
+	 * differ in their URIs and references.
+	 */
+	private Path getEntryFile(String blobId, String file) {
+		String pathId;
+		try (ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+			pathId = formatter.idFor(Constants.OBJ_BLOB, file.getBytes(StandardCharsets.UTF_8)).getName();
+		}
+		return directory.resolve(blobId.substring(0, 2))
+				.resolve(blobId.substring(2) + "-" + pathId + ENTRY_FILE_EXTENSION);
+	}
+
+	private static CacheEntry readHeader(Path entryFile, String blobId) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryFile)))) {
+			return readHeader(in, blobId);
+		}
+	}
+
+	private static CacheEntry readHeader(DataInputStream in, String blobId) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+			throw new IOException("Unknown format.");
+		}
+		String file = in.readUTF();
+		String uri = in.readUTF();
+		int numberOfDependencies = in.readInt();
+		Map<String, String> dependencies = new TreeMap<>();
+		for (int idx = 0; idx < numberOfDependencies; idx++) {
+			dependencies.put(in.readUTF(), in.readUTF());
+		}
+		return new CacheEntry(blobId, file, uri, dependencies);
+	}
+
+	private static URI createRootURI(Path root) {
+		return URI.createFileURI(root.toString() + File.separator);
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			LOGGER.debug("Could not delete " + file + ": " + e.getMessage());
+		}
+	}
+
+	private static final class CacheEntry {
+		private final String blobId;
+		private final String file;
+		private final String uri;
+		private final Map<String, String> dependencies;
+
+		private CacheEntry(String blobId, String file, String uri, Map<String, String> dependencies) {
+			this.blobId = blobId;
+			this.file = file;
+			this.uri = uri;
+			this.dependencies = dependencies;
+		}
+	}
+}
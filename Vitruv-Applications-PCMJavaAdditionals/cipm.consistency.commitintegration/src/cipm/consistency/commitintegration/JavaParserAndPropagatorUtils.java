@@ -2,7 +2,11 @@ package cipm.consistency.commitintegration;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
@@ -10,6 +14,8 @@ import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.jgit.diff.DiffEntry;
 import org.emftext.language.java.JavaClasspath;
 import org.emftext.language.java.containers.JavaRoot;
 import org.emftext.language.java.types.PrimitiveType;
@@ -19,6 +25,7 @@ import cipm.consistency.commitintegration.detection.ComponentDetectionStrategy;
 import cipm.consistency.commitintegration.detection.ComponentModuleDetector;
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.tools.evaluation.data.SpanRecorder;
 import jamopp.options.ParserOptions;
 import jamopp.parser.jdt.singlefile.JaMoPPJDTSingleFileParser;
 import jamopp.recovery.trivial.TrivialRecovery;
@@ -33,6 +40,20 @@ import tools.vitruv.framework.vsum.VirtualModel;
 public final class JavaParserAndPropagatorUtils {
 	private static final Logger LOGGER = Logger.getLogger("cipm." + JavaParserAndPropagatorUtils.class.getSimpleName());
 	private static Configuration config = new Configuration(true, new BuildFileBasedComponentDetectionStrategy());
+	/**
+	 * Guards the global JavaClasspath. It is held during the complete propagation of a Java model and by a
+	 * concurrent parsing until it is verified that the parsing only registers the models in the JavaClasspath of
+	 * its ResourceSet.
+	 */
+	private static final ReentrantLock CLASSPATH_LOCK = new ReentrantLock();
+	/**
+	 * True if a concurrent parsing did not change the global JavaClasspath.
+	 */
+	private static volatile boolean localRegistrationVerified;
+
+	static {
+		configureParserOptions(config);
+	}
 
 	private JavaParserAndPropagatorUtils() {
 	}
@@ -46,24 +67,156 @@ public final class JavaParserAndPropagatorUtils {
 	 * @return the Resource with all models.
 	 */
 	public static Resource parseJavaCodeIntoOneModel(Path dir, Path target, Path modConfig) {
+		return parseJavaCodeIntoOneModel(dir, target, modConfig, null);
+	}
+
+	/**
+	 * Parses all Java code and creates one Resource with all models. The models of
+	 * unchanged Java files are loaded from a cache.
+	 * 
+	 * @param dir        directory in which the Java code resides.
+	 * @param target     target file of the Resource with all models.
+	 * @param modConfig  file which contains the stored module configuration.
+	 * @param parseCache cache for the models of the Java files. If it is null, no
+	 *                   cache is used.
+	 * @return the Resource with all models.
+	 */
+	public static Resource parseJavaCodeIntoOneModel(Path dir, Path target, Path modConfig,
+			JavaParseCache parseCache) {
 		// 1. Parse the code.
+		JaMoPPJDTSingleFileParser parser = createParser();
+		ResourceSet resourceSet = null;
+		if (parseCache != null) {
+			LOGGER.debug("Parsing " + dir.toString() + " with the parse cache.");
+			resourceSet = parseCache.parseDirectory(parser, dir, getExclusionPatterns(), config.resolveAll);
+		}
+		if (resourceSet == null) {
+			parser.setResourceSet(createResourceSet());
+			LOGGER.debug("Parsing " + dir.toString());
+			resourceSet = parser.parseDirectory(dir);
+		}
+		return createOneModel(resourceSet, dir, target, modConfig);
+	}
+
+	/**
+	 * Parses only the changed Java code, reuses the models of the unchanged Java
+	 * code, and creates one Resource with all models. If the incremental parsing is
+	 * not applicable, all Java code is parsed.
+	 * 
+	 * @param dir       directory in which the Java code resides.
+	 * @param previous  the Resource with all models of the previous state.
+	 * @param diffs     the differences of the Java files between the previous and
+	 *                  current state.
+	 * @param target    target file of the Resource with all models.
+	 * @param modConfig file which contains the stored module configuration.
+	 * @param parseCache cache for the models of the Java files if all Java code
+	 *                   is parsed. It can be null.
+	 * @return the Resource with all models.
+	 */
+	public static Resource parseChangedJavaCodeIntoOneModel(Path dir, Resource previous, List<DiffEntry> diffs,
+			Path target, Path modConfig, JavaParseCache parseCache) {
+		// 1. Parse the changed code.
+		JaMoPPJDTSingleFileParser parser = createParser();
+		LOGGER.debug("Parsing the changed Java files in " + dir.toString());
+		ResourceSet resourceSet = IncrementalJavaParser.parseChangedFiles(parser, dir, previous, diffs,
+				getExclusionPatterns(), config.resolveAll);
+		if (resourceSet == null) {
+			LOGGER.debug("The incremental parsing is not applicable.");
+			return parseJavaCodeIntoOneModel(dir, target, modConfig, parseCache);
+		}
+		return createOneModel(resourceSet, dir, target, modConfig);
+	}
+
+	/**
+	 * Sets the ParserOptions. As they are global, they are only set once for a configuration instead of for
+	 * every parsing.
+	 */
+	private static synchronized void configureParserOptions(Configuration configuration) {
 		ParserOptions.CREATE_LAYOUT_INFORMATION.setValue(Boolean.FALSE);
 		ParserOptions.REGISTER_LOCAL.setValue(Boolean.TRUE);
-		if (config.resolveAll) {
+		if (configuration.resolveAll) {
 			ParserOptions.RESOLVE_EVERYTHING.setValue(Boolean.TRUE);
 			ParserOptions.RESOLVE_ALL_BINDINGS.setValue(Boolean.TRUE);
 		} else {
 			ParserOptions.RESOLVE_ALL_BINDINGS.setValue(Boolean.FALSE);
 			ParserOptions.RESOLVE_EVERYTHING.setValue(Boolean.FALSE);
 		}
-		
+	}
+
+	/**
+	 * Creates a ResourceSet for the parsing. It has its own JavaClasspath so that the parsed models are not
+	 * registered in the global JavaClasspath, which is used by the propagation.
+	 * 
+	 * @return the ResourceSet.
+	 */
+	static ResourceSet createResourceSet() {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet.getLoadOptions().put(JavaClasspath.OPTION_USE_LOCAL_CLASSPATH, Boolean.TRUE);
+		JavaClasspath.get(resourceSet);
+		return resourceSet;
+	}
+
+	/**
+	 * Performs a parsing in another thread than the one which propagates the changes. As long as it is not
+	 * verified that the parsing leaves the global JavaClasspath unchanged, the parsing excludes the propagation
+	 * of Java models, and the global JavaClasspath is compared before and after the parsing. If it is unchanged,
+	 * all further parsings run at the same time as the propagation. Otherwise, they remain exclusive.
+	 * 
+	 * @param parsing the parsing, e.g., one of the parse methods.
+	 * @return the Resource with all models.
+	 */
+	static Resource parseConcurrently(Supplier<Resource> parsing) {
+		if (localRegistrationVerified) {
+			return parsing.get();
+		}
+		CLASSPATH_LOCK.lock();
+		try {
+			Map<URI, URI> globalURIs = new HashMap<>(JavaClasspath.get().getURIMap());
+			Resource all = parsing.get();
+			if (globalURIs.equals(JavaClasspath.get().getURIMap())) {
+				LOGGER.debug("The parsing does not change the global JavaClasspath. Further parsings run at the "
+						+ "same time as the propagation.");
+				localRegistrationVerified = true;
+			} else {
+				LOGGER.warn("The parsing changed the global JavaClasspath. It is not performed at the same time as "
+						+ "the propagation.");
+			}
+			return all;
+		} finally {
+			CLASSPATH_LOCK.unlock();
+		}
+	}
+
+	/**
+	 * Copies a Resource with all Java models into a new ResourceSet with its own JavaClasspath. Proxies are
+	 * copied without resolving them so that the original Resource is only read.
+	 * 
+	 * @param all the Resource with all Java models.
+	 * @return the copy.
+	 */
+	static Resource copyModel(Resource all) {
+		ResourceSet resourceSet = createResourceSet();
+		Resource copy = resourceSet.createResource(all.getURI());
+		EcoreUtil.Copier copier = new EcoreUtil.Copier(false);
+		copy.getContents().addAll(copier.copyAll(all.getContents()));
+		copier.copyReferences();
+		copy.getContents().forEach(content -> JavaClasspath.get(resourceSet).registerJavaRoot((JavaRoot) content,
+				copy.getURI()));
+		return copy;
+	}
+
+	private static JaMoPPJDTSingleFileParser createParser() {
 		JaMoPPJDTSingleFileParser parser = new JaMoPPJDTSingleFileParser();
-		parser.setResourceSet(new ResourceSetImpl());
-		parser.setExclusionPatterns(CommitIntegrationSettingsContainer.getSettingsContainer()
-				.getProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS).split(";"));
-		LOGGER.debug("Parsing " + dir.toString());
-		ResourceSet resourceSet = parser.parseDirectory(dir);
-		
+		parser.setExclusionPatterns(getExclusionPatterns());
+		return parser;
+	}
+
+	private static String[] getExclusionPatterns() {
+		return CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS).split(";");
+	}
+
+	private static Resource createOneModel(ResourceSet resourceSet, Path dir, Path target, Path modConfig) {
 		if (!config.resolveAll) {
 			// Wrap all primitive types to ensure that their wrapper classes are loaded.
 			for (var resource : new ArrayList<>(resourceSet.getResources())) {
@@ -97,12 +250,14 @@ public final class JavaParserAndPropagatorUtils {
 	}
 	
 	/**
-	 * Sets the configuration for the Java parsing and module / component detection.
+	 * Sets the configuration for the Java parsing and module / component detection. It must not be changed while
+	 * Java code is parsed.
 	 * 
 	 * @param config the configuration.
 	 */
 	public static void setConfiguration(Configuration config) {
 		JavaParserAndPropagatorUtils.config = config;
+		configureParserOptions(config);
 	}
 
 	/**
@@ -115,18 +270,97 @@ public final class JavaParserAndPropagatorUtils {
 	 * @param configPath file path to the module configuration.
 	 */
 	public static void parseAndPropagateJavaCode(Path dir, Path target, VirtualModel vsum, Path configPath) {
+		parseAndPropagateJavaCode(dir, target, vsum, configPath, null);
+	}
+
+	/**
+	 * Performs an integration or change propagation of Java code into Vitruvius in
+	 * which the models of unchanged Java files are loaded from a cache.
+	 * 
+	 * @param dir        the directory with the Java code.
+	 * @param target     destination in which the complete Java model will be
+	 *                   stored.
+	 * @param vsum       the VSUM.
+	 * @param configPath file path to the module configuration.
+	 * @param parseCache cache for the models of the Java files. If it is null, no
+	 *                   cache is used.
+	 */
+	public static void parseAndPropagateJavaCode(Path dir, Path target, VirtualModel vsum, Path configPath,
+			JavaParseCache parseCache) {
 		// 1. Parse the Java code and create one Resource with all models.
-		Resource all = parseJavaCodeIntoOneModel(dir, target, configPath);
-		all.getContents().forEach(content -> JavaClasspath.get().registerJavaRoot((JavaRoot) content, all.getURI()));
+		Resource all;
+		try (var span = SpanRecorder.start("parse")) {
+			all = parseJavaCodeIntoOneModel(dir, target, configPath, parseCache);
+		}
+
+		// 2. Propagate the Java models.
+		propagateJavaModel(all, vsum);
+	}
+
+	/**
+	 * Performs a change propagation of Java code into Vitruvius in which only the
+	 * changed Java code is parsed.
+	 * 
+	 * @param dir        the directory with the Java code.
+	 * @param previous   the Resource with all models of the previous state.
+	 * @param diffs      the differences of the Java files between the previous and
+	 *                   current state.
+	 * @param target     destination in which the complete Java model will be
+	 *                   stored.
+	 * @param vsum       the VSUM.
+	 * @param configPath file path to the module configuration.
+	 * @param parseCache cache for the models of the Java files if all Java code
+	 *                   is parsed. It can be null.
+	 */
+	public static void parseAndPropagateChangedJavaCode(Path dir, Resource previous, List<DiffEntry> diffs,
+			Path target, VirtualModel vsum, Path configPath, JavaParseCache parseCache) {
+		// 1. Parse the changed Java code and create one Resource with all models.
+		Resource all;
+		try (var span = SpanRecorder.start("parse")) {
+			all = parseChangedJavaCodeIntoOneModel(dir, previous, diffs, target, configPath, parseCache);
+		}
 
 		// 2. Propagate the Java models.
-		LOGGER.debug("Propagating the Java models.");
-		vsum.propagateChangedState(all);
-		JavaClasspath.get().getURIMap().entrySet().stream().filter(entry -> entry.getValue() == all.getURI())
-				.map(Map.Entry::getKey).collect(Collectors.toList())
-				.forEach(u -> JavaClasspath.get().getURIMap().remove(u));
-		all.unload();
-		JavaClasspath.remove(all);
+		propagateJavaModel(all, vsum);
+	}
+
+	/**
+	 * Propagates a Resource with all Java models which was created by one of the parse methods.
+	 * 
+	 * @param all  the Resource with all Java models. It is unloaded afterwards.
+	 * @param vsum the VSUM.
+	 */
+	public static void propagateJavaModel(Resource all, VirtualModel vsum) {
+		propagateJavaModel(all, vsum, true);
+	}
+
+	/**
+	 * Propagates a Resource with all Java models which was created by one of the parse methods. While the models
+	 * are registered in the global JavaClasspath and propagated, no unverified concurrent parsing is performed.
+	 * 
+	 * @param all    the Resource with all Java models.
+	 * @param vsum   the VSUM.
+	 * @param unload true if the Resource is unloaded afterwards. Otherwise, the caller unloads it.
+	 */
+	public static void propagateJavaModel(Resource all, VirtualModel vsum, boolean unload) {
+		CLASSPATH_LOCK.lock();
+		try {
+			all.getContents().forEach(content -> JavaClasspath.get().registerJavaRoot((JavaRoot) content,
+					all.getURI()));
+			LOGGER.debug("Propagating the Java models.");
+			try (var span = SpanRecorder.start("propagation")) {
+				vsum.propagateChangedState(all);
+			}
+			JavaClasspath.get().getURIMap().entrySet().stream().filter(entry -> entry.getValue() == all.getURI())
+					.map(Map.Entry::getKey).collect(Collectors.toList())
+					.forEach(u -> JavaClasspath.get().getURIMap().remove(u));
+			if (unload) {
+				all.unload();
+			}
+			JavaClasspath.remove(all);
+		} finally {
+			CLASSPATH_LOCK.unlock();
+		}
 	}
 	
 	public static class Configuration {
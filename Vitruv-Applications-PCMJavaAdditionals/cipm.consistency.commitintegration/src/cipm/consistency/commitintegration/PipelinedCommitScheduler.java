@@ -0,0 +1,315 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import cipm.consistency.tools.evaluation.data.PhaseSpan;
+import cipm.consistency.tools.evaluation.data.SpanRecorder;
+
+/**
+ * Prepares commits ahead of their propagation. While a commit is propagated, the next commits are checked out
+ * and preprocessed in separate working copies of the local repository by a background thread, and their Java
+ * code is parsed. The working copies are reused and limit the number of commits which are prepared ahead.
+ *
+ * The VSUM is only changed by the thread which propagates the commits. The parsing uses a JavaClasspath per
+ * ResourceSet and runs at the same time as the propagation once this is verified (see
+ * {@link JavaParserAndPropagatorUtils#parseConcurrently(java.util.function.Supplier)}). If the incremental parsing
+ * is enabled, the first commit is parsed completely, and every further commit is parsed incrementally from the
+ * model of the commit prepared before it. As the propagation reads the model of a commit, the background thread
+ * copies the model before the commit is handed over and parses the next commit from the copy. Thus, no model is
+ * accessed by both threads. The model of a commit is unloaded when the commit is released.
+ *
+ * If the preparation of a commit fails with an exception, all remaining preparations are cancelled, and the
+ * commits are processed without the scheduler. Closing the scheduler cancels the remaining preparations, too,
+ * and terminates a running preprocessing script.
+ *
+ * @author Martin Armbruster
+ */
+public class PipelinedCommitScheduler implements AutoCloseable {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + PipelinedCommitScheduler.class.getSimpleName());
+	private static final String WORKING_COPY_PREFIX = "copy-";
+	private static final long TERMINATION_TIMEOUT_SECONDS = 60;
+	private final GitRepositoryWrapper localRepository;
+	private final JavaFileSystemLayout fileLayout;
+	private final JavaParseCache parseCache;
+	private final boolean incrementalParsing;
+	private final List<GitRepositoryWrapper> workingCopies = new ArrayList<>();
+	private final BlockingQueue<GitRepositoryWrapper> freeWorkingCopies = new LinkedBlockingQueue<>();
+	private final Map<String, Future<PreparedCommit>> preparations = new LinkedHashMap<>();
+	private final ExecutorService executor;
+	private PreparedCommit current;
+	/**
+	 * The commit and a copy of the Java model of the last prepared commit from which the next commit is parsed
+	 * incrementally. They are only used by the background thread.
+	 */
+	private String lastParsedCommitId;
+	private Resource lastParsedModel;
+	private boolean closed;
+
+	/**
+	 * Creates a new instance and starts the preparation of the commits.
+	 *
+	 * @param localRepository the local repository from which the working copies are cloned.
+	 * @param fileLayout      the file layout with the directory for the working copies.
+	 * @param commits         the commits in the order of their propagation.
+	 * @param lookAhead       the maximum number of commits which are prepared ahead of the currently propagated
+	 *                        commit.
+	 * @param incrementalParsing true if the Java code is parsed incrementally from the model of the previously
+	 *                        prepared commit.
+	 * @param parseCache      the cache for the complete parsing or null.
+	 */
+	PipelinedCommitScheduler(GitRepositoryWrapper localRepository, JavaFileSystemLayout fileLayout,
+			List<RevCommit> commits, int lookAhead, boolean incrementalParsing, JavaParseCache parseCache) {
+		if (lookAhead < 1) {
+			throw new IllegalArgumentException("The look-ahead must be at least 1.");
+		}
+		this.localRepository = localRepository;
+		this.fileLayout = fileLayout;
+		this.incrementalParsing = incrementalParsing;
+		this.parseCache = parseCache;
+		// One working copy is used by the propagated commit.
+		for (int idx = 0; idx <= lookAhead; idx++) {
+			var copy = new GitRepositoryWrapper(fileLayout.getPreparedCommits()
+					.resolve(WORKING_COPY_PREFIX + idx).toFile());
+			copy.setRenameDetectionLimit(localRepository.getRenameDetectionLimit());
+			workingCopies.add(copy);
+			freeWorkingCopies.add(copy);
+		}
+		executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cipm-commit-preparation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (RevCommit commit : commits) {
+			String commitId = commit.getId().getName();
+			preparations.putIfAbsent(commitId, executor.submit(() -> prepare(commitId)));
+		}
+	}
+
+	private PreparedCommit prepare(String commitId) throws IOException, GitAPIException, InterruptedException {
+		GitRepositoryWrapper copy = freeWorkingCopies.take();
+		// The span is added to the evaluation data of the commit when the commit is taken.
+		try (var span = SpanRecorder.startDetached("prepare " + commitId)) {
+			if (!copy.isInitialized()) {
+				String[] files = copy.getRootDirectory().list();
+				if (files != null && files.length > 0) {
+					copy.initFromRootDirectory();
+				} else {
+					Files.createDirectories(copy.getRootDirectory().toPath());
+					LOGGER.debug("Creating the working copy " + copy.getRootDirectory());
+					copy.initFromLocalRepository(localRepository.getRootDirectory());
+				}
+			}
+			PreparedCommit prepared = new PreparedCommit(commitId, copy, span.getSpan());
+			try (var checkoutSpan = SpanRecorder.start("checkout")) {
+				copy.fetchAllReferences();
+				CommitChangePropagator.checkout(copy, commitId);
+			}
+			try (var preprocessSpan = SpanRecorder.start("preprocess")) {
+				prepared.preprocessed = CommitChangePropagator.preprocess(copy.getRootDirectory());
+			}
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedException();
+			}
+			if (prepared.preprocessed) {
+				try (var parseSpan = SpanRecorder.start("parse")) {
+					prepared.javaModel = JavaParserAndPropagatorUtils.parseConcurrently(() -> parse(prepared));
+				}
+				replaceLastParsedModel(incrementalParsing ? prepared.commitId : null,
+						incrementalParsing ? JavaParserAndPropagatorUtils.copyModel(prepared.javaModel) : null);
+			} else {
+				replaceLastParsedModel(null, null);
+			}
+			LOGGER.debug("Prepared " + commitId + " in " + copy.getRootDirectory());
+			return prepared;
+		} catch (IOException | GitAPIException | InterruptedException | RuntimeException e) {
+			freeWorkingCopies.add(copy);
+			throw e;
+		}
+	}
+
+	private Resource parse(PreparedCommit prepared) {
+		if (incrementalParsing && lastParsedModel != null) {
+			GitRepositoryWrapper copy = prepared.workingCopy;
+			List<DiffEntry> diffs;
+			try {
+				// The statistics of the diffs are recorded by the propagating thread.
+				diffs = copy.computeDiffsWithoutStatistics(copy.getCommitForId(lastParsedCommitId),
+						copy.getCommitForId(prepared.commitId), true, true);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (GitAPIException e) {
+				throw new IllegalStateException(e);
+			}
+			return JavaParserAndPropagatorUtils.parseChangedJavaCodeIntoOneModel(prepared.getDirectory(),
+					lastParsedModel, diffs, fileLayout.getJavaModelFile(), fileLayout.getModuleConfiguration(),
+					parseCache);
+		}
+		return JavaParserAndPropagatorUtils.parseJavaCodeIntoOneModel(prepared.getDirectory(),
+				fileLayout.getJavaModelFile(), fileLayout.getModuleConfiguration(), parseCache);
+	}
+
+	private void replaceLastParsedModel(String commitId, Resource model) {
+		if (lastParsedModel != null) {
+			lastParsedModel.unload();
+		}
+		lastParsedCommitId = commitId;
+		lastParsedModel = model;
+	}
+
+	/**
+	 * Returns a prepared commit. The previously returned commit and skipped commits are released so that further
+	 * commits can be prepared.
+	 *
+	 * @param commit the commit.
+	 * @return the prepared commit or null if the commit is not scheduled or its preparation failed.
+	 * @throws IOException if the thread is interrupted while it waits for the preparation.
+	 */
+	PreparedCommit take(RevCommit commit) throws IOException {
+		String commitId = commit.getId().getName();
+		if (closed || !preparations.containsKey(commitId)) {
+			return null;
+		}
+		release(current);
+		current = null;
+		Iterator<Map.Entry<String, Future<PreparedCommit>>> iterator = preparations.entrySet().iterator();
+		while (iterator.hasNext()) {
+			var entry = iterator.next();
+			iterator.remove();
+			PreparedCommit prepared;
+			try {
+				prepared = entry.getValue().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new InterruptedIOException("Interrupted while waiting for the preparation of " + commitId);
+			} catch (ExecutionException | CancellationException e) {
+				LOGGER.error("The preparation of " + entry.getKey() + " failed. Cancelling the remaining "
+						+ "preparations.", e.getCause() != null ? e.getCause() : e);
+				close();
+				return null;
+			}
+			if (entry.getKey().equals(commitId)) {
+				SpanRecorder.attach(prepared.preparationSpan);
+				current = prepared;
+				return prepared;
+			}
+			release(prepared);
+		}
+		return null;
+	}
+
+	private void release(PreparedCommit prepared) {
+		if (prepared != null) {
+			if (prepared.javaModel != null) {
+				prepared.javaModel.unload();
+				prepared.javaModel = null;
+			}
+			freeWorkingCopies.add(prepared.workingCopy);
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Cancels the remaining preparations and waits for the termination of the background thread. The working
+	 * copies are kept for the next scheduler.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		preparations.values().forEach(f -> f.cancel(true));
+		executor.shutdownNow();
+		try {
+			if (executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				replaceLastParsedModel(null, null);
+			} else {
+				LOGGER.error("The preparation of the commits did not terminate.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (Future<PreparedCommit> preparation : preparations.values()) {
+			if (preparation.isDone() && !preparation.isCancelled()) {
+				try {
+					release(preparation.get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					// The working copy was already released.
+				}
+			}
+		}
+		preparations.clear();
+		release(current);
+		current = null;
+		workingCopies.stream().filter(GitRepositoryWrapper::isInitialized)
+				.forEach(GitRepositoryWrapper::closeRepository);
+	}
+
+	/**
+	 * A commit which is checked out and preprocessed in a working copy.
+	 */
+	static final class PreparedCommit {
+		private final String commitId;
+		private final GitRepositoryWrapper workingCopy;
+		private final PhaseSpan preparationSpan;
+		private boolean preprocessed;
+		private Resource javaModel;
+
+		private PreparedCommit(String commitId, GitRepositoryWrapper workingCopy, PhaseSpan preparationSpan) {
+			this.commitId = commitId;
+			this.workingCopy = workingCopy;
+			this.preparationSpan = preparationSpan;
+		}
+
+		String getCommitId() {
+			return commitId;
+		}
+
+		Path getDirectory() {
+			return workingCopy.getRootDirectory().toPath().toAbsolutePath();
+		}
+
+		boolean isPreprocessed() {
+			return preprocessed;
+		}
+
+		/**
+		 * Returns the Resource with all Java models of the commit. It is only accessed by the propagating thread
+		 * and unloaded when the commit is released.
+		 *
+		 * @return the Resource or null if the Java code was not parsed.
+		 */
+		Resource getJavaModel() {
+			return javaModel;
+		}
+	}
+}
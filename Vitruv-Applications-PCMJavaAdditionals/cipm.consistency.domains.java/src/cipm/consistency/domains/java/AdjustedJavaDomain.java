@@ -2,7 +2,6 @@ package cipm.consistency.domains.java;
 
 import cipm.consistency.domains.java.propagation.JavaStateBasedChangeResolutionStrategy;
 import tools.vitruv.domains.java.JavaDomain;
-import tools.vitruv.framework.domains.StateBasedChangeResolutionStrategy;
 
 /**
  * An adjusted Java domain that uses the JavaStateBasedChangeResolutionStrategy.
@@ -10,7 +9,7 @@ import tools.vitruv.framework.domains.StateBasedChangeResolutionStrategy;
  * @author Martin Armbruster
  */
 public class AdjustedJavaDomain extends JavaDomain {
-	private StateBasedChangeResolutionStrategy internalStrategy =
+	private JavaStateBasedChangeResolutionStrategy internalStrategy =
 			new JavaStateBasedChangeResolutionStrategy();
 	
 	public AdjustedJavaDomain() {
@@ -18,7 +17,7 @@ public class AdjustedJavaDomain extends JavaDomain {
 	}
 	
 	@Override
-	public StateBasedChangeResolutionStrategy getStateChangePropagationStrategy() {
+	public JavaStateBasedChangeResolutionStrategy getStateChangePropagationStrategy() {
 		return internalStrategy;
 	}
 }
@@ -20,7 +20,16 @@ import java.util.Collection
 import org.apache.log4j.Logger
 import cipm.consistency.commitintegration.diff.util.JavaModelComparator
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer
+import cipm.consistency.tools.evaluation.data.SpanRecorder
 import cipm.consistency.commitintegration.diff.util.JavaChangedMethodDetectorDiffPostProcessor
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer
+import cipm.consistency.commitintegration.settings.SettingKeys
+import org.eclipse.emf.compare.Comparison
+import org.eclipse.emf.compare.Match
+import org.eclipse.emf.compare.ReferenceChange
+import org.emftext.language.java.members.Method
+import java.util.Map
+import java.util.HashMap
 
 /**
  * This strategy for diff based state changes of Java models uses EMFCompare to resolve a 
@@ -32,6 +41,16 @@ import cipm.consistency.commitintegration.diff.util.JavaChangedMethodDetectorDif
  */
 class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResolutionStrategy {
 	static final Logger logger = Logger.getLogger("ci." + JavaStateBasedChangeResolutionStrategy.simpleName)
+	MethodBodyChangeBatch methodBodyChangeBatch
+	
+	/**
+	 * Returns the methods with changed bodies of the last change resolution between two states.
+	 * 
+	 * @return the batch or null if no method body changed.
+	 */
+	def MethodBodyChangeBatch getMethodBodyChangeBatch() {
+		return methodBodyChangeBatch
+	}
 	
 	private def checkNoProxies(Resource resource, String stateNotice) {
 		val proxies = resource.referencedProxies
@@ -41,8 +60,12 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 
 	override getChangeSequenceBetween(Resource newState, Resource oldState) {
 		checkArgument(oldState !== null && newState !== null, "old state or new state must not be null!")
+		methodBodyChangeBatch = null
 		newState.checkNoProxies("new state")
 		oldState.checkNoProxies("old state")
+		if (useScopedSnapshot) {
+			return getChangeSequenceWithScopedSnapshot(newState, oldState)
+		}
 		val monitoredResourceSet = new ResourceSetImpl()
 		val currentStateCopy = oldState.copyInto(monitoredResourceSet)
 		return currentStateCopy.record(monitoredResourceSet, [
@@ -53,6 +76,103 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 		])
 	}
 
+	private def useScopedSnapshot() {
+		val settings = CommitIntegrationSettingsContainer.settingsContainer
+		return settings !== null && settings.getPropertyAsBoolean(SettingKeys.USE_SCOPED_SNAPSHOT)
+	}
+	
+	/**
+	 * Returns the number of threads which match the models. As the states do not contain proxies, the
+	 * matching can be performed concurrently.
+	 */
+	private def getMatchParallelism() {
+		val settings = CommitIntegrationSettingsContainer.settingsContainer
+		val parallelism = settings?.getProperty(SettingKeys.MATCH_PARALLELISM)
+		return if (parallelism === null) 1 else Integer.parseInt(parallelism.trim)
+	}
+	
+	/**
+	 * Creates the change sequence between two states in which only the roots of the old state with differences
+	 * are copied. The roots of the old state are compared with the new state beforehand. The comparison is then
+	 * redirected to the snapshot so that it can be replayed on the snapshot. References into unchanged roots
+	 * point to the elements of the old state.
+	 */
+	private def getChangeSequenceWithScopedSnapshot(Resource newState, Resource oldState) {
+		val postProcessor = new JavaChangedMethodDetectorDiffPostProcessor()
+		val comparison = JavaModelComparator.compareJavaModels(newState, oldState, null, null, postProcessor,
+			matchParallelism)
+		val monitoredResourceSet = new ResourceSetImpl()
+		val copier = new EcoreUtil.Copier
+		val snapshot = oldState.createScopedSnapshot(comparison, monitoredResourceSet, copier)
+		val changedMethods = postProcessor.changedMethods.map[copier.get(it) as Method].filterNull.toList
+		return snapshot.record(monitoredResourceSet, [
+			if (oldState.URI != newState.URI) {
+				snapshot.URI = newState.URI
+			}
+			comparison.replayChanges(changedMethods)
+		])
+	}
+	
+	/**
+	 * Creates a snapshot of the old state which contains copies of the roots with differences. Unchanged roots
+	 * are represented by empty placeholders so that all roots keep their position.
+	 */
+	private def createScopedSnapshot(Resource oldState, Comparison comparison, ResourceSet resourceSet,
+			EcoreUtil.Copier copier) {
+		val uri = oldState.URI
+		val snapshot = resourceSet.resourceFactoryRegistry.getFactory(uri).createResource(uri)
+		resourceSet.resources += snapshot
+		val changedRoots = comparison.matches.filter[right !== null && hasDifferences].map[right].toSet
+		copier.copyAll(oldState.contents.filter[changedRoots.contains(it)].toList)
+		copier.copyReferences
+		val Map<EObject, EObject> placeholders = new HashMap
+		val allCommentable = new ArrayList<Commentable>
+		for (root : oldState.contents) {
+			var copy = copier.get(root)
+			if (copy === null) {
+				copy = EcoreUtil.create(root.eClass)
+				placeholders.put(root, copy)
+			} else {
+				copy.eAllContents.filter(Commentable).forEach[allCommentable += it]
+			}
+			snapshot.contents += copy
+		}
+		allCommentable.forEach[layoutInformations.clear]
+		logger.debug("Copied " + changedRoots.size + " of " + oldState.contents.size + " roots of the old state.")
+		
+		// Redirect the comparison to the snapshot.
+		comparison.matchedResources.filter[right === oldState].forEach[
+			right = snapshot
+		]
+		comparison.matches.forEach[
+			val placeholder = placeholders.get(right)
+			if (placeholder !== null) {
+				right = placeholder
+			} else {
+				redirectMatch(copier)
+			}
+		]
+		comparison.differences.filter(ReferenceChange).forEach[
+			val copy = copier.get(value)
+			if (copy !== null) {
+				value = copy
+			}
+		]
+		return snapshot
+	}
+	
+	private def void redirectMatch(Match match, EcoreUtil.Copier copier) {
+		val copy = copier.get(match.right)
+		if (copy !== null) {
+			match.right = copy
+		}
+		match.submatches.forEach[redirectMatch(copier)]
+	}
+	
+	private def boolean hasDifferences(Match match) {
+		return !match.differences.empty || match.submatches.exists[hasDifferences]
+	}
+
 	override getChangeSequenceForCreated(Resource newState) {
 		checkArgument(newState !== null, "new state must not be null!")
 		newState.checkNoProxies("new state")
@@ -155,17 +275,36 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 	private def compareStatesAndReplayChanges(Notifier newState, Notifier currentState,
 			List<Resource> newResources, List<Resource> currentResources) {
 		val postProcessor = new JavaChangedMethodDetectorDiffPostProcessor()
-		val changes = JavaModelComparator.compareJavaModels(newState, currentState,
-				newResources, currentResources, postProcessor).differences
-		// Replay the EMF compare differences.
+		val compareSpan = SpanRecorder.start("compare")
+		val comparison = try {
+			JavaModelComparator.compareJavaModels(newState, currentState,
+				newResources, currentResources, postProcessor, matchParallelism)
+		} finally {
+			compareSpan.close
+		}
+		try (val span = SpanRecorder.start("merge")) {
+			comparison.replayChanges(postProcessor.getChangedMethods)
+		}
+	}
+	
+	/**
+	 * Replays the EMF compare differences to the current state.
+	 */
+	private def replayChanges(Comparison comparison, Iterable<Method> changedMethods) {
 		val mergerRegistry = IMerger.RegistryImpl.createStandaloneInstance()
 		val merger = new BatchMerger(mergerRegistry)
-		merger.copyAllLeftToRight(changes, new BasicMonitor)
-		postProcessor.getChangedMethods.forEach[
-			val oldName = it.name
-			it.name = ""
-			it.name = oldName
-		]
+		merger.copyAllLeftToRight(comparison.differences, new BasicMonitor)
+		// Only the first changed method is renamed to "" and back. The rename triggers the SEFF reconstruction
+		// which obtains all changed methods from the MethodBodyChangeBatch of this strategy.
+		val methods = changedMethods.toList
+		if (methods.empty) {
+			return
+		}
+		val trigger = methods.head
+		methodBodyChangeBatch = new MethodBodyChangeBatch(trigger, methods)
+		val oldName = trigger.name
+		trigger.name = ""
+		trigger.name = oldName
 	}
 
 	/**
@@ -0,0 +1,73 @@
+package cipm.consistency.domains.java.propagation;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.members.Method;
+
+/**
+ * Contains the methods with changed bodies of a state-based change resolution. Instead of signaling every changed
+ * method with a change of its name, only one method (the trigger) is renamed. Consumers of the name change on the
+ * trigger can obtain all changed methods from this batch.
+ *
+ * The batch is provided by the {@link JavaStateBasedChangeResolutionStrategy} which resolved the changes. As the
+ * rename is propagated on the models of the V-SUM, which are different objects than the methods of the resolution,
+ * the methods are identified by their URIs.
+ *
+ * @author Martin Armbruster
+ */
+public final class MethodBodyChangeBatch {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + MethodBodyChangeBatch.class.getSimpleName());
+	private final String triggerURI;
+	private final List<String> methodURIs;
+
+	/**
+	 * Creates a new batch.
+	 *
+	 * @param trigger the method whose name change signals the batch.
+	 * @param methods all methods with changed bodies. The methods must be contained in their final position.
+	 */
+	MethodBodyChangeBatch(Method trigger, List<Method> methods) {
+		this.triggerURI = EcoreUtil.getURI(trigger).toString();
+		this.methodURIs = methods.stream().map(m -> EcoreUtil.getURI(m).toString()).collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns the methods with changed bodies which are signaled by a change of a method name.
+	 *
+	 * @param renamedMethod the method whose name was changed.
+	 * @return all methods with changed bodies if the renamed method is the trigger of this batch. Otherwise, only
+	 *         the renamed method is returned.
+	 */
+	public List<Method> getChangedMethods(Method renamedMethod) {
+		String renamedURI = renamedMethod.eResource() != null ? EcoreUtil.getURI(renamedMethod).toString() : null;
+		if (!triggerURI.equals(renamedURI)) {
+			// Renames of the merged differences are propagated before the trigger of the batch.
+			LOGGER.debug("The renamed method " + renamedURI + " is not the trigger " + triggerURI
+					+ " of the batch. Only the renamed method is processed.");
+			return List.of(renamedMethod);
+		}
+		ResourceSet resourceSet = renamedMethod.eResource().getResourceSet();
+		List<Method> methods = methodURIs.stream().map(uri -> resolve(renamedMethod, resourceSet, uri))
+				.filter(Method.class::isInstance).map(Method.class::cast)
+				.collect(Collectors.toList());
+		if (methods.size() < methodURIs.size()) {
+			LOGGER.warn((methodURIs.size() - methods.size()) + " of " + methodURIs.size()
+					+ " changed methods could not be resolved and are skipped.");
+		}
+		return methods;
+	}
+
+	private static EObject resolve(Method renamedMethod, ResourceSet resourceSet, String uri) {
+		URI emfURI = URI.createURI(uri);
+		if (resourceSet != null) {
+			return resourceSet.getEObject(emfURI, false);
+		}
+		return renamedMethod.eResource().getEObject(emfURI.fragment());
+	}
+}
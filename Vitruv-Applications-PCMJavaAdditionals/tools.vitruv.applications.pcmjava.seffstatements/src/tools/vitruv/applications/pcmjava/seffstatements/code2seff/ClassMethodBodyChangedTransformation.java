@@ -53,6 +53,8 @@ public class ClassMethodBodyChangedTransformation {
 	
 	private SourceCodeDecoratorRepository sourceCodeDecorator;
 
+	private ResourceDemandingSEFF reconstructedBehaviour;
+
 	public ClassMethodBodyChangedTransformation(final Method newMethod,
 			final BasicComponentFinding basicComponentFinder,
 			final IFunctionClassificationStrategy iFunctionClassificationStrategy,
@@ -106,6 +108,63 @@ public class ClassMethodBodyChangedTransformation {
 		this.createNewCorrespondences(correspondenceModel, resourceDemandingBehaviour);
 	}
 
+	/**
+	 * First step of the batched processing of changed methods: runs the SoMoX SEFF
+	 * extractor for the method and stores the extracted SEFF elements in a detached
+	 * ResourceDemandingBehaviour. Neither the SEFFs nor the correspondence model are
+	 * modified so that the extraction for independent methods can run concurrently.
+	 * The extracted elements are inserted with {@link #apply(CorrespondenceModel, UserInteractor)}.
+	 * 
+	 * @param correspondenceModel the current correspondence model. It is only read.
+	 * @return true if the change is architecture relevant and the SEFF elements have been
+	 *         extracted. false otherwise.
+	 */
+	public boolean reconstruct(final CorrespondenceModel correspondenceModel) {
+		if (!this.isArchitectureRelevantChange(correspondenceModel)) {
+			LOGGER.debug("Change within the method: " + this.newMethod
+					+ " is not an architecture relevant change");
+			return false;
+		}
+		final BasicComponent basicComponent = this.basicComponentFinder.findBasicComponentForMethod(this.newMethod,
+				correspondenceModel);
+		this.reconstructedBehaviour = SeffFactory.eINSTANCE.createResourceDemandingSEFF();
+		this.executeSoMoXForMethod(basicComponent, this.reconstructedBehaviour);
+		return true;
+	}
+
+	/**
+	 * Second step of the batched processing of changed methods: replaces the SEFF
+	 * elements of the method with the elements extracted by
+	 * {@link #reconstruct(CorrespondenceModel)} and updates the correspondences as
+	 * described in {@link #execute(CorrespondenceModel, UserInteractor)}. It must
+	 * only be called if the extraction was successful and not concurrently with
+	 * other transformations.
+	 * 
+	 * @param correspondenceModel the current correspondence model.
+	 * @param userInteracting the user interactor.
+	 */
+	public void apply(final CorrespondenceModel correspondenceModel,
+			final UserInteractor userInteracting) {
+		// 1)
+		this.removeCorrespondingAbstractActions(correspondenceModel);
+
+		// 2)
+		final ResourceDemandingBehaviour resourceDemandingBehaviour = this
+				.findRdBehaviorToInsertElements(correspondenceModel);
+		resourceDemandingBehaviour.getSteps_Behaviour().addAll(this.reconstructedBehaviour.getSteps_Behaviour());
+		if (resourceDemandingBehaviour instanceof ResourceDemandingSEFF) {
+			((ResourceDemandingSEFF) resourceDemandingBehaviour).getResourceDemandingInternalBehaviours()
+				.addAll(this.reconstructedBehaviour.getResourceDemandingInternalBehaviours());
+		}
+		this.reconstructedBehaviour = null;
+
+		// 3)
+		this.connectCreatedResourceDemandingBehaviour(resourceDemandingBehaviour, correspondenceModel);
+
+		// 4)
+		this.createNewCorrespondences(correspondenceModel, resourceDemandingBehaviour);
+	}
+
 	/**
 	 * Checks whether the change is considered architecture relevant. This is
 	 * the case if either the new or the old method does have a corresponding
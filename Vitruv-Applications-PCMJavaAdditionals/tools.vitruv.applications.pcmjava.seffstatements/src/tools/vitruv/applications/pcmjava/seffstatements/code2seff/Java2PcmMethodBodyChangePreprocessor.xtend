@@ -16,6 +16,18 @@ import tools.vitruv.domains.java.JavaDomainProvider
 import tools.vitruv.framework.change.echange.feature.attribute.ReplaceSingleValuedEAttribute
 import org.emftext.language.java.commons.CommonsPackage
 import tools.vitruv.framework.domains.AbstractVitruvDomain
+import java.util.ArrayList
+import java.util.HashSet
+import java.util.List
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.ExecutorService
+import java.util.ArrayDeque
+import java.util.HashMap
+import java.util.Map
+import java.util.Set
+import org.eclipse.emf.ecore.EObject
 
 class Java2PcmMethodBodyChangePreprocessor extends AbstractChangePropagationSpecification {
 	val Code2SeffFactory code2SeffFactory;
@@ -33,10 +45,53 @@ class Java2PcmMethodBodyChangePreprocessor extends AbstractChangePropagationSpec
 		if (doesHandleChange(change, correspondenceModel)) {
 			val attrChange = change as ReplaceSingleValuedEAttribute<?, ?>;
 			val meth = attrChange.affectedEObject as Method;
-			executeClassMethodBodyChangeRefiner(correspondenceModel, userInteractor, meth);
+			propagateMethodBodyChanges(getChangedMethods(meth).toList, correspondenceModel)
 		}
 	}
 
+	/**
+	 * Reconstructs the SEFFs of the methods with changed bodies.
+	 * 
+	 * @param changedMethods the methods with changed bodies as returned by getChangedMethods.
+	 * @param correspondenceModel the correspondence model.
+	 */
+	protected def void propagateMethodBodyChanges(List<Method> changedMethods,
+		CorrespondenceModel correspondenceModel) {
+		val parallelism = reconstructionParallelism
+		if (parallelism > 1 && changedMethods.size > 1) {
+			executeBatchedClassMethodBodyChangeRefiner(correspondenceModel, userInteractor, changedMethods,
+				parallelism);
+		} else {
+			for (changedMethod : changedMethods) {
+				executeClassMethodBodyChangeRefiner(correspondenceModel, userInteractor, changedMethod);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of threads which reconstruct the SEFFs of several changed methods concurrently. The
+	 * finders are shared between the threads and the lookups in the correspondence model are serialized. Therefore,
+	 * the concurrent reconstruction is only safe if the finders and classification strategies of the
+	 * Code2SeffFactory do not modify any model and only keep state which is specific to one method in the
+	 * classification strategies.
+	 * 
+	 * @return the number of threads. If it is 1 or less, the methods are processed one after another.
+	 *         By default, 1.
+	 */
+	protected def int getReconstructionParallelism() {
+		return 1
+	}
+	
+	/**
+	 * Returns the methods whose bodies changed as signaled by the renaming of a method.
+	 * 
+	 * @param renamedMethod the renamed method.
+	 * @return the methods with changed bodies. By default, only the renamed method.
+	 */
+	protected def Iterable<Method> getChangedMethods(Method renamedMethod) {
+		return #[renamedMethod]
+	}
+
 	override doesHandleChange(EChange change, CorrespondenceModel correspondenceModel) {
 		if (!(change instanceof ReplaceSingleValuedEAttribute)) {
 			return false;
@@ -64,6 +119,141 @@ class Java2PcmMethodBodyChangePreprocessor extends AbstractChangePropagationSpec
 		methodBodyChanged.execute(correspondenceModel, userInteracting);
 	}
 	
+	/**
+	 * Processes several changed methods at once. The finders are created once for all methods and access the
+	 * correspondence model through a wrapper which serializes the lookups. As the lazy resolution of proxies is not
+	 * thread-safe, the proxies reachable from the changed methods are resolved upfront. The methods are split
+	 * into consecutive segments in which no method calls another method of the segment. The SEFF elements of the methods of a
+	 * segment are reconstructed concurrently without modifying the SEFFs or the correspondence model. Afterwards,
+	 * the SEFFs and correspondences are updated one method after another in the order of the changed methods.
+	 * Because applying a method only changes its own SEFF and the correspondences of its actions, which are only
+	 * read by the reconstruction of methods calling it, every method is reconstructed from the same state as in
+	 * the serial processing.
+	 */
+	private def void executeBatchedClassMethodBodyChangeRefiner(CorrespondenceModel correspondenceModel,
+		UserInteractor userInteracting, List<Method> changedMethods, int parallelism) {
+		val dependencies = resolveReachableProxies(changedMethods)
+		val synchronizedCorrespondenceModel = SynchronizedCorrespondenceModel.wrap(correspondenceModel)
+		val basicComponentFinding = code2SeffFactory.createBasicComponentFinding
+		val resourceDemandingBehaviourForClassMethodFinding = code2SeffFactory
+			.createResourceDemandingBehaviourForClassMethodFinding(synchronizedCorrespondenceModel)
+		val interfaceOfExternalCallFinderFactories = new HashMap<BasicComponent, InterfaceOfExternalCallFindingFactory>
+		val executor = Executors.newFixedThreadPool(Math.min(parallelism, changedMethods.size))
+		try {
+			val segment = new ArrayList<ClassMethodBodyChangedTransformation>
+			val segmentMethods = new ArrayList<Method>
+			for (newMethod : changedMethods) {
+				if (dependencies.get(newMethod).exists[segmentMethods.contains(it)]) {
+					reconstructAndApplySegment(executor, segment, segmentMethods, correspondenceModel,
+						synchronizedCorrespondenceModel, userInteracting)
+					segment.clear
+					segmentMethods.clear
+				}
+				val BasicComponent myBasicComponent = basicComponentFinding.findBasicComponentForMethod(newMethod,
+					correspondenceModel)
+				val classification = code2SeffFactory.createAbstractFunctionClassificationStrategy(
+					basicComponentFinding, synchronizedCorrespondenceModel, myBasicComponent)
+				val interfaceOfExternalCallFinderFactory = interfaceOfExternalCallFinderFactories.computeIfAbsent(
+					myBasicComponent, [
+						code2SeffFactory.createInterfaceOfExternalCallFindingFactory(synchronizedCorrespondenceModel,
+							it)
+					])
+				segment += createTransformation(newMethod, basicComponentFinding, classification,
+					interfaceOfExternalCallFinderFactory, resourceDemandingBehaviourForClassMethodFinding)
+				segmentMethods += newMethod
+			}
+			reconstructAndApplySegment(executor, segment, segmentMethods, correspondenceModel,
+				synchronizedCorrespondenceModel, userInteracting)
+		} finally {
+			executor.shutdownNow
+		}
+	}
+
+	/**
+	 * Resolves the proxies of the changed methods and of all elements which are reachable from them by
+	 * containment or cross references. Only these elements are accessed by the reconstruction of the methods.
+	 * 
+	 * @param changedMethods the methods with changed bodies.
+	 * @return for every changed method, the other changed methods which it calls directly or indirectly.
+	 */
+	private def Map<Method, Set<Method>> resolveReachableProxies(List<Method> changedMethods) {
+		val calledMethods = new HashMap<Method, Set<Method>>
+		val visited = new HashSet<EObject>
+		val worklist = new ArrayDeque<EObject>(changedMethods)
+		while (!worklist.empty) {
+			val element = worklist.poll
+			if (visited.add(element)) {
+				if (element instanceof Method) {
+					val called = new HashSet<Method>
+					val contents = element.eAllContents
+					while (contents.hasNext) {
+						val content = contents.next
+						visited += content
+						for (reference : content.eCrossReferences) {
+							worklist += reference
+							if (reference instanceof Method) {
+								called += reference
+							}
+						}
+					}
+					calledMethods.put(element, called)
+				} else {
+					worklist.addAll(element.eContents)
+				}
+				worklist.addAll(element.eCrossReferences)
+			}
+		}
+		val batch = new HashSet<Method>(changedMethods)
+		val dependencies = new HashMap<Method, Set<Method>>
+		for (newMethod : changedMethods) {
+			val reached = new HashSet<Method>
+			val pending = new ArrayDeque<Method>(calledMethods.get(newMethod))
+			while (!pending.empty) {
+				val method = pending.poll
+				if (method !== newMethod && reached.add(method)) {
+					pending.addAll(calledMethods.getOrDefault(method, emptySet))
+				}
+			}
+			reached.retainAll(batch)
+			dependencies.put(newMethod, reached)
+		}
+		return dependencies
+	}
+
+	/**
+	 * Reconstructs the SEFF elements of the transformations concurrently and applies them in their order. The
+	 * methods of the segment correspond to the transformations.
+	 */
+	private def void reconstructAndApplySegment(ExecutorService executor,
+		List<ClassMethodBodyChangedTransformation> segment, List<Method> segmentMethods,
+		CorrespondenceModel correspondenceModel, CorrespondenceModel synchronizedCorrespondenceModel,
+		UserInteractor userInteracting) {
+		if (segment.empty) {
+			return
+		}
+		val tasks = segment.map [ transformation |
+			[transformation.reconstruct(synchronizedCorrespondenceModel)] as Callable<Boolean>
+		].toList
+		try {
+			val results = executor.invokeAll(tasks)
+			for (idx : 0 ..< segment.size) {
+				var Boolean reconstructed
+				try {
+					reconstructed = results.get(idx).get
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("The SEFF reconstruction failed for the method "
+						+ segmentMethods.get(idx), e.cause)
+				}
+				if (reconstructed) {
+					segment.get(idx).apply(correspondenceModel, userInteracting)
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread.interrupt
+			throw new IllegalStateException("The SEFF reconstruction was interrupted.", e)
+		}
+	}
+
 	protected def ClassMethodBodyChangedTransformation createTransformation(Method newMethod,
 		BasicComponentFinding basicComponentFinding, AbstractFunctionClassificationStrategy classification,
 		InterfaceOfExternalCallFindingFactory interfaceOfExternalCallFinderFactory,
@@ -0,0 +1,40 @@
+package tools.vitruv.applications.pcmjava.seffstatements.code2seff;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+import tools.vitruv.framework.correspondence.CorrespondenceModel;
+
+/**
+ * Serializes the accesses to a correspondence model. The implementations of the
+ * correspondence model are not thread-safe, not even for lookups, because they
+ * may build their indices lazily. Therefore, concurrent SEFF reconstructions
+ * access the correspondence model through this wrapper.
+ *
+ * @author Martin Armbruster
+ */
+final class SynchronizedCorrespondenceModel {
+	private SynchronizedCorrespondenceModel() {
+	}
+
+	/**
+	 * Wraps a correspondence model so that all of its methods are executed one
+	 * after another.
+	 *
+	 * @param correspondenceModel the correspondence model to wrap.
+	 * @return the wrapping correspondence model. All calls are synchronized on the
+	 *         wrapped correspondence model.
+	 */
+	static CorrespondenceModel wrap(final CorrespondenceModel correspondenceModel) {
+		return (CorrespondenceModel) Proxy.newProxyInstance(CorrespondenceModel.class.getClassLoader(),
+				new Class<?>[] { CorrespondenceModel.class }, (proxy, method, args) -> {
+					synchronized (correspondenceModel) {
+						try {
+							return method.invoke(correspondenceModel, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+}
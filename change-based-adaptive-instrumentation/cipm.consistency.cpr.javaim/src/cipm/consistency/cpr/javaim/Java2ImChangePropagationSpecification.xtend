@@ -1,17 +1,17 @@
 package cipm.consistency.cpr.javaim
 
 import org.emftext.language.java.members.Method
+import java.util.List
 import tools.vitruv.framework.correspondence.CorrespondenceModel
 import tools.vitruv.framework.userinteraction.UserInteractor
-import tools.vitruv.framework.change.echange.EChange
-import tools.vitruv.framework.propagation.ResourceAccess
 import tools.vitruv.framework.correspondence.CorrespondenceModelUtil
 import org.palladiosimulator.pcm.seff.ResourceDemandingSEFF
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModel
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModelPackage
-import tools.vitruv.framework.change.echange.feature.attribute.ReplaceSingleValuedEAttribute
 import cipm.consistency.models.instrumentation.InstrumentationModelUtil
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.extended.ExtendedJava2PcmMethodBodyChangePreprocessor
+import cipm.consistency.cpr.pcmim.InstrumentationPointIndex
+import cipm.consistency.tools.evaluation.data.SpanRecorder
 
 /**
  * Propagates changes in method bodies to the extended instrumentation model.
@@ -25,12 +25,13 @@ class Java2ImChangePropagationSpecification extends ExtendedJava2PcmMethodBodyCh
 // no actions for which instrumentation points can be generated. As a result, to ensure that the temporal constraint is
 // met, the propagation rules for Java->IM extend the rules for Java->PCM and are executed after them.
 	
-	override propagateChange(EChange change, CorrespondenceModel correspondenceModel, ResourceAccess resourceAccess) {
-		super.propagateChange(change, correspondenceModel, resourceAccess)
-		if (super.doesHandleChange(change, correspondenceModel)) {
-			val attrChange = change as ReplaceSingleValuedEAttribute<?, ?>;
-			val meth = attrChange.affectedEObject as Method;
-			executeJava2ImTransformation(correspondenceModel, userInteractor, meth)
+	protected override void propagateMethodBodyChanges(List<Method> changedMethods,
+		CorrespondenceModel correspondenceModel) {
+		super.propagateMethodBodyChanges(changedMethods, correspondenceModel)
+		try (val span = SpanRecorder.start("imUpdate")) {
+			for (changedMethod : changedMethods) {
+				executeJava2ImTransformation(correspondenceModel, userInteractor, changedMethod)
+			}
 		}
 	}
 	
@@ -44,7 +45,7 @@ class Java2ImChangePropagationSpecification extends ExtendedJava2PcmMethodBodyCh
 		
 		if (!correspondingSEFFs.empty) {
 			val seff = correspondingSEFFs.last
-			var sip = im.points.filter[it.service == seff].last
+			var sip = InstrumentationPointIndex.getIndex(im).getServiceInstrumentationPoint(seff)
 			if (sip !== null) {
 				sip.actionInstrumentationPoints.clear
 				InstrumentationModelUtil.recursiveBuildImm(seff, sip)
@@ -0,0 +1,296 @@
+package cipm.consistency.cpr.pcmim;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.palladiosimulator.pcm.seff.AbstractAction;
+import org.palladiosimulator.pcm.seff.ResourceDemandingSEFF;
+
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.ActionInstrumentationPoint;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModel;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModelPackage;
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.ServiceInstrumentationPoint;
+
+/**
+ * An index for the instrumentation points of an extended IM. It maps the SEFFs to their
+ * ServiceInstrumentationPoints and the actions to their ActionInstrumentationPoints. Moreover, it
+ * keeps track of the instrumentation points whose SEFF or action is missing, an unresolvable proxy, or
+ * removed from the PCM. The index is attached as adapter to the IM and is updated by the notifications of
+ * the IM. As the removal of a SEFF or action from the PCM does not notify the IM, the indexed SEFFs and
+ * actions are validated again when they are looked up and when the orphaned points are requested.
+ *
+ * @author Martin Armbruster
+ */
+public final class InstrumentationPointIndex extends EContentAdapter {
+	private final Map<ResourceDemandingSEFF, ServiceInstrumentationPoint> servicePoints = new IdentityHashMap<>();
+	private final Map<AbstractAction, ActionInstrumentationPoint> actionPoints = new IdentityHashMap<>();
+	private final Set<ServiceInstrumentationPoint> orphanedServicePoints =
+			Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Set<ActionInstrumentationPoint> orphanedActionPoints =
+			Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private InstrumentationPointIndex() {
+	}
+
+	/**
+	 * Returns the index for an IM. If the IM has no index, it is created and attached to the IM.
+	 *
+	 * @param im the IM.
+	 * @return the index.
+	 */
+	public static InstrumentationPointIndex getIndex(InstrumentationModel im) {
+		for (Adapter adapter : im.eAdapters()) {
+			if (adapter instanceof InstrumentationPointIndex) {
+				return (InstrumentationPointIndex) adapter;
+			}
+		}
+		InstrumentationPointIndex index = new InstrumentationPointIndex();
+		for (ServiceInstrumentationPoint sip : im.getPoints()) {
+			index.addServicePoint(sip);
+		}
+		im.eAdapters().add(index);
+		return index;
+	}
+
+	/**
+	 * Returns the ServiceInstrumentationPoint for a SEFF.
+	 *
+	 * @param seff the SEFF.
+	 * @return the ServiceInstrumentationPoint or null if there is none or the SEFF was removed from the PCM.
+	 */
+	public ServiceInstrumentationPoint getServiceInstrumentationPoint(ResourceDemandingSEFF seff) {
+		ServiceInstrumentationPoint sip = servicePoints.get(seff);
+		if (sip != null && isMissing(seff)) {
+			this.reindexServicePoint(sip);
+			return null;
+		} else if (sip == null && !isMissing(seff)) {
+			// The SEFF may have been added to the PCM after its point was indexed.
+			for (ServiceInstrumentationPoint orphan : List.copyOf(orphanedServicePoints)) {
+				if (orphan.getService() == seff) {
+					this.reindexServicePoint(orphan);
+					return orphan;
+				}
+			}
+		}
+		return sip;
+	}
+
+	/**
+	 * Returns the ServiceInstrumentationPoint for a SEFF which was removed from the PCM. In contrast to
+	 * {@link #getServiceInstrumentationPoint(ResourceDemandingSEFF)}, the SEFF is not validated.
+	 *
+	 * @param seff the removed SEFF.
+	 * @return the ServiceInstrumentationPoint or null if there is none.
+	 */
+	public ServiceInstrumentationPoint getServiceInstrumentationPointOfRemovedSEFF(ResourceDemandingSEFF seff) {
+		ServiceInstrumentationPoint sip = servicePoints.get(seff);
+		if (sip == null) {
+			// The point may have been marked as orphaned by an earlier lookup.
+			for (ServiceInstrumentationPoint orphan : orphanedServicePoints) {
+				if (orphan.getService() == seff) {
+					return orphan;
+				}
+			}
+		}
+		return sip;
+	}
+
+	/**
+	 * Returns the ActionInstrumentationPoint for an action.
+	 *
+	 * @param action the action.
+	 * @return the ActionInstrumentationPoint or null if there is none or the action was removed from the PCM.
+	 */
+	public ActionInstrumentationPoint getActionInstrumentationPoint(AbstractAction action) {
+		ActionInstrumentationPoint aip = actionPoints.get(action);
+		if (aip != null && isMissing(action)) {
+			this.reindexActionPoint(aip);
+			return null;
+		} else if (aip == null && !isMissing(action)) {
+			// The action may have been added to the PCM after its point was indexed.
+			for (ActionInstrumentationPoint orphan : List.copyOf(orphanedActionPoints)) {
+				if (orphan.getAction() == action) {
+					this.reindexActionPoint(orphan);
+					return orphan;
+				}
+			}
+		}
+		return aip;
+	}
+
+	/**
+	 * Returns the ServiceInstrumentationPoints whose SEFF is missing, an unresolvable proxy, or removed from
+	 * the PCM.
+	 *
+	 * @return a copy of the ServiceInstrumentationPoints.
+	 */
+	public Set<ServiceInstrumentationPoint> getOrphanedServiceInstrumentationPoints() {
+		for (ServiceInstrumentationPoint sip : List.copyOf(servicePoints.values())) {
+			if (isMissing(sip.getService())) {
+				this.reindexServicePoint(sip);
+			}
+		}
+		Set<ServiceInstrumentationPoint> result = Collections.newSetFromMap(new IdentityHashMap<>());
+		result.addAll(orphanedServicePoints);
+		return result;
+	}
+
+	/**
+	 * Returns the ActionInstrumentationPoints of a ServiceInstrumentationPoint whose action is missing, an
+	 * unresolvable proxy, or removed from the PCM.
+	 *
+	 * @param sip the ServiceInstrumentationPoint containing the ActionInstrumentationPoints.
+	 * @return a copy of the ActionInstrumentationPoints.
+	 */
+	public Set<ActionInstrumentationPoint> getOrphanedActionInstrumentationPoints(ServiceInstrumentationPoint sip) {
+		for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
+			if (!orphanedActionPoints.contains(aip) && isMissing(aip.getAction())) {
+				this.reindexActionPoint(aip);
+			}
+		}
+		Set<ActionInstrumentationPoint> result = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (ActionInstrumentationPoint aip : orphanedActionPoints) {
+			if (aip.eContainer() == sip) {
+				result.add(aip);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+		Object feature = notification.getFeature();
+		if (feature == InstrumentationModelPackage.Literals.INSTRUMENTATION_MODEL__POINTS) {
+			this.updateContainment(notification, ServiceInstrumentationPoint.class);
+		} else if (feature
+				== InstrumentationModelPackage.Literals.SERVICE_INSTRUMENTATION_POINT__ACTION_INSTRUMENTATION_POINTS) {
+			this.updateContainment(notification, ActionInstrumentationPoint.class);
+		} else if (feature == InstrumentationModelPackage.Literals.SERVICE_INSTRUMENTATION_POINT__SERVICE) {
+			ServiceInstrumentationPoint sip = (ServiceInstrumentationPoint) notification.getNotifier();
+			this.removeServicePoint(sip, notification.getOldValue());
+			this.indexServicePoint(sip);
+		} else if (feature == InstrumentationModelPackage.Literals.ACTION_INSTRUMENTATION_POINT__ACTION) {
+			ActionInstrumentationPoint aip = (ActionInstrumentationPoint) notification.getNotifier();
+			this.removeActionPoint(aip, notification.getOldValue());
+			this.indexActionPoint(aip);
+		}
+	}
+
+	private void updateContainment(Notification notification, Class<? extends EObject> type) {
+		switch (notification.getEventType()) {
+			case Notification.ADD:
+			case Notification.ADD_MANY:
+			case Notification.SET:
+			case Notification.REMOVE:
+			case Notification.REMOVE_MANY:
+			case Notification.UNSET:
+				for (EObject removed : this.values(notification.getOldValue(), type)) {
+					this.remove(removed);
+				}
+				for (EObject added : this.values(notification.getNewValue(), type)) {
+					this.add(added);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<EObject> values(Object value, Class<? extends EObject> type) {
+		if (value instanceof Collection<?>) {
+			return List.copyOf((Collection<EObject>) value);
+		} else if (type.isInstance(value)) {
+			return List.of((EObject) value);
+		}
+		return List.of();
+	}
+
+	private void add(EObject point) {
+		if (point instanceof ServiceInstrumentationPoint) {
+			this.addServicePoint((ServiceInstrumentationPoint) point);
+		} else {
+			this.indexActionPoint((ActionInstrumentationPoint) point);
+		}
+	}
+
+	private void remove(EObject point) {
+		if (point instanceof ServiceInstrumentationPoint) {
+			ServiceInstrumentationPoint sip = (ServiceInstrumentationPoint) point;
+			this.removeServicePoint(sip, sip.getService());
+			for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
+				this.removeActionPoint(aip, aip.getAction());
+			}
+		} else {
+			ActionInstrumentationPoint aip = (ActionInstrumentationPoint) point;
+			this.removeActionPoint(aip, aip.getAction());
+		}
+	}
+
+	private void addServicePoint(ServiceInstrumentationPoint sip) {
+		this.indexServicePoint(sip);
+		for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
+			this.indexActionPoint(aip);
+		}
+	}
+
+	private void reindexServicePoint(ServiceInstrumentationPoint sip) {
+		this.removeServicePoint(sip, sip.getService());
+		this.indexServicePoint(sip);
+	}
+
+	private void indexServicePoint(ServiceInstrumentationPoint sip) {
+		ResourceDemandingSEFF seff = sip.getService();
+		if (isMissing(seff)) {
+			orphanedServicePoints.add(sip);
+		} else {
+			orphanedServicePoints.remove(sip);
+			servicePoints.put(seff, sip);
+		}
+	}
+
+	private void removeServicePoint(ServiceInstrumentationPoint sip, Object seff) {
+		orphanedServicePoints.remove(sip);
+		if (seff != null && servicePoints.get(seff) == sip) {
+			servicePoints.remove(seff);
+		}
+	}
+
+	private void reindexActionPoint(ActionInstrumentationPoint aip) {
+		this.removeActionPoint(aip, aip.getAction());
+		this.indexActionPoint(aip);
+	}
+
+	private void indexActionPoint(ActionInstrumentationPoint aip) {
+		AbstractAction action = aip.getAction();
+		if (isMissing(action)) {
+			orphanedActionPoints.add(aip);
+		} else {
+			orphanedActionPoints.remove(aip);
+			actionPoints.put(action, aip);
+		}
+	}
+
+	private void removeActionPoint(ActionInstrumentationPoint aip, Object action) {
+		orphanedActionPoints.remove(aip);
+		if (action != null && actionPoints.get(action) == aip) {
+			actionPoints.remove(action);
+		}
+	}
+
+	/**
+	 * Checks if a SEFF or action is missing, an unresolvable proxy, or removed from the PCM.
+	 */
+	private static boolean isMissing(EObject element) {
+		return element == null || element.eIsProxy() || element.eResource() == null;
+	}
+}
@@ -0,0 +1,150 @@
+package cipm.consistency.bridge.monitoring.controller;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A microbenchmark for the cost of the probes of the ring buffer monitoring runtime. For every probe, it
+ * measures the time and the allocated bytes per call in comparison to an empty loop. The probes are called
+ * by several threads concurrently while the records are drained in the background.
+ *
+ * <p>Usage: ProbeCostBenchmark [threads] [calls per thread and round] [rounds]. The first half of the rounds
+ * is a warm-up. The system property cipm.monitoring.output should be set to "none" so that the benchmark
+ * does not measure the file system.
+ *
+ * @author Martin Armbruster
+ */
+public final class ProbeCostBenchmark {
+	private static final int PARAMETER_OFFSET = 1_000;
+	private static volatile long sink;
+
+	private ProbeCostBenchmark() {
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0])
+				: Runtime.getRuntime().availableProcessors();
+		int calls = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		List<Probe> probes = new ArrayList<>();
+		probes.add(new Probe("baseline (empty loop)", i -> sink = i));
+		// The parameter values are outside of the cache of Integer.valueOf so that boxing allocates.
+		probes.add(new Probe("enterService+exitService", i -> {
+			ThreadMonitoringController controller = ThreadMonitoringController.getInstance();
+			ServiceParameters parameters = new ServiceParameters();
+			parameters.addValue("count", PARAMETER_OFFSET + i);
+			controller.enterService("_service", ProbeCostBenchmark.class, parameters);
+			controller.exitService("_service");
+		}));
+		probes.add(new Probe("enterService+exitService (boxed)", i -> {
+			ThreadMonitoringController controller = ThreadMonitoringController.getInstance();
+			ServiceParameters parameters = new ServiceParameters();
+			parameters.addValue("count", (Object) (PARAMETER_OFFSET + i));
+			controller.enterService("_service", ProbeCostBenchmark.class, parameters);
+			controller.exitService("_service");
+		}));
+		probes.add(new Probe("enterInternalAction+exitInternalAction", i -> {
+			ThreadMonitoringController controller = ThreadMonitoringController.getInstance();
+			controller.enterInternalAction("_internal", "_cpu");
+			controller.exitInternalAction("_internal", "_cpu");
+		}));
+		probes.add(new Probe("enterBranch", i -> ThreadMonitoringController.getInstance().enterBranch("_branch")));
+		probes.add(new Probe("exitLoop", i -> ThreadMonitoringController.getInstance().exitLoop("_loop", i)));
+		probes.add(new Probe("setExternalCallId",
+				i -> ThreadMonitoringController.getInstance().setExternalCallId("_call")));
+		probes.add(new Probe("request with 4 actions", i -> request(ThreadMonitoringController.getInstance())));
+		probes.add(new Probe("request with 4 actions, 1 in 100 sampled",
+				i -> request(ThreadMonitoringController.getSampledInstance("_service", 100, 0))));
+
+		System.out.println("threads=" + threads + " calls=" + calls + " rounds=" + rounds);
+		for (Probe probe : probes) {
+			double[] result = null;
+			for (int round = 0; round < rounds; round++) {
+				double[] current = run(probe, threads, calls);
+				if (round >= rounds / 2 && (result == null || current[0] < result[0])) {
+					result = current;
+				}
+			}
+			System.out.printf("%-40s %8.1f ns/call %8.1f bytes/call%n", probe.name, result[0], result[1]);
+		}
+		ThreadMonitoringController.flush();
+	}
+
+	// Simulates the probes of an instrumented service with an internal action, a branch and a loop.
+	private static void request(ThreadMonitoringController controller) {
+		ServiceParameters parameters = new ServiceParameters();
+		parameters.addValue("count", 4);
+		controller.enterService("_service", ProbeCostBenchmark.class, parameters);
+		try {
+			controller.enterInternalAction("_internal", "_cpu");
+			controller.exitInternalAction("_internal", "_cpu");
+			controller.enterBranch("_branch");
+			controller.exitLoop("_loop", 4);
+		} finally {
+			controller.exitService("_service");
+		}
+	}
+
+	// Returns the nanoseconds and allocated bytes per call averaged over all threads.
+	private static double[] run(Probe probe, int threads, int calls) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		long[] nanos = new long[threads];
+		long[] bytes = new long[threads];
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int index = t;
+			Thread worker = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				long allocatedBefore = allocatedBytes();
+				long before = System.nanoTime();
+				for (int i = 0; i < calls; i++) {
+					probe.body.call(i);
+				}
+				nanos[index] = System.nanoTime() - before;
+				bytes[index] = allocatedBytes() - allocatedBefore;
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		long totalNanos = 0;
+		long totalBytes = 0;
+		for (int t = 0; t < threads; t++) {
+			totalNanos += nanos[t];
+			totalBytes += bytes[t];
+		}
+		double totalCalls = (double) threads * calls;
+		return new double[] {totalNanos / totalCalls, totalBytes / totalCalls};
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private interface ProbeBody {
+		void call(int iteration);
+	}
+
+	private static final class Probe {
+		private final String name;
+		private final ProbeBody body;
+
+		Probe(String name, ProbeBody body) {
+			this.name = name;
+			this.body = body;
+		}
+	}
+}
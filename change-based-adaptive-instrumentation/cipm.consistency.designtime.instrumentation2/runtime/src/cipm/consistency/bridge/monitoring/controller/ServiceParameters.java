@@ -0,0 +1,32 @@
+package cipm.consistency.bridge.monitoring.controller;
+
+/**
+ * The parameters of a service call. Because the parameters are added before the service is entered, every
+ * value is recorded directly by the {@link ThreadMonitoringController} of the current thread. As a result,
+ * instances of this class have no state. Values of primitive types are added with the overloads for their
+ * type so that they are not boxed. They are reduced in the same way as their boxed values.
+ *
+ * @author Martin Armbruster
+ */
+public final class ServiceParameters {
+	public void addValue(String name, Object value) {
+		ThreadMonitoringController.recordParameter(name, value);
+	}
+
+	public void addValue(String name, long value) {
+		ThreadMonitoringController.recordParameter(name, value);
+	}
+
+	public void addValue(String name, double value) {
+		ThreadMonitoringController.recordParameter(name, (long) value);
+	}
+
+	public void addValue(String name, boolean value) {
+		ThreadMonitoringController.recordParameter(name, value ? 1 : 0);
+	}
+
+	public void addValue(String name, char value) {
+		// A boxed character is neither a number nor a character sequence.
+		ThreadMonitoringController.recordParameter(name, 1);
+	}
+}
@@ -0,0 +1,389 @@
+package cipm.consistency.bridge.monitoring.controller;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A monitoring controller which records the probes of the instrumented code into per-thread ring buffers.
+ * Every probe writes one record of three longs into the ring buffer of its thread. The identifiers of the
+ * probes are mapped to integers so that a record does not reference any object. A background thread
+ * periodically drains the ring buffers and writes the records into a file. If a ring buffer is full, the
+ * records are dropped and counted instead of blocking the instrumented thread.
+ *
+ * <p>The controller is configured with the following system properties:
+ * <ul>
+ * <li>cipm.monitoring.output: the file for the records. If it is "none", the records are discarded.</li>
+ * <li>cipm.monitoring.buffer.records: the capacity of a ring buffer in records. It is rounded up to a
+ *     power of two.</li>
+ * <li>cipm.monitoring.flush.interval: the time in milliseconds between two drains of the ring buffers.</li>
+ * </ul>
+ *
+ * <p>The written file contains one entry per line. "I;id;name" declares an identifier. "R;thread;kind;id;id2;
+ * time;value" is a record with its time in nanoseconds. "D;thread;count" is the total number of dropped records
+ * of a thread.
+ *
+ * <p>A sampled service obtains its controller with {@link #getSampledInstance(String, int, long)}. If the call
+ * is not sampled, the returned controller skips the probes of the call and of all nested service calls.
+ *
+ * @author Martin Armbruster
+ */
+public final class ThreadMonitoringController {
+	static final int SERVICE_ENTER = 1;
+	static final int SERVICE_EXIT = 2;
+	static final int INTERNAL_ACTION_ENTER = 3;
+	static final int INTERNAL_ACTION_EXIT = 4;
+	static final int EXTERNAL_CALL = 5;
+	static final int BRANCH = 6;
+	static final int LOOP_EXIT = 7;
+	static final int PARAMETER = 8;
+	private static final int RECORD_SIZE = 3;
+	private static final int ID_BITS = 28;
+	private static final long ID_MASK = (1L << ID_BITS) - 1;
+	private static final long NO_VALUE = -1;
+	private static final int CAPACITY = Integer.highestOneBit(
+			Math.max(2, Integer.getInteger("cipm.monitoring.buffer.records", 1 << 14)) - 1) << 1;
+	private static final long FLUSH_INTERVAL = Long.getLong("cipm.monitoring.flush.interval", 100L);
+	private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+	private static final List<String> ID_NAMES = new CopyOnWriteArrayList<>();
+	private static final Map<String, AtomicLong> NEXT_SAMPLING_TIMES = new ConcurrentHashMap<>();
+	private static final List<RingBuffer> BUFFERS = new CopyOnWriteArrayList<>();
+	private static final ThreadLocal<RingBuffer> LOCAL_BUFFER = new ThreadLocal<RingBuffer>() {
+		@Override
+		protected RingBuffer initialValue() {
+			RingBuffer buffer = new RingBuffer(Thread.currentThread(), CAPACITY);
+			BUFFERS.add(buffer);
+			return buffer;
+		}
+	};
+	private static final Writer OUTPUT = createOutput(System.getProperty("cipm.monitoring.output",
+			"cipm-monitoring-" + System.currentTimeMillis() + ".csv"));
+	private static final ThreadMonitoringController INSTANCE = new ThreadMonitoringController(true);
+	private static final ThreadMonitoringController UNSAMPLED_INSTANCE = new ThreadMonitoringController(false);
+	private static int writtenIds;
+	/**
+	 * False for the controller of calls which are not sampled. Its probes only keep track of the
+	 * service calls.
+	 */
+	private final boolean sampled;
+
+	static {
+		ID_NAMES.add("");
+		IDS.put("", 0);
+		Thread flusher = new Thread(ThreadMonitoringController::flushPeriodically, "cipm-monitoring-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(ThreadMonitoringController::close,
+				"cipm-monitoring-shutdown"));
+	}
+
+	private ThreadMonitoringController(boolean sampled) {
+		this.sampled = sampled;
+	}
+
+	private static Writer createOutput(String file) {
+		if ("none".equals(file)) {
+			return null;
+		}
+		try {
+			return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			System.err.println("The monitoring records cannot be written into " + file + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the controller for a service which is monitored without sampling. Within a call which is not
+	 * sampled, the returned controller skips all probes.
+	 */
+	public static ThreadMonitoringController getInstance() {
+		RingBuffer buffer = LOCAL_BUFFER.get();
+		if (buffer.serviceDepth == 0) {
+			buffer.sampled = true;
+		}
+		return buffer.sampled ? INSTANCE : UNSAMPLED_INSTANCE;
+	}
+
+	/**
+	 * Returns the controller for a service which is sampled. Within another service call, the decision of
+	 * the outermost service call is kept. Otherwise, one of oneInN calls is sampled on average, and at most
+	 * one call is sampled per interval.
+	 */
+	public static ThreadMonitoringController getSampledInstance(String serviceId, int oneInN,
+			long intervalMillis) {
+		RingBuffer buffer = LOCAL_BUFFER.get();
+		if (buffer.serviceDepth == 0) {
+			buffer.sampled = (oneInN <= 1 || ThreadLocalRandom.current().nextInt(oneInN) == 0)
+					&& (intervalMillis <= 0 || isSamplingDue(serviceId, intervalMillis));
+		}
+		return buffer.sampled ? INSTANCE : UNSAMPLED_INSTANCE;
+	}
+
+	private static boolean isSamplingDue(String serviceId, long intervalMillis) {
+		AtomicLong next = NEXT_SAMPLING_TIMES.get(serviceId);
+		if (next == null) {
+			// System.nanoTime() can be negative. Therefore, the first call is due from now on instead of 0.
+			next = NEXT_SAMPLING_TIMES.computeIfAbsent(serviceId, k -> new AtomicLong(System.nanoTime()));
+		}
+		long now = System.nanoTime();
+		long due = next.get();
+		return now - due >= 0 && next.compareAndSet(due, now + intervalMillis * 1_000_000L);
+	}
+
+	public void enterService(String serviceId, Object caller, ServiceParameters parameters) {
+		RingBuffer buffer = LOCAL_BUFFER.get();
+		if (buffer.serviceDepth++ == 0) {
+			buffer.sampled = sampled;
+		}
+		if (sampled) {
+			buffer.record(SERVICE_ENTER, serviceId, null, System.identityHashCode(caller));
+		}
+	}
+
+	public void exitService(String serviceId) {
+		RingBuffer buffer = LOCAL_BUFFER.get();
+		buffer.serviceDepth--;
+		if (sampled) {
+			buffer.record(SERVICE_EXIT, serviceId, null, NO_VALUE);
+		}
+	}
+
+	public void enterInternalAction(String actionId, String resourceId) {
+		if (sampled) {
+			LOCAL_BUFFER.get().record(INTERNAL_ACTION_ENTER, actionId, resourceId, NO_VALUE);
+		}
+	}
+
+	public void exitInternalAction(String actionId, String resourceId) {
+		if (sampled) {
+			LOCAL_BUFFER.get().record(INTERNAL_ACTION_EXIT, actionId, resourceId, NO_VALUE);
+		}
+	}
+
+	public void setExternalCallId(String callId) {
+		if (sampled) {
+			LOCAL_BUFFER.get().record(EXTERNAL_CALL, callId, null, NO_VALUE);
+		}
+	}
+
+	public void enterBranch(String branchId) {
+		if (sampled) {
+			LOCAL_BUFFER.get().record(BRANCH, branchId, null, NO_VALUE);
+		}
+	}
+
+	public void exitLoop(String loopId, long iterations) {
+		if (sampled) {
+			LOCAL_BUFFER.get().record(LOOP_EXIT, loopId, null, iterations);
+		}
+	}
+
+	/**
+	 * Records a parameter value of the service which is entered next by the current thread. The value is
+	 * reduced to a number: numbers are recorded as they are, booleans as 0 or 1, character sequences,
+	 * collections, maps and arrays with their size, null as -1, and all other objects as 1. Because the
+	 * sampling decision is made before, the value is only recorded within a sampled call.
+	 */
+	static void recordParameter(String name, Object value) {
+		RingBuffer buffer = LOCAL_BUFFER.get();
+		if (buffer.sampled) {
+			buffer.record(PARAMETER, name, null, reduce(value));
+		}
+	}
+
+	/**
+	 * Records a parameter value which is already reduced to a number. In contrast to
+	 * {@link #recordParameter(String, Object)}, primitive values are not boxed.
+	 */
+	static void recordParameter(String name, long value) {
+		RingBuffer buffer = LOCAL_BUFFER.get();
+		if (buffer.sampled) {
+			buffer.record(PARAMETER, name, null, value);
+		}
+	}
+
+	private static long reduce(Object value) {
+		if (value == null) {
+			return -1;
+		} else if (value instanceof Number) {
+			return ((Number) value).longValue();
+		} else if (value instanceof Boolean) {
+			return ((Boolean) value) ? 1 : 0;
+		} else if (value instanceof CharSequence) {
+			return ((CharSequence) value).length();
+		} else if (value instanceof Collection) {
+			return ((Collection<?>) value).size();
+		} else if (value instanceof Map) {
+			return ((Map<?, ?>) value).size();
+		} else if (value.getClass().isArray()) {
+			return Array.getLength(value);
+		}
+		return 1;
+	}
+
+	private static int idOf(String name) {
+		if (name == null) {
+			return 0;
+		}
+		Integer id = IDS.get(name);
+		return id != null ? id : registerId(name);
+	}
+
+	private static synchronized int registerId(String name) {
+		Integer id = IDS.get(name);
+		if (id == null) {
+			id = ID_NAMES.size();
+			ID_NAMES.add(name);
+			IDS.put(name, id);
+		}
+		return id;
+	}
+
+	private static void flushPeriodically() {
+		while (true) {
+			try {
+				Thread.sleep(FLUSH_INTERVAL);
+			} catch (InterruptedException e) {
+				return;
+			}
+			flush();
+		}
+	}
+
+	/**
+	 * Drains all ring buffers. Ring buffers of terminated threads are removed after they are drained.
+	 */
+	static synchronized void flush() {
+		try {
+			for (; writtenIds < ID_NAMES.size(); writtenIds++) {
+				write("I;" + writtenIds + ";" + ID_NAMES.get(writtenIds));
+			}
+			List<RingBuffer> terminated = new ArrayList<>();
+			for (RingBuffer buffer : BUFFERS) {
+				buffer.drain();
+				Thread thread = buffer.thread.get();
+				if (thread == null || !thread.isAlive()) {
+					buffer.drain();
+					terminated.add(buffer);
+				}
+			}
+			BUFFERS.removeAll(terminated);
+			if (OUTPUT != null) {
+				OUTPUT.flush();
+			}
+		} catch (IOException e) {
+			System.err.println("The monitoring records cannot be written: " + e);
+		}
+	}
+
+	private static void write(String line) throws IOException {
+		if (OUTPUT != null) {
+			OUTPUT.write(line);
+			OUTPUT.write('\n');
+		}
+	}
+
+	private static void writeRecord(long threadId, long header, long time, long value) throws IOException {
+		if (OUTPUT != null) {
+			long kind = header >>> (2 * ID_BITS);
+			long id = (header >>> ID_BITS) & ID_MASK;
+			long secondId = header & ID_MASK;
+			write("R;" + threadId + ";" + kind + ";" + id + ";" + secondId + ";" + time + ";" + value);
+		}
+	}
+
+	private static synchronized void close() {
+		flush();
+		if (OUTPUT != null) {
+			try {
+				OUTPUT.close();
+			} catch (IOException e) {
+				System.err.println("The monitoring records cannot be written: " + e);
+			}
+		}
+	}
+
+	/**
+	 * A ring buffer with one producer, the thread to which it belongs, and one consumer, the flushing thread.
+	 * The producer publishes a record by advancing the head, and the consumer releases the read records by
+	 * advancing the tail. Additionally, it keeps track of the service calls of its thread.
+	 */
+	private static final class RingBuffer {
+		private final long threadId;
+		private final WeakReference<Thread> thread;
+		private final long[] slots;
+		private final int capacity;
+		private final int mask;
+		private final AtomicLong head = new AtomicLong();
+		private final AtomicLong tail = new AtomicLong();
+		private final AtomicLong dropped = new AtomicLong();
+		// Fields which are only accessed by the producer.
+		private int serviceDepth;
+		private boolean sampled;
+		private long producerHead;
+		private long cachedTail;
+		private long producerDropped;
+		// Field which is only accessed by the consumer.
+		private long reportedDropped;
+
+		RingBuffer(Thread thread, int capacity) {
+			this.threadId = thread.getId();
+			this.thread = new WeakReference<>(thread);
+			this.capacity = capacity;
+			this.mask = capacity - 1;
+			this.slots = new long[capacity * RECORD_SIZE];
+		}
+
+		void record(int kind, String id, String secondId, long value) {
+			long header = ((long) kind << (2 * ID_BITS)) | ((long) idOf(id) << ID_BITS) | idOf(secondId);
+			put(header, System.nanoTime(), value);
+		}
+
+		void put(long header, long time, long value) {
+			long position = producerHead;
+			if (position - cachedTail >= capacity) {
+				cachedTail = tail.get();
+				if (position - cachedTail >= capacity) {
+					producerDropped++;
+					dropped.lazySet(producerDropped);
+					return;
+				}
+			}
+			int base = (int) (position & mask) * RECORD_SIZE;
+			slots[base] = header;
+			slots[base + 1] = time;
+			slots[base + 2] = value;
+			producerHead = position + 1;
+			head.lazySet(producerHead);
+		}
+
+		void drain() throws IOException {
+			long position = tail.get();
+			long end = head.get();
+			for (; position < end; position++) {
+				int base = (int) (position & mask) * RECORD_SIZE;
+				writeRecord(threadId, slots[base], slots[base + 1], slots[base + 2]);
+			}
+			tail.lazySet(end);
+			long currentDropped = dropped.get();
+			if (currentDropped != reportedDropped) {
+				reportedDropped = currentDropped;
+				write("D;" + threadId + ";" + currentDropped);
+			}
+		}
+	}
+}
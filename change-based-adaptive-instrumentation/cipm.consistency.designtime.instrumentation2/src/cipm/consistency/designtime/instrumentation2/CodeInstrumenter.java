@@ -1,9 +1,20 @@
 package cipm.consistency.designtime.instrumentation2;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.EList;
@@ -12,16 +23,21 @@ import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+import org.emftext.language.java.containers.JavaRoot;
 import org.emftext.language.java.members.Method;
 import org.emftext.language.java.statements.Statement;
 import org.emftext.language.java.statements.StatementListContainer;
 
+import com.google.common.hash.Hashing;
+
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.ActionInstrumentationPoint;
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModel;
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationType;
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.ServiceInstrumentationPoint;
 import cipm.consistency.designtime.instrumentation2.instrumenter.MinimalMonitoringEnvironmentModelGenerator;
 import cipm.consistency.designtime.instrumentation2.instrumenter.ServiceInstrumentationPointInstrumenter;
+import cipm.consistency.tools.evaluation.data.SpanRecorder;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
 import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 
@@ -39,33 +55,234 @@ public final class CodeInstrumenter {
 
 	public static Resource instrument(InstrumentationModel im, CorrespondenceModel cm, Resource javaModel, Path output,
 			Path input, boolean adaptive) {
+		return instrument(im, cm, javaModel, output, input, adaptive, null, 1, false, null);
+	}
+
+	/**
+	 * Instruments the code.
+	 * 
+	 * @param im the instrumentation model.
+	 * @param cm the correspondence model.
+	 * @param javaModel the Java model.
+	 * @param output the output directory.
+	 * @param input the directory with the original code.
+	 * @param adaptive true if only the active action instrumentation points are instrumented.
+	 * @param exclusionPatterns regular expressions for absolute paths of Java files which are not instrumented
+	 *                          or null for the default expressions.
+	 * @param savingThreads the maximum number of threads for printing the instrumented code.
+	 * @param ringBufferRuntime true if the ring buffer monitoring runtime is added to the instrumented code.
+	 * @param sampling the sampling rates of the services or null if all service calls are monitored.
+	 * @return a Resource containing the instrumented Java model and the monitoring environment.
+	 */
+	public static Resource instrument(InstrumentationModel im, CorrespondenceModel cm, Resource javaModel, Path output,
+			Path input, boolean adaptive, String[] exclusionPatterns, int savingThreads,
+			boolean ringBufferRuntime, SamplingConfiguration sampling) {
 		LOGGER.debug("Executing the " + (adaptive ? "adaptive" : "full") + " instrumentation.");
 		LOGGER.debug("Copying the Java model.");
 		ResourceSet targetSet = new ResourceSetImpl();
 		Resource copy = targetSet.createResource(javaModel.getURI());
-		copy.getContents().addAll(EcoreUtil.copyAll(javaModel.getContents()));
+		Copier copier = new Copier();
+		try (var span = SpanRecorder.start("copy")) {
+			copy.getContents().addAll(copier.copyAll(javaModel.getContents()));
+			copier.copyReferences();
+		}
 
 		LOGGER.debug("Generating the minimal monitoring environment.");
-		MinimalMonitoringEnvironmentModelGenerator gen = new MinimalMonitoringEnvironmentModelGenerator(copy);
-		ServiceInstrumentationPointInstrumenter sipIns = new ServiceInstrumentationPointInstrumenter(gen);
-
-		for (ServiceInstrumentationPoint sip : im.getPoints()) {
-			LOGGER.debug("Instrumenting the service " + sip.getService().getDescribedService__SEFF().getEntityName());
-			Method service = CorrespondenceModelUtil.getCorrespondingEObjects(cm, sip.getService(), Method.class)
-					.iterator().next();
-			Method copiedService = findCopiedEObject(targetSet, service);
-			ActionStatementMapping statementMap = createActionStatementMapping(targetSet, sip, cm);
-			sipIns.instrument(copiedService, sip, statementMap, adaptive);
+		MinimalMonitoringEnvironmentModelGenerator gen;
+		try (var span = SpanRecorder.start("instrument")) {
+			gen = new MinimalMonitoringEnvironmentModelGenerator(copy, ringBufferRuntime);
+			ServiceInstrumentationPointInstrumenter sipIns = new ServiceInstrumentationPointInstrumenter(gen,
+					sampling);
+
+			for (ServiceInstrumentationPoint sip : im.getPoints()) {
+				instrumentService(sip, cm, copier, sipIns, adaptive);
+			}
 		}
 
 		LOGGER.debug("Saving the instrumented code.");
-		ModelSaverInRepositoryCopy.saveModels(targetSet, copy, output, input, gen);
+		try (var span = SpanRecorder.start("save")) {
+			ModelSaverInRepositoryCopy.saveModels(targetSet, copy, output, input, gen, exclusionPatterns,
+					savingThreads);
+		}
 		LOGGER.debug("Finished the instrumentation.");
 
 		return copy;
 	}
 
-	private static ActionStatementMapping createActionStatementMapping(ResourceSet copyContainer,
+	/**
+	 * Instruments the code incrementally. In contrast to
+	 * {@link #instrument(InstrumentationModel, CorrespondenceModel, Resource, Path, Path, boolean)}, the
+	 * instrumented code is kept in the output directory between the calls. Only the compilation units whose
+	 * file or instrumentation points changed since the last call are copied, instrumented, and printed. Other
+	 * changed files are copied from the input directory, and files removed from the input directory are deleted
+	 * from the output directory.
+	 * 
+	 * @param im the instrumentation model.
+	 * @param cm the correspondence model.
+	 * @param javaModel the Java model.
+	 * @param output the persistent output directory.
+	 * @param input the directory with the original code.
+	 * @param adaptive true if only the active action instrumentation points are instrumented.
+	 * @return a Resource containing the instrumented compilation units of this call and the monitoring
+	 *         environment.
+	 * @throws UncheckedIOException if the instrumentation fails. In this case, the output directory is deleted.
+	 */
+	public static Resource instrumentIncrementally(InstrumentationModel im, CorrespondenceModel cm,
+			Resource javaModel, Path output, Path input, boolean adaptive) {
+		return instrumentIncrementally(im, cm, javaModel, output, input, adaptive, null, 1, false, null);
+	}
+
+	/**
+	 * Instruments the code incrementally.
+	 * 
+	 * @param im the instrumentation model.
+	 * @param cm the correspondence model.
+	 * @param javaModel the Java model.
+	 * @param output the persistent output directory.
+	 * @param input the directory with the original code.
+	 * @param adaptive true if only the active action instrumentation points are instrumented.
+	 * @param exclusionPatterns regular expressions for absolute paths of Java files which are not instrumented
+	 *                          or null for the default expressions.
+	 * @param savingThreads the maximum number of threads for printing the instrumented code.
+	 * @param ringBufferRuntime true if the ring buffer monitoring runtime is added to the instrumented code.
+	 * @param sampling the sampling rates of the services or null if all service calls are monitored.
+	 * @return a Resource containing the instrumented compilation units of this call and the monitoring
+	 *         environment.
+	 * @throws UncheckedIOException if the instrumentation fails. In this case, the output directory is deleted.
+	 * @see #instrumentIncrementally(InstrumentationModel, CorrespondenceModel, Resource, Path, Path, boolean)
+	 */
+	public static Resource instrumentIncrementally(InstrumentationModel im, CorrespondenceModel cm,
+			Resource javaModel, Path output, Path input, boolean adaptive, String[] exclusionPatterns,
+			int savingThreads, boolean ringBufferRuntime, SamplingConfiguration sampling) {
+		LOGGER.debug("Executing the incremental " + (adaptive ? "adaptive" : "full") + " instrumentation.");
+		Path absoluteInput = input.toAbsolutePath();
+		Path absoluteOutput = output.toAbsolutePath();
+		ResourceSet targetSet = new ResourceSetImpl();
+		Resource copy = targetSet.createResource(javaModel.getURI());
+		try {
+			InstrumentationOutputState state = InstrumentationOutputState.load(absoluteOutput);
+
+			// Relate the instrumentation points to the files of their compilation units.
+			Map<JavaRoot, List<ServiceInstrumentationPoint>> pointsPerRoot = new LinkedHashMap<>();
+			for (ServiceInstrumentationPoint sip : im.getPoints()) {
+				JavaRoot root = (JavaRoot) EcoreUtil.getRootContainer(findService(sip, cm));
+				pointsPerRoot.computeIfAbsent(root, k -> new ArrayList<>()).add(sip);
+			}
+			List<Path> inputFiles;
+			try (var files = Files.walk(absoluteInput)) {
+				inputFiles = files.filter(Files::isRegularFile).collect(Collectors.toList());
+			}
+			Map<JavaRoot, List<Path>> sourceFiles = ModelSaverInRepositoryCopy.findFiles(pointsPerRoot.keySet(),
+					ModelSaverInRepositoryCopy.createFileIndex(inputFiles, exclusionPatterns));
+			Map<Path, String> signatures = new HashMap<>();
+			sourceFiles.forEach((root, files) -> {
+				String signature = computeSignature(pointsPerRoot.get(root), adaptive, ringBufferRuntime, sampling);
+				files.forEach(f -> signatures.put(f, signature));
+			});
+
+			LOGGER.debug("Updating the unchanged files.");
+			Set<Path> changedFiles = state.synchronize(absoluteInput, inputFiles, signatures);
+			Map<JavaRoot, List<Path>> targetFiles = new LinkedHashMap<>();
+			sourceFiles.forEach((root, files) -> {
+				if (files.stream().anyMatch(changedFiles::contains)) {
+					targetFiles.put(root, files.stream().map(f -> absoluteOutput.resolve(absoluteInput.relativize(f)))
+							.collect(Collectors.toList()));
+				}
+			});
+			LOGGER.debug("Instrumenting " + targetFiles.size() + " of " + sourceFiles.size()
+					+ " compilation units with instrumentation points.");
+
+			Copier copier = new Copier();
+			Map<JavaRoot, List<Path>> copiedTargetFiles = new LinkedHashMap<>();
+			try (var span = SpanRecorder.start("copy")) {
+				copy.getContents().addAll(copier.copyAll(targetFiles.keySet()));
+				copier.copyReferences();
+				targetFiles.forEach((root, files) -> copiedTargetFiles.put((JavaRoot) copier.get(root), files));
+			}
+
+			// The unchanged compilation units are not copied. Therefore, the monitoring environment is
+			// generated from the original Java model which is only read.
+			MinimalMonitoringEnvironmentModelGenerator gen;
+			try (var span = SpanRecorder.start("instrument")) {
+				gen = new MinimalMonitoringEnvironmentModelGenerator(javaModel, ringBufferRuntime);
+				ServiceInstrumentationPointInstrumenter sipIns = new ServiceInstrumentationPointInstrumenter(gen,
+						sampling);
+				for (JavaRoot root : targetFiles.keySet()) {
+					for (ServiceInstrumentationPoint sip : pointsPerRoot.get(root)) {
+						instrumentService(sip, cm, copier, sipIns, adaptive);
+					}
+				}
+			}
+
+			LOGGER.debug("Saving the instrumented code.");
+			try (var span = SpanRecorder.start("save")) {
+				ModelSaverInRepositoryCopy.printModels(targetSet, copy, copiedTargetFiles, gen, savingThreads);
+				state.save();
+			}
+			LOGGER.debug("Finished the instrumentation.");
+		} catch (IOException e) {
+			// The output directory may be partially updated. It is removed so that the next call
+			// performs a complete instrumentation.
+			try {
+				InstrumentationOutputState.reset(absoluteOutput);
+			} catch (IOException resetException) {
+				e.addSuppressed(resetException);
+			}
+			throw new UncheckedIOException("The incremental instrumentation failed.", e);
+		}
+		return copy;
+	}
+
+	/**
+	 * Moves the output directory of the incremental instrumentation aside so that no instrumented code
+	 * is available for the current commit. The directory is restored by the next call of
+	 * {@link #instrumentIncrementally(InstrumentationModel, CorrespondenceModel, Resource, Path, Path, boolean)}.
+	 * 
+	 * @param output the output directory.
+	 */
+	public static void suspendIncrementalOutput(Path output) {
+		try {
+			InstrumentationOutputState.suspend(output.toAbsolutePath());
+		} catch (IOException e) {
+			LOGGER.error("Could not suspend the instrumentation directory.", e);
+		}
+	}
+
+	private static void instrumentService(ServiceInstrumentationPoint sip, CorrespondenceModel cm,
+			Map<EObject, EObject> copies, ServiceInstrumentationPointInstrumenter sipIns, boolean adaptive) {
+		LOGGER.debug("Instrumenting the service " + sip.getService().getDescribedService__SEFF().getEntityName());
+		Method copiedService = findCopiedEObject(copies, findService(sip, cm));
+		ActionStatementMapping statementMap = createActionStatementMapping(copies, sip, cm);
+		sipIns.instrument(copiedService, sip, statementMap, adaptive);
+	}
+
+	private static Method findService(ServiceInstrumentationPoint sip, CorrespondenceModel cm) {
+		return CorrespondenceModelUtil.getCorrespondingEObjects(cm, sip.getService(), Method.class)
+				.iterator().next();
+	}
+
+	/**
+	 * Computes a fingerprint of everything which determines the instrumentation of a compilation unit.
+	 */
+	private static String computeSignature(List<ServiceInstrumentationPoint> sips, boolean adaptive,
+			boolean ringBufferRuntime, SamplingConfiguration sampling) {
+		StringBuilder builder = new StringBuilder(adaptive ? "adaptive" : "full");
+		builder.append(ringBufferRuntime ? ",ringbuffer" : ",minimal");
+		sips.stream().sorted(Comparator.comparing(sip -> sip.getService().getId())).forEach(sip -> {
+			builder.append(';').append(sip.getService().getId()).append(',').append(sip.isActive());
+			if (ringBufferRuntime && sampling != null) {
+				builder.append(',').append(sampling.getRate(sip.getService().getId()));
+			}
+			for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
+				String actionId = aip.getAction() == null ? null : aip.getAction().getId();
+				builder.append(',').append(actionId).append('/').append(aip.getType())
+					.append('/').append(aip.isActive());
+			}
+		});
+		return Hashing.sha256().hashString(builder, StandardCharsets.UTF_8).toString();
+	}
+
+	private static ActionStatementMapping createActionStatementMapping(Map<EObject, EObject> copies,
 			ServiceInstrumentationPoint sip, CorrespondenceModel cm) {
 		ActionStatementMapping statementMap = new ActionStatementMapping();
 		for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
@@ -75,7 +292,7 @@ public final class CodeInstrumenter {
 			if (aip.getType() == InstrumentationType.INTERNAL || aip.getType() == InstrumentationType.INTERNAL_CALL) {
 				Statement lastStatement = findFirstOrLastStatement(correspondingStatements, false);
 				statementMap.getAbstractActionToLastStatementMapping().put(aip.getAction(),
-						findCopiedEObject(copyContainer, lastStatement));
+						findCopiedEObject(copies, lastStatement));
 				firstStatement = findFirstOrLastStatement(correspondingStatements, true);
 			} else {
 				try {
@@ -84,15 +301,15 @@ public final class CodeInstrumenter {
 					continue;
 				}
 			}
-			Statement copiedFirstStatement = findCopiedEObject(copyContainer, firstStatement);
+			Statement copiedFirstStatement = findCopiedEObject(copies, firstStatement);
 			statementMap.put(aip.getAction(), copiedFirstStatement);
 		}
 		return statementMap;
 	}
 
 	@SuppressWarnings("unchecked")
-	private static <T extends EObject> T findCopiedEObject(ResourceSet copyContainer, T original) {
-		EObject potResult = copyContainer.getEObject(EcoreUtil.getURI(original), false);
+	private static <T extends EObject> T findCopiedEObject(Map<EObject, EObject> copies, T original) {
+		EObject potResult = copies.get(original);
 		if (potResult != null && original.eClass().isInstance(potResult)) {
 			return (T) potResult;
 		}
@@ -0,0 +1,151 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The state of a persistent output directory for the incremental instrumentation. For every file of the
+ * input directory, it stores a fingerprint of the file and of the instrumentation points of its Java model
+ * from the last instrumentation. The state is stored within the output directory.
+ *
+ * @author Martin Armbruster
+ */
+final class InstrumentationOutputState {
+	private static final String STATE_FILE_NAME = ".instrumentation-state";
+	private static final String SUSPENDED_SUFFIX = ".suspended";
+	private final Path output;
+	private final Map<String, String> fingerprints = new HashMap<>();
+
+	private InstrumentationOutputState(Path output) {
+		this.output = output;
+	}
+
+	/**
+	 * Loads the state of an output directory. A suspended output directory is restored.
+	 *
+	 * @param output the output directory.
+	 * @return the state. It is empty if the output directory does not exist.
+	 * @throws IOException if the state cannot be loaded.
+	 */
+	static InstrumentationOutputState load(Path output) throws IOException {
+		Path suspended = getSuspendedPath(output);
+		if (Files.notExists(output) && Files.exists(suspended)) {
+			Files.move(suspended, output);
+		}
+		InstrumentationOutputState state = new InstrumentationOutputState(output);
+		Path stateFile = output.resolve(STATE_FILE_NAME);
+		if (Files.exists(stateFile)) {
+			var properties = new Properties();
+			try (InputStream in = Files.newInputStream(stateFile)) {
+				properties.load(in);
+			}
+			for (String key : properties.stringPropertyNames()) {
+				state.fingerprints.put(key, properties.getProperty(key));
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Moves an output directory aside so that it does not appear as instrumented code of the current
+	 * commit. It is restored by the next incremental instrumentation.
+	 *
+	 * @param output the output directory.
+	 * @throws IOException if the output directory cannot be moved.
+	 */
+	static void suspend(Path output) throws IOException {
+		if (Files.exists(output)) {
+			Path suspended = getSuspendedPath(output);
+			if (Files.exists(suspended)) {
+				FileUtils.deleteDirectory(suspended.toFile());
+			}
+			Files.move(output, suspended);
+		}
+	}
+
+	/**
+	 * Deletes an output directory and its suspended copy together with the state so that the next
+	 * incremental instrumentation starts from scratch.
+	 *
+	 * @param output the output directory.
+	 * @throws IOException if a directory cannot be deleted.
+	 */
+	static void reset(Path output) throws IOException {
+		FileUtils.deleteDirectory(output.toFile());
+		FileUtils.deleteDirectory(getSuspendedPath(output).toFile());
+	}
+
+	private static Path getSuspendedPath(Path output) {
+		return output.resolveSibling(output.getFileName().toString() + SUSPENDED_SUFFIX);
+	}
+
+	/**
+	 * Brings the output directory up to date with the input directory except for the files which need
+	 * to be instrumented. Changed files without instrumentation points are copied, and files which were
+	 * removed from the input directory are deleted.
+	 *
+	 * @param input the input directory.
+	 * @param inputFiles absolute paths of all files in the input directory.
+	 * @param signatures fingerprints of the instrumentation points for the files with instrumentation points.
+	 * @return the files with instrumentation points which changed since the last instrumentation.
+	 * @throws IOException if a file cannot be copied or deleted.
+	 */
+	Set<Path> synchronize(Path input, List<Path> inputFiles, Map<Path, String> signatures) throws IOException {
+		Map<String, String> newFingerprints = new HashMap<>();
+		Set<Path> changedInstrumentedFiles = new HashSet<>();
+		for (Path file : inputFiles) {
+			Path relative = input.relativize(file);
+			String key = relative.toString().replace('\\', '/');
+			BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			String signature = signatures.get(file);
+			String fingerprint = attributes.size() + ":" + attributes.lastModifiedTime().toMillis()
+					+ (signature == null ? "" : ":" + signature);
+			newFingerprints.put(key, fingerprint);
+			Path target = output.resolve(relative);
+			if (fingerprint.equals(fingerprints.get(key)) && Files.exists(target)) {
+				continue;
+			}
+			if (signature != null) {
+				changedInstrumentedFiles.add(file);
+			} else {
+				Files.createDirectories(target.getParent());
+				Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+			}
+		}
+		for (String key : fingerprints.keySet()) {
+			if (!newFingerprints.containsKey(key)) {
+				Files.deleteIfExists(output.resolve(key));
+			}
+		}
+		fingerprints.clear();
+		fingerprints.putAll(newFingerprints);
+		return changedInstrumentedFiles;
+	}
+
+	/**
+	 * Stores the state in the output directory.
+	 *
+	 * @throws IOException if the state cannot be stored.
+	 */
+	void save() throws IOException {
+		var properties = new Properties();
+		properties.putAll(fingerprints);
+		Files.createDirectories(output);
+		try (OutputStream out = Files.newOutputStream(output.resolve(STATE_FILE_NAME))) {
+			properties.store(out, null);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.emftext.language.java.LogicalJavaURIGenerator;
+
+/**
+ * An index of Java files by their file names. It is used to find the files of the Java models by
+ * the package and file name of the models.
+ *
+ * @author Martin Armbruster
+ */
+final class JavaFileIndex {
+	/**
+	 * The exclusion patterns which are used if no patterns are configured.
+	 */
+	static final String[] DEFAULT_EXCLUSION_PATTERNS = {".*?/src/test/java/.*?"};
+	private final Map<String, List<Path>> filesByName = new HashMap<>();
+
+	/**
+	 * Creates a new index.
+	 *
+	 * @param files absolute paths of files. Only Java files are indexed.
+	 * @param exclusionPatterns regular expressions for absolute paths of Java files which are not indexed
+	 *                          or null for {@link #DEFAULT_EXCLUSION_PATTERNS}.
+	 */
+	JavaFileIndex(Collection<Path> files, String[] exclusionPatterns) {
+		if (exclusionPatterns == null) {
+			exclusionPatterns = DEFAULT_EXCLUSION_PATTERNS;
+		}
+		for (Path file : files) {
+			String abs = file.toString();
+			if (abs.endsWith(LogicalJavaURIGenerator.JAVA_FILE_EXTENSION) && !isExcluded(abs, exclusionPatterns)) {
+				filesByName.computeIfAbsent(file.getFileName().toString(), k -> new ArrayList<>()).add(file);
+			}
+		}
+	}
+
+	private static boolean isExcluded(String abs, String[] exclusionPatterns) {
+		for (String pattern : exclusionPatterns) {
+			if (!pattern.isEmpty() && abs.matches(pattern)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the files with a given package path and file name.
+	 *
+	 * @param lastPathPart the package path and file name, e.g., /org/example/Example.java.
+	 * @return the files ending with the package path and file name.
+	 */
+	List<Path> getFiles(String lastPathPart) {
+		String fileName = lastPathPart.substring(lastPathPart.lastIndexOf(File.separatorChar) + 1);
+		return filesByName.getOrDefault(fileName, List.of()).stream()
+				.filter(p -> p.toString().endsWith(lastPathPart)).collect(Collectors.toList());
+	}
+}
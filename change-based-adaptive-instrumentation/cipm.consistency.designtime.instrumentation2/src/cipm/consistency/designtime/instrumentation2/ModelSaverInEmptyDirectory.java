@@ -2,8 +2,13 @@ package cipm.consistency.designtime.instrumentation2;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -21,23 +26,47 @@ import cipm.consistency.designtime.instrumentation2.instrumenter.MinimalMonitori
  * @author Martin Armbruster
  */
 public final class ModelSaverInEmptyDirectory {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModelSaverInEmptyDirectory.class.getSimpleName());
+
 	private ModelSaverInEmptyDirectory() {
 	}
 	
 	static void saveModels(ResourceSet copyContainer, Resource copiedResource, Path target,
-			MinimalMonitoringEnvironmentModelGenerator monitoringEnv) {
+			MinimalMonitoringEnvironmentModelGenerator monitoringEnv, int threads) {
 		copiedResource.getContents().add(monitoringEnv.threadMonitoringControllerCU);
 		copiedResource.getContents().add(monitoringEnv.serviceParametersCU);
+		Map<Resource, List<Path>> resources = new LinkedHashMap<>();
+		Map<Path, byte[]> runtimeSources = new LinkedHashMap<>();
 		for (EObject root : new ArrayList<>(copiedResource.getContents())) {
 			if (root instanceof CompilationUnit || root instanceof org.emftext.language.java.containers.Package) {
 				JavaRoot cu = (JavaRoot) root;
-				Resource newResource = copyContainer.createResource(createURI(cu, target));
-				newResource.getContents().add(cu);
-				try {
-					newResource.save(null);
-				} catch (IOException e) {
+				URI uri = createURI(cu, target);
+				if (cu == monitoringEnv.threadMonitoringControllerCU || cu == monitoringEnv.serviceParametersCU) {
+					try {
+						byte[] source = monitoringEnv.generateRuntimeSource((CompilationUnit) cu);
+						if (source != null) {
+							runtimeSources.put(Paths.get(uri.toFileString()), source);
+							continue;
+						}
+					} catch (IOException e) {
+						LOGGER.error("The monitoring runtime could not be generated.", e);
+					}
 				}
-				copiedResource.getContents().add(cu);
+				Resource newResource = copyContainer.createResource(uri);
+				newResource.getContents().add(cu);
+				resources.put(newResource, List.of(Paths.get(uri.toFileString())));
+			}
+		}
+		try {
+			ResourcePrinter.print(resources, threads);
+			for (var entry : runtimeSources.entrySet()) {
+				ResourcePrinter.write(entry.getKey(), entry.getValue());
+			}
+		} catch (IOException e) {
+			LOGGER.error("The instrumented code could not be saved completely.", e);
+		} finally {
+			for (Resource resource : resources.keySet()) {
+				copiedResource.getContents().addAll(resource.getContents());
 			}
 		}
 	}
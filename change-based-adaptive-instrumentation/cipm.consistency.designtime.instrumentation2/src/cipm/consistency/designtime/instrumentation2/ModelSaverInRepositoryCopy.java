@@ -4,12 +4,18 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -28,56 +34,132 @@ import cipm.consistency.designtime.instrumentation2.instrumenter.MinimalMonitori
  * @author Martin Armbruster
  */
 public final class ModelSaverInRepositoryCopy {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModelSaverInRepositoryCopy.class.getSimpleName());
+
 	private ModelSaverInRepositoryCopy() {
 	}
 
 	static void saveModels(ResourceSet copyContainer, Resource copiedResource, Path target, Path source,
-			MinimalMonitoringEnvironmentModelGenerator monitoringEnv) {
+			MinimalMonitoringEnvironmentModelGenerator monitoringEnv, String[] exclusionPatterns, int threads) {
 		try {
 			// Copy the repository.
 			FileUtils.copyDirectory(source.toFile(), target.toFile());
-			var origJavaFiles = Files.walk(target).filter(Files::isRegularFile)
-					.map(Path::toAbsolutePath).filter(p -> {
-				String abs = p.toString();
-				return abs.endsWith(LogicalJavaURIGenerator.JAVA_FILE_EXTENSION)
-						&& !(abs.matches(".*?/src/test/java/.*?"))
-						&& !(abs.matches(".*?/utilities/tools.descartes.teastore.kieker/.*?"));
-			}).collect(Collectors.toList());
-			// Provide Resources for the monitoring environment.
-			Resource monRes = copyContainer.createResource(URI.createURI("empty:/ThreadMonitoringController.java"));
-			monRes.getContents().add(monitoringEnv.threadMonitoringControllerCU);
-			Resource serviceRes = copyContainer.createResource(URI.createURI("empty:/ServiceParameters.java"));
-			serviceRes.getContents().add(monitoringEnv.serviceParametersCU);
-			Set<String> injectedProjects = new HashSet<>();
-			for (EObject root : new ArrayList<>(copiedResource.getContents())) {
-				JavaRoot cu = (JavaRoot) root;
-				// All Java models originating from a file are printed.
-				if (cu.getOrigin() == Origin.FILE) {
-					String lastPart = createLastPathPart(cu);
-					for (Path path : origJavaFiles) {
-						// Relate the Java model to its original file.
-						String absPath = path.toString();
-						if (absPath.endsWith(lastPart)) {
-							// Because all Java models are contained within one Resource,
-							// a new Resource is
-							// created for every model to be printed.
-							Resource newResource = copyContainer.createResource(
-									URI.createFileURI(path.toString()));
-							newResource.getContents().add(cu);
-							newResource.save(null);
-							copiedResource.getContents().add(cu);
-							checkMonitoringEnvironmentPrinting(injectedProjects,
-									absPath.substring(0, absPath.length()
-											- lastPart.length()), monRes,
-									monitoringEnv.threadMonitoringControllerCU, serviceRes,
-									monitoringEnv.serviceParametersCU);
-						}
-					}
+			var origJavaFiles = createFileIndex(Files.walk(target).filter(Files::isRegularFile)
+					.map(Path::toAbsolutePath).collect(Collectors.toList()), exclusionPatterns);
+			var javaRoots = new ArrayList<JavaRoot>();
+			for (EObject root : copiedResource.getContents()) {
+				javaRoots.add((JavaRoot) root);
+			}
+			printModels(copyContainer, copiedResource, findFiles(javaRoots, origJavaFiles), monitoringEnv, threads);
+		} catch (IOException e) {
+			LOGGER.error("The instrumented code could not be saved completely.", e);
+		}
+	}
+
+	/**
+	 * Indexes the Java files whose models are printed.
+	 * 
+	 * @param files absolute paths of files.
+	 * @param exclusionPatterns regular expressions for absolute paths of Java files whose models are not printed.
+	 * @return the index of the Java files.
+	 */
+	static JavaFileIndex createFileIndex(List<Path> files, String[] exclusionPatterns) {
+		return new JavaFileIndex(files, exclusionPatterns);
+	}
+
+	/**
+	 * Relates the Java models originating from a file to the files. If a Java model relates to more than
+	 * one file, the ambiguity is reported and the model is printed into all files.
+	 * 
+	 * @param javaRoots the Java models.
+	 * @param javaFiles the index of the Java files.
+	 * @return the files for every Java model which has at least one file.
+	 */
+	static Map<JavaRoot, List<Path>> findFiles(Collection<JavaRoot> javaRoots, JavaFileIndex javaFiles) {
+		Map<JavaRoot, List<Path>> result = new LinkedHashMap<>();
+		for (JavaRoot cu : javaRoots) {
+			// All Java models originating from a file are printed.
+			if (cu.getOrigin() == Origin.FILE) {
+				// Relate the Java model to its original file.
+				String lastPart = createLastPathPart(cu);
+				List<Path> paths = javaFiles.getFiles(lastPart);
+				if (paths.size() > 1) {
+					LOGGER.warn("The Java model for " + lastPart + " matches more than one file: " + paths);
+				}
+				if (!paths.isEmpty()) {
+					result.put(cu, paths);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Prints Java models into their files and adds the monitoring environment to every project
+	 * containing a printed model.
+	 * 
+	 * @param copyContainer the ResourceSet containing the Resource of the Java models.
+	 * @param copiedResource the Resource containing the Java models. After printing, it also contains
+	 *                       the monitoring environment.
+	 * @param files the files for the Java models.
+	 * @param monitoringEnv the monitoring environment.
+	 * @param threads the maximum number of threads for printing the Java models.
+	 * @throws IOException if at least one model cannot be printed. The other models are printed nevertheless.
+	 */
+	static void printModels(ResourceSet copyContainer, Resource copiedResource, Map<JavaRoot, List<Path>> files,
+			MinimalMonitoringEnvironmentModelGenerator monitoringEnv, int threads) throws IOException {
+		// Because all Java models are contained within one Resource,
+		// a new Resource is created for every model to be printed.
+		Map<Resource, List<Path>> resources = new LinkedHashMap<>();
+		Set<String> projects = new LinkedHashSet<>();
+		for (EObject root : new ArrayList<>(copiedResource.getContents())) {
+			JavaRoot cu = (JavaRoot) root;
+			List<Path> paths = files.getOrDefault(cu, List.of());
+			if (paths.isEmpty()) {
+				continue;
+			}
+			Resource newResource = copyContainer.createResource(URI.createFileURI(paths.get(0).toString()));
+			newResource.getContents().add(cu);
+			resources.put(newResource, paths);
+			String lastPart = createLastPathPart(cu);
+			for (Path path : paths) {
+				String absPath = path.toString();
+				projects.add(absPath.substring(0, absPath.length() - lastPart.length()));
+			}
+		}
+		// Provide Resources for the monitoring environment.
+		Resource monRes = copyContainer.createResource(URI.createURI("empty:/ThreadMonitoringController.java"));
+		monRes.getContents().add(monitoringEnv.threadMonitoringControllerCU);
+		Resource serviceRes = copyContainer.createResource(URI.createURI("empty:/ServiceParameters.java"));
+		serviceRes.getContents().add(monitoringEnv.serviceParametersCU);
+		List<Path> monPaths = new ArrayList<>();
+		List<Path> servicePaths = new ArrayList<>();
+		for (String project : projects) {
+			monPaths.add(Paths.get(project + createLastPathPart(monitoringEnv.threadMonitoringControllerCU)));
+			servicePaths.add(Paths.get(project + createLastPathPart(monitoringEnv.serviceParametersCU)));
+		}
+		byte[] monSource = monitoringEnv.generateRuntimeSource(monitoringEnv.threadMonitoringControllerCU);
+		byte[] serviceSource = monitoringEnv.generateRuntimeSource(monitoringEnv.serviceParametersCU);
+		if (!projects.isEmpty() && monSource == null) {
+			resources.put(monRes, monPaths);
+			resources.put(serviceRes, servicePaths);
+		}
+		try {
+			ResourcePrinter.print(resources, threads);
+			if (monSource != null) {
+				for (Path path : monPaths) {
+					ResourcePrinter.write(path, monSource);
 				}
+				for (Path path : servicePaths) {
+					ResourcePrinter.write(path, serviceSource);
+				}
+			}
+		} finally {
+			for (Resource resource : resources.keySet()) {
+				copiedResource.getContents().addAll(resource.getContents());
 			}
 			copiedResource.getContents().add(monitoringEnv.threadMonitoringControllerCU);
 			copiedResource.getContents().add(monitoringEnv.serviceParametersCU);
-		} catch (IOException e) {
 		}
 	}
 
@@ -101,17 +183,4 @@ public final class ModelSaverInRepositoryCopy {
 		}
 		return builder.toString();
 	}
-
-	// Checks if the monitoring environment can be printed.
-	private static void checkMonitoringEnvironmentPrinting(Set<String> injectedProjects, String project,
-			Resource monitoringRes, CompilationUnit monitoringCU, Resource serviceRes, CompilationUnit serviceCU)
-			throws IOException {
-		if (!injectedProjects.contains(project)) {
-			monitoringRes.setURI(URI.createFileURI(project + createLastPathPart(monitoringCU)));
-			monitoringRes.save(null);
-			serviceRes.setURI(URI.createFileURI(project + createLastPathPart(serviceCU)));
-			serviceRes.save(null);
-			injectedProjects.add(project);
-		}
-	}
 }
@@ -0,0 +1,122 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * Prints Resources of Java models into files. Every Resource is printed into a buffer first. Afterwards,
+ * the buffer is written into a temporary file which replaces the target file. As a result, a Resource
+ * which cannot be printed does not leave a partially written file.
+ *
+ * @author Martin Armbruster
+ */
+final class ResourcePrinter {
+	private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+	private ResourcePrinter() {
+	}
+
+	/**
+	 * Prints Resources into files. With more than one thread, the Resources are printed concurrently.
+	 * Because the printing can resolve proxies, they are resolved before the concurrent printing.
+	 *
+	 * @param resources the Resources and the files into which they are printed.
+	 * @param threads the maximum number of threads for the printing.
+	 * @throws IOException if at least one Resource cannot be printed. It contains the exceptions of all
+	 *                     Resources which cannot be printed as suppressed exceptions.
+	 */
+	static void print(Map<Resource, List<Path>> resources, int threads) throws IOException {
+		List<IOException> failures = new ArrayList<>();
+		if (threads <= 1 || resources.size() <= 1) {
+			for (var entry : resources.entrySet()) {
+				try {
+					print(entry.getKey(), entry.getValue());
+				} catch (IOException e) {
+					failures.add(e);
+				}
+			}
+		} else {
+			for (Resource resource : resources.keySet()) {
+				EcoreUtil.resolveAll(resource);
+			}
+			List<Callable<Void>> tasks = new ArrayList<>();
+			resources.forEach((resource, files) -> tasks.add(() -> {
+				print(resource, files);
+				return null;
+			}));
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+			try {
+				for (Future<Void> result : executor.invokeAll(tasks)) {
+					try {
+						result.get();
+					} catch (ExecutionException e) {
+						failures.add(e.getCause() instanceof IOException ? (IOException) e.getCause()
+								: new IOException(e.getCause()));
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("The printing was interrupted.", e);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		if (!failures.isEmpty()) {
+			IOException aggregated = new IOException(failures.size() + " of " + resources.size()
+				+ " Resources could not be printed.");
+			failures.forEach(aggregated::addSuppressed);
+			throw aggregated;
+		}
+	}
+
+	private static void print(Resource resource, List<Path> files) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try {
+			resource.save(buffer, null);
+		} catch (IOException | RuntimeException e) {
+			throw new IOException("Could not print " + resource.getURI() + ".", e);
+		}
+		byte[] content = buffer.toByteArray();
+		for (Path file : files) {
+			write(file, content);
+		}
+	}
+
+	/**
+	 * Writes content into a temporary file which replaces a file.
+	 *
+	 * @param file the file.
+	 * @param content the content.
+	 * @throws IOException if the content cannot be written.
+	 */
+	static void write(Path file, byte[] content) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temporary = Files.createTempFile(parent, file.getFileName().toString(), TEMPORARY_FILE_SUFFIX);
+		try {
+			Files.write(temporary, content);
+			try {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The sampling rates of the ServiceInstrumentationPoints. A sampled service decides at its entry if the
+ * current call is monitored. If it is not monitored, the probes of its actions and of all services called
+ * within the same thread are skipped. The sampling requires the ring buffer monitoring runtime.
+ *
+ * <p>The configuration is given as a list of entries separated by ";". An entry has the form
+ * "seff-id:rate" where the seff-id is the id of the SEFF of a ServiceInstrumentationPoint or "*" for all
+ * other ServiceInstrumentationPoints. The rate is either a number N to monitor one of N calls on average,
+ * or a number of milliseconds with the suffix "ms" to monitor at most one call per interval.
+ *
+ * @author Martin Armbruster
+ */
+public final class SamplingConfiguration {
+	private static final String DEFAULT_KEY = "*";
+	private static final String INTERVAL_SUFFIX = "ms";
+	private final Map<String, SamplingRate> rates = new HashMap<>();
+
+	private SamplingConfiguration() {
+	}
+
+	/**
+	 * Parses a sampling configuration.
+	 *
+	 * @param configuration the configuration.
+	 * @return the parsed configuration or null if the configuration is null or empty.
+	 * @throws IllegalArgumentException if an entry of the configuration is malformed.
+	 */
+	public static SamplingConfiguration parse(String configuration) {
+		if (configuration == null || configuration.isBlank()) {
+			return null;
+		}
+		SamplingConfiguration result = new SamplingConfiguration();
+		for (String entry : configuration.split(";")) {
+			if (entry.isBlank()) {
+				continue;
+			}
+			int separator = entry.lastIndexOf(':');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("The sampling entry " + entry + " has no rate.");
+			}
+			String id = entry.substring(0, separator).trim();
+			String rate = entry.substring(separator + 1).trim();
+			try {
+				if (rate.endsWith(INTERVAL_SUFFIX)) {
+					long interval = Long.parseLong(rate.substring(0, rate.length() - INTERVAL_SUFFIX.length()).trim());
+					result.rates.put(id, new SamplingRate(1, interval));
+				} else {
+					result.rates.put(id, new SamplingRate(Integer.parseInt(rate), 0));
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("The sampling entry " + entry + " has an invalid rate.", e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the sampling rate for a SEFF.
+	 *
+	 * @param seffId the id of the SEFF.
+	 * @return the sampling rate or null if all calls of the SEFF are monitored.
+	 */
+	public SamplingRate getRate(String seffId) {
+		SamplingRate rate = rates.getOrDefault(seffId, rates.get(DEFAULT_KEY));
+		return rate == null || rate.isUnsampled() ? null : rate;
+	}
+
+	@Override
+	public String toString() {
+		return new TreeMap<>(rates).toString();
+	}
+
+	/**
+	 * A sampling rate which monitors one of N calls on average and at most one call per interval.
+	 */
+	public static final class SamplingRate {
+		private final int oneInN;
+		private final long intervalMillis;
+
+		SamplingRate(int oneInN, long intervalMillis) {
+			if (oneInN < 1 || intervalMillis < 0) {
+				throw new IllegalArgumentException("A sampling rate must be positive.");
+			}
+			this.oneInN = oneInN;
+			this.intervalMillis = intervalMillis;
+		}
+
+		/**
+		 * Returns N so that one of N calls is monitored on average.
+		 *
+		 * @return N.
+		 */
+		public int getOneInN() {
+			return oneInN;
+		}
+
+		/**
+		 * Returns the minimum time between two monitored calls.
+		 *
+		 * @return the time in milliseconds or 0 if there is no minimum time.
+		 */
+		public long getIntervalMillis() {
+			return intervalMillis;
+		}
+
+		private boolean isUnsampled() {
+			return oneInN == 1 && intervalMillis == 0;
+		}
+
+		@Override
+		public String toString() {
+			return intervalMillis > 0 ? intervalMillis + INTERVAL_SUFFIX : Integer.toString(oneInN);
+		}
+	}
+}
@@ -3,11 +3,14 @@ package cipm.consistency.designtime.instrumentation2.instrumenter;
 import java.math.BigInteger;
 import java.util.HashMap;
 
+import org.emftext.language.java.expressions.ExpressionsFactory;
+import org.emftext.language.java.expressions.SuffixUnaryModificationExpression;
 import org.emftext.language.java.instantiations.InstantiationsFactory;
 import org.emftext.language.java.instantiations.NewConstructorCall;
 import org.emftext.language.java.literals.DecimalIntegerLiteral;
 import org.emftext.language.java.literals.LiteralsFactory;
 import org.emftext.language.java.members.Method;
+import org.emftext.language.java.operators.OperatorsFactory;
 import org.emftext.language.java.references.IdentifierReference;
 import org.emftext.language.java.references.MethodCall;
 import org.emftext.language.java.references.ReferencesFactory;
@@ -17,6 +20,7 @@ import org.emftext.language.java.statements.LocalVariableStatement;
 import org.emftext.language.java.statements.Statement;
 import org.emftext.language.java.statements.StatementContainer;
 import org.emftext.language.java.statements.StatementsFactory;
+import org.emftext.language.java.types.TypesFactory;
 import org.emftext.language.java.variables.LocalVariable;
 import org.emftext.language.java.variables.VariablesFactory;
 
@@ -59,12 +63,19 @@ public class LoopActionInstrumenter extends AbstractInstrumenter {
 			// Increment counter.
 			IdentifierReference counterRef = ReferencesFactory.eINSTANCE.createIdentifierReference();
 			counterRef.setTarget(declStatement.getVariable());
-			MethodCall incrementCall = ReferencesFactory.eINSTANCE.createMethodCall();
-			incrementCall.setTarget(environmentGen.getAndIncrementMethod);
-			counterRef.setNext(incrementCall);
-			
 			ExpressionStatement incSt = StatementsFactory.eINSTANCE.createExpressionStatement();
-			incSt.setExpression(counterRef);
+			if (environmentGen.ringBufferRuntime) {
+				SuffixUnaryModificationExpression increment = ExpressionsFactory.eINSTANCE
+						.createSuffixUnaryModificationExpression();
+				increment.setChild(counterRef);
+				increment.setOperator(OperatorsFactory.eINSTANCE.createPlusPlus());
+				incSt.setExpression(increment);
+			} else {
+				MethodCall incrementCall = ReferencesFactory.eINSTANCE.createMethodCall();
+				incrementCall.setTarget(environmentGen.getAndIncrementMethod);
+				counterRef.setNext(incrementCall);
+				incSt.setExpression(counterRef);
+			}
 			loopBlock.getStatements().add(0, incSt);
 		}
 		
@@ -77,6 +88,15 @@ public class LoopActionInstrumenter extends AbstractInstrumenter {
 		LocalVariableStatement declStatement = StatementsFactory.eINSTANCE.createLocalVariableStatement();
 		LocalVariable locVar = VariablesFactory.eINSTANCE.createLocalVariable();
 		locVar.setName(counterName);
+		declStatement.setVariable(locVar);
+		if (environmentGen.ringBufferRuntime) {
+			// A primitive counter avoids an allocation for every execution of the loop.
+			locVar.setTypeReference(TypesFactory.eINSTANCE.createLong());
+			DecimalIntegerLiteral zero = LiteralsFactory.eINSTANCE.createDecimalIntegerLiteral();
+			zero.setDecimalValue(BigInteger.ZERO);
+			locVar.setInitialValue(zero);
+			return declStatement;
+		}
 		locVar.setTypeReference(this.createTypeReference(environmentGen.atomicIntegerClassifier));
 		
 		NewConstructorCall locVarInit = InstantiationsFactory.eINSTANCE.createNewConstructorCall();
@@ -85,8 +105,6 @@ public class LoopActionInstrumenter extends AbstractInstrumenter {
 		literal.setDecimalValue(BigInteger.ZERO);
 		locVarInit.getArguments().add(literal);
 		locVar.setInitialValue(locVarInit);
-		
-		declStatement.setVariable(locVar);
 		return declStatement;
 	}
 	
@@ -107,9 +125,11 @@ public class LoopActionInstrumenter extends AbstractInstrumenter {
 		
 		IdentifierReference secArg = ReferencesFactory.eINSTANCE.createIdentifierReference();
 		secArg.setTarget(counterVar);
-		MethodCall callToGet = ReferencesFactory.eINSTANCE.createMethodCall();
-		callToGet.setTarget(environmentGen.getMethod);
-		secArg.setNext(callToGet);
+		if (!environmentGen.ringBufferRuntime) {
+			MethodCall callToGet = ReferencesFactory.eINSTANCE.createMethodCall();
+			callToGet.setTarget(environmentGen.getMethod);
+			secArg.setNext(callToGet);
+		}
 		
 		threadCall.getArguments().add(secArg);
 		threadRef.setNext(threadCall);
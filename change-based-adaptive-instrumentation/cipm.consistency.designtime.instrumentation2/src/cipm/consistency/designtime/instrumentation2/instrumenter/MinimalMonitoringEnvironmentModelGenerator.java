@@ -1,7 +1,14 @@
 package cipm.consistency.designtime.instrumentation2.instrumenter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -16,18 +23,23 @@ import org.emftext.language.java.members.MembersFactory;
 import org.emftext.language.java.members.Method;
 import org.emftext.language.java.modifiers.ModifiersFactory;
 import org.emftext.language.java.parameters.OrdinaryParameter;
+import org.emftext.language.java.parameters.Parameter;
 import org.emftext.language.java.parameters.ParametersFactory;
 import org.emftext.language.java.statements.Block;
 import org.emftext.language.java.statements.Return;
 import org.emftext.language.java.statements.StatementsFactory;
 import org.emftext.language.java.types.ClassifierReference;
+import org.emftext.language.java.types.PrimitiveType;
 import org.emftext.language.java.types.TypeReference;
 import org.emftext.language.java.types.TypesFactory;
+import org.emftext.language.java.types.TypesPackage;
 
 import cipm.consistency.designtime.instrumentation.transformation.impl.ApplicationProjectInstrumenterNamespace;
 
 /**
- * A generator for a model of a minimal monitoring environment.
+ * A generator for a model of a minimal monitoring environment. The model only contains the methods which
+ * are called by the instrumented code. Optionally, the model can be printed as ring buffer monitoring
+ * runtime whose sources are located in the runtime directory of this bundle.
  * 
  * @author Martin Armbruster
  */
@@ -35,6 +47,9 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 	final String[] namespaces = {"cipm", "consistency", "bridge", "monitoring", "controller"};
 	final String threadMonitoringControllerName = "ThreadMonitoringController";
 	final String serviceParametersName = "ServiceParameters";
+	private static final String RUNTIME_SOURCE_DIRECTORY = "/runtime/src/";
+	private static final String METHOD_GET_SAMPLED_INSTANCE = "getSampledInstance";
+	final boolean ringBufferRuntime;
 	final ConcreteClassifier stringClassifier;
 	final ConcreteClassifier atomicIntegerClassifier;
 	final ConcreteClassifier objectClassifier;
@@ -43,6 +58,7 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 	public final CompilationUnit threadMonitoringControllerCU;
 	final ConcreteClassifier threadMonitoringControllerClassifier;
 	final Method getInstanceMethod;
+	final Method getSampledInstanceMethod;
 	final Method enterInternalActionMethod;
 	final Method exitInternalActionMethod;
 	final Method setExternalCallIdMethod;
@@ -53,8 +69,24 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 	public final CompilationUnit serviceParametersCU;
 	final ConcreteClassifier serviceParametersClassifier;
 	final Method addParameterValueMethod;
+	final Method addLongParameterValueMethod;
+	final Method addDoubleParameterValueMethod;
+	final Method addBooleanParameterValueMethod;
+	final Method addCharParameterValueMethod;
 	
 	public MinimalMonitoringEnvironmentModelGenerator(Resource context) {
+		this(context, false);
+	}
+	
+	/**
+	 * Creates a new generator.
+	 * 
+	 * @param context the Java model in which the monitoring environment is used.
+	 * @param ringBufferRuntime true if the monitoring environment is printed as ring buffer monitoring
+	 *                          runtime. In this case, loops are counted with primitive counters.
+	 */
+	public MinimalMonitoringEnvironmentModelGenerator(Resource context, boolean ringBufferRuntime) {
+		this.ringBufferRuntime = ringBufferRuntime;
 		String[] atomicIntegerPackages = AtomicInteger.class.getPackageName().split("\\"
 				+ LogicalJavaURIGenerator.PACKAGE_SEPARATOR);
 		ConcreteClassifier potAtomicIntegerClassifier = findClassifierInJavaModel(context,
@@ -103,15 +135,11 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 		serviceParametersClassifier.makePublic();
 		serviceParametersCU.getClassifiers().add(serviceParametersClassifier);
 		
-		addParameterValueMethod = MembersFactory.eINSTANCE.createClassMethod();
-		addParameterValueMethod.setName(ApplicationProjectInstrumenterNamespace.METHOD_ADD_PARAMETER_VALUE);
-		addParameterValueMethod.makePublic();
-		addParameterValueMethod.setTypeReference(TypesFactory.eINSTANCE.createVoid());
-		addParameterValueMethod.setStatement(StatementsFactory.eINSTANCE.createBlock());
-		addParameterValueMethod.getParameters().add(createStringParameter("param1"));
-		addParameterValueMethod.getParameters().add(createOrdinaryParameter("param2",
-				createClassifierReference(objectClassifier)));
-		serviceParametersClassifier.getMembers().add(addParameterValueMethod);
+		addParameterValueMethod = createAddParameterValueMethod(createClassifierReference(objectClassifier));
+		addLongParameterValueMethod = createAddParameterValueMethod(TypesFactory.eINSTANCE.createLong());
+		addDoubleParameterValueMethod = createAddParameterValueMethod(TypesFactory.eINSTANCE.createDouble());
+		addBooleanParameterValueMethod = createAddParameterValueMethod(TypesFactory.eINSTANCE.createBoolean());
+		addCharParameterValueMethod = createAddParameterValueMethod(TypesFactory.eINSTANCE.createChar());
 		
 		getInstanceMethod = MembersFactory.eINSTANCE.createClassMethod();
 		getInstanceMethod.setName(ApplicationProjectInstrumenterNamespace.METHOD_GET_INSTANCE);
@@ -123,6 +151,19 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 		getInstanceMethod.setStatement(createNullReturningBlock());
 		threadMonitoringControllerClassifier.getMembers().add(getInstanceMethod);
 		
+		getSampledInstanceMethod = MembersFactory.eINSTANCE.createClassMethod();
+		getSampledInstanceMethod.setName(METHOD_GET_SAMPLED_INSTANCE);
+		getSampledInstanceMethod.makePublic();
+		getSampledInstanceMethod.getAnnotationsAndModifiers().add(ModifiersFactory.eINSTANCE.createStatic());
+		getSampledInstanceMethod.setTypeReference(createClassifierReference(threadMonitoringControllerClassifier));
+		getSampledInstanceMethod.setStatement(createNullReturningBlock());
+		getSampledInstanceMethod.getParameters().add(createStringParameter("param1"));
+		getSampledInstanceMethod.getParameters().add(createOrdinaryParameter("param2",
+				TypesFactory.eINSTANCE.createInt()));
+		getSampledInstanceMethod.getParameters().add(createOrdinaryParameter("param3",
+				TypesFactory.eINSTANCE.createLong()));
+		threadMonitoringControllerClassifier.getMembers().add(getSampledInstanceMethod);
+		
 		enterInternalActionMethod = MembersFactory.eINSTANCE.createClassMethod();
 		enterInternalActionMethod.setName(ApplicationProjectInstrumenterNamespace.METHOD_ENTER_INTERNAL_ACTION);
 		enterInternalActionMethod.makePublic();
@@ -189,6 +230,47 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 		threadMonitoringControllerClassifier.getMembers().add(exitServiceMethod);
 	}
 	
+	/**
+	 * Generates the source code of the ring buffer monitoring runtime for a compilation unit of the
+	 * monitoring environment. The method names of the runtime are replaced by the names of the methods
+	 * in the model.
+	 * 
+	 * @param cu the compilation unit.
+	 * @return the source code or null if the monitoring environment is not printed as ring buffer runtime.
+	 * @throws IOException if the source code of the runtime cannot be read.
+	 */
+	public byte[] generateRuntimeSource(CompilationUnit cu) throws IOException {
+		if (!ringBufferRuntime) {
+			return null;
+		}
+		String source;
+		String path = RUNTIME_SOURCE_DIRECTORY + String.join("/", cu.getNamespaces()) + "/" + cu.getName()
+				+ LogicalJavaURIGenerator.JAVA_FILE_EXTENSION;
+		try (InputStream in = MinimalMonitoringEnvironmentModelGenerator.class.getResourceAsStream(path)) {
+			if (in == null) {
+				throw new IOException("The runtime source " + path + " is not available.");
+			}
+			source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		Map<String, String> names = new HashMap<>();
+		names.put("getInstance", getInstanceMethod.getName());
+		names.put("enterService", enterServiceMethod.getName());
+		names.put("exitService", exitServiceMethod.getName());
+		names.put("enterInternalAction", enterInternalActionMethod.getName());
+		names.put("exitInternalAction", exitInternalActionMethod.getName());
+		names.put("setExternalCallId", setExternalCallIdMethod.getName());
+		names.put("enterBranch", enterBranchMethod.getName());
+		names.put("exitLoop", exitLoopMethod.getName());
+		names.put("addValue", addParameterValueMethod.getName());
+		Matcher matcher = Pattern.compile("\\b(" + String.join("|", names.keySet()) + ")\\b").matcher(source);
+		StringBuilder result = new StringBuilder();
+		while (matcher.find()) {
+			matcher.appendReplacement(result, Matcher.quoteReplacement(names.get(matcher.group(1))));
+		}
+		matcher.appendTail(result);
+		return result.toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
 	private ConcreteClassifier findClassifierInJavaModel(Resource javaModel, String[] packageParts, String className) {
 		for (EObject c : javaModel.getContents()) {
 			if (c instanceof CompilationUnit) {
@@ -224,6 +306,42 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 		return body;
 	}
 	
+	private Method createAddParameterValueMethod(TypeReference valueType) {
+		Method method = MembersFactory.eINSTANCE.createClassMethod();
+		method.setName(ApplicationProjectInstrumenterNamespace.METHOD_ADD_PARAMETER_VALUE);
+		method.makePublic();
+		method.setTypeReference(TypesFactory.eINSTANCE.createVoid());
+		method.setStatement(StatementsFactory.eINSTANCE.createBlock());
+		method.getParameters().add(createStringParameter("param1"));
+		method.getParameters().add(createOrdinaryParameter("param2", valueType));
+		serviceParametersClassifier.getMembers().add(method);
+		return method;
+	}
+	
+	/**
+	 * Returns the method which adds the value of a parameter to the service parameters. For values of a
+	 * primitive type, the overload for the type is returned so that the values are not boxed.
+	 * 
+	 * @param parameter the parameter.
+	 * @return the method.
+	 */
+	Method getAddParameterValueMethod(Parameter parameter) {
+		if (!(parameter instanceof OrdinaryParameter) || parameter.getArrayDimension() > 0) {
+			return addParameterValueMethod;
+		}
+		TypeReference type = parameter.getTypeReference();
+		if (!(type instanceof PrimitiveType)) {
+			return addParameterValueMethod;
+		} else if (type.eClass() == TypesPackage.Literals.BOOLEAN) {
+			return addBooleanParameterValueMethod;
+		} else if (type.eClass() == TypesPackage.Literals.CHAR) {
+			return addCharParameterValueMethod;
+		} else if (type.eClass() == TypesPackage.Literals.FLOAT || type.eClass() == TypesPackage.Literals.DOUBLE) {
+			return addDoubleParameterValueMethod;
+		}
+		return addLongParameterValueMethod;
+	}
+	
 	private OrdinaryParameter createStringParameter(String paramName) {
 		return createOrdinaryParameter(paramName, createClassifierReference(stringClassifier));
 	}
@@ -1,8 +1,12 @@
 package cipm.consistency.designtime.instrumentation2.instrumenter;
 
+import java.math.BigInteger;
 import java.util.EnumMap;
 
 import org.apache.log4j.Logger;
+import org.emftext.language.java.literals.DecimalIntegerLiteral;
+import org.emftext.language.java.literals.DecimalLongLiteral;
+import org.emftext.language.java.literals.LiteralsFactory;
 import org.emftext.language.java.members.Method;
 import org.emftext.language.java.references.IdentifierReference;
 import org.emftext.language.java.references.MethodCall;
@@ -18,6 +22,8 @@ import cipm.consistency.base.models.instrumentation.InstrumentationModel.Instrum
 import cipm.consistency.base.models.instrumentation.InstrumentationModel.ServiceInstrumentationPoint;
 import cipm.consistency.designtime.instrumentation.transformation.impl.ApplicationProjectInstrumenterNamespace;
 import cipm.consistency.designtime.instrumentation2.ActionStatementMapping;
+import cipm.consistency.designtime.instrumentation2.SamplingConfiguration;
+import cipm.consistency.designtime.instrumentation2.SamplingConfiguration.SamplingRate;
 
 /**
  * An instrumenter for ServiceInstrumentationPoints.
@@ -29,9 +35,27 @@ public class ServiceInstrumentationPointInstrumenter extends AbstractInstrumente
 			+ ServiceInstrumentationPointInstrumenter.class.getSimpleName());
 	private ServiceInstrumenter serviceIns;
 	private EnumMap<InstrumentationType, AbstractInstrumenter> aipTypeToInstrumenter;
+	private SamplingConfiguration sampling;
 	
 	public ServiceInstrumentationPointInstrumenter(MinimalMonitoringEnvironmentModelGenerator gen) {
+		this(gen, null);
+	}
+	
+	/**
+	 * Creates a new instrumenter.
+	 * 
+	 * @param gen the generator for the monitoring environment.
+	 * @param sampling the sampling rates of the services or null if all calls are monitored. The sampling
+	 *                 is only applied with the ring buffer monitoring runtime.
+	 */
+	public ServiceInstrumentationPointInstrumenter(MinimalMonitoringEnvironmentModelGenerator gen,
+			SamplingConfiguration sampling) {
 		super(gen);
+		if (sampling != null && !gen.ringBufferRuntime) {
+			LOGGER.warn("The sampling is ignored because it requires the ring buffer monitoring runtime.");
+		} else {
+			this.sampling = sampling;
+		}
 		serviceIns = new ServiceInstrumenter(this.environmentGen);
 		aipTypeToInstrumenter = new EnumMap<>(InstrumentationType.class);
 		aipTypeToInstrumenter.put(InstrumentationType.BRANCH,
@@ -61,10 +85,11 @@ public class ServiceInstrumentationPointInstrumenter extends AbstractInstrumente
 			return;
 		}
 		
-		prepareMethodBeforeInstrumentation(m);
+		String seffId = sip.getService().getId();
+		prepareMethodBeforeInstrumentation(m, seffId, sampling == null ? null : sampling.getRate(seffId));
 		
 		serviceIns.setLocalThreadMonitoringVariable(this.threadMonitoringVariable);
-		serviceIns.setService(m, sip.getService().getId());
+		serviceIns.setService(m, seffId);
 		serviceIns.instrument(null, null);
 		
 		for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
@@ -76,7 +101,7 @@ public class ServiceInstrumentationPointInstrumenter extends AbstractInstrumente
 		prepareMethodAfterInstrumentation(m);
 	}
 	
-	private void prepareMethodBeforeInstrumentation(Method m) {
+	private void prepareMethodBeforeInstrumentation(Method m, String seffId, SamplingRate rate) {
 		// Variable declaration for the ThreadMonitoringController.
 		IdentifierReference init = ReferencesFactory.eINSTANCE.createIdentifierReference();
 		IdentifierReference currentRef = init;
@@ -94,7 +119,19 @@ public class ServiceInstrumentationPointInstrumenter extends AbstractInstrumente
 		}
 		currentRef.setTarget(environmentGen.threadMonitoringControllerClassifier);
 		MethodCall initCall = ReferencesFactory.eINSTANCE.createMethodCall();
-		initCall.setTarget(environmentGen.getInstanceMethod);
+		if (rate == null) {
+			initCall.setTarget(environmentGen.getInstanceMethod);
+		} else {
+			// The sampling decision is made once when the controller is obtained at the service entry.
+			initCall.setTarget(environmentGen.getSampledInstanceMethod);
+			this.createAndAddStringArgument(initCall, seffId);
+			DecimalIntegerLiteral oneInN = LiteralsFactory.eINSTANCE.createDecimalIntegerLiteral();
+			oneInN.setDecimalValue(BigInteger.valueOf(rate.getOneInN()));
+			initCall.getArguments().add(oneInN);
+			DecimalLongLiteral interval = LiteralsFactory.eINSTANCE.createDecimalLongLiteral();
+			interval.setDecimalValue(BigInteger.valueOf(rate.getIntervalMillis()));
+			initCall.getArguments().add(interval);
+		}
 		currentRef.setNext(initCall);
 		
 		threadMonitoringVariable = VariablesFactory.eINSTANCE.createLocalVariable();
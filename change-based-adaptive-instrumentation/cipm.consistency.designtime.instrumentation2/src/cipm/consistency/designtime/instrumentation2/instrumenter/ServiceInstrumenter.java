@@ -54,7 +54,7 @@ public class ServiceInstrumenter extends AbstractInstrumenter {
 			IdentifierReference serviceVarRef = ReferencesFactory.eINSTANCE.createIdentifierReference();
 			serviceVarRef.setTarget(serviceParameterVar.getVariable());
 			MethodCall addParamCall = ReferencesFactory.eINSTANCE.createMethodCall();
-			addParamCall.setTarget(environmentGen.addParameterValueMethod);
+			addParamCall.setTarget(environmentGen.getAddParameterValueMethod(param));
 			this.createAndAddStringArgument(addParamCall, param.getName());
 			IdentifierReference paramRef = ReferencesFactory.eINSTANCE.createIdentifierReference();
 			paramRef.setTarget(param);
@@ -10,8 +10,8 @@ public class ChangeStatistic {
 	private String newCommit;
 	private int numberCommits;
 	private int numberChangedJavaFiles;
-	private int numberAddedLines;
-	private int numberRemovedLines;
+	private long numberAddedLines;
+	private long numberRemovedLines;
 	private int numberVitruvChanges;
 	
 	public String getOldCommit() {
@@ -46,19 +46,19 @@ public class ChangeStatistic {
 		this.numberChangedJavaFiles = numberChangedJavaFiles;
 	}
 	
-	public int getNumberAddedLines() {
+	public long getNumberAddedLines() {
 		return numberAddedLines;
 	}
 	
-	public void setNumberAddedLines(int numberAddedLines) {
+	public void setNumberAddedLines(long numberAddedLines) {
 		this.numberAddedLines = numberAddedLines;
 	}
 	
-	public int getNumberRemovedLines() {
+	public long getNumberRemovedLines() {
 		return numberRemovedLines;
 	}
 	
-	public void setNumberRemovedLines(int numberRemovedLines) {
+	public void setNumberRemovedLines(long numberRemovedLines) {
 		this.numberRemovedLines = numberRemovedLines;
 	}
 	
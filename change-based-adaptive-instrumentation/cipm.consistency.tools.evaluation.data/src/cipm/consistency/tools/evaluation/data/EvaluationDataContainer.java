@@ -1,5 +1,8 @@
 package cipm.consistency.tools.evaluation.data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Container for the complete data.
  * 
@@ -21,6 +24,7 @@ public class EvaluationDataContainer {
 	
 	private long evaluationTime = System.currentTimeMillis();
 	private ChangeStatistic changeStatistic = new ChangeStatistic();
+	private List<ChangeStatistic> commitStatistics = new ArrayList<>();
 	private JavaEvaluationData javaComparisonResult = new JavaEvaluationData();
 	private IMEvaluationData imEvalResult = new IMEvaluationData();
 	private InstrumentationEvaluationData instrumentationData = new InstrumentationEvaluationData();
@@ -34,6 +38,15 @@ public class EvaluationDataContainer {
 		return changeStatistic;
 	}
 	
+	/**
+	 * Returns the statistics of the single commits if several commits are propagated at once.
+	 * 
+	 * @return the statistics for every commit.
+	 */
+	public List<ChangeStatistic> getCommitStatistics() {
+		return commitStatistics;
+	}
+	
 	public JavaEvaluationData getJavaComparisonResult() {
 		return javaComparisonResult;
 	}
@@ -0,0 +1,105 @@
+package cipm.consistency.tools.evaluation.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+/**
+ * Reads the records written by the {@link EvaluationDataStreamWriter} and reconstructs one
+ * {@link EvaluationDataContainer} per commit so that the existing evaluations can process them.
+ *
+ * @author Martin Armbruster
+ */
+public final class EvaluationDataStreamReader {
+	private static final String EVALUATION_TIME = "evaluationTime";
+	private static final String RESULT_FILE_PREFIX = "EvaluationResult-";
+
+	private EvaluationDataStreamReader() {
+	}
+
+	/**
+	 * Reads the records from a file. The records of a commit are combined into one container. If there are
+	 * several records of the same kind for a commit, the last record is used except for the statistics of the
+	 * single commits which are collected. A malformed line, e.g., the last line after an unexpected termination
+	 * of the writing process, is skipped.
+	 *
+	 * @param file the file with the records.
+	 * @return the containers for the commits in the order in which the commits occur in the file.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static Map<String, EvaluationDataContainer> read(Path file) throws IOException {
+		Gson gson = new Gson();
+		Map<String, JsonObject> containers = new LinkedHashMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				JsonObject record = parseRecord(gson, line);
+				if (record == null) {
+					continue;
+				}
+				String commit = record.get(EvaluationDataStreamWriter.COMMIT).getAsString();
+				String kind = record.get(EvaluationDataStreamWriter.KIND).getAsString();
+				JsonObject container = containers.computeIfAbsent(commit, c -> {
+					JsonObject newContainer = new JsonObject();
+					newContainer.add(EVALUATION_TIME, record.get(EvaluationDataStreamWriter.TIME));
+					newContainer.add(EvaluationDataStreamWriter.COMMIT_STATISTICS, new JsonArray());
+					return newContainer;
+				});
+				if (EvaluationDataStreamWriter.COMMIT_STATISTICS.equals(kind)) {
+					container.getAsJsonArray(kind).add(record.get(EvaluationDataStreamWriter.DATA));
+				} else {
+					container.add(kind, record.get(EvaluationDataStreamWriter.DATA));
+				}
+			}
+		}
+		Map<String, EvaluationDataContainer> result = new LinkedHashMap<>();
+		containers.forEach((commit, container) -> result.put(commit,
+				gson.fromJson(container, EvaluationDataContainer.class)));
+		return result;
+	}
+
+	private static JsonObject parseRecord(Gson gson, String line) {
+		if (line.isBlank()) {
+			return null;
+		}
+		try {
+			JsonObject record = gson.fromJson(line, JsonObject.class);
+			if (record != null && isString(record, EvaluationDataStreamWriter.COMMIT)
+					&& isString(record, EvaluationDataStreamWriter.KIND) && record.has(EvaluationDataStreamWriter.DATA)) {
+				return record;
+			}
+		} catch (JsonParseException | ClassCastException e) {
+			// The line is not a complete record.
+		}
+		return null;
+	}
+
+	private static boolean isString(JsonObject record, String member) {
+		return record.has(member) && record.get(member).isJsonPrimitive();
+	}
+
+	/**
+	 * Converts the records of a file into one file per commit in the format of the
+	 * {@link EvaluationDataContainerReaderWriter}. The files are named "EvaluationResult-[commit]-[time].json".
+	 *
+	 * @param file      the file with the records.
+	 * @param directory the directory in which the files are written.
+	 * @throws IOException if the records cannot be read or the directory cannot be created.
+	 */
+	public static void convert(Path file, Path directory) throws IOException {
+		Files.createDirectories(directory);
+		for (Map.Entry<String, EvaluationDataContainer> entry : read(file).entrySet()) {
+			EvaluationDataContainerReaderWriter.write(entry.getValue(), directory.resolve(RESULT_FILE_PREFIX
+					+ entry.getKey() + "-" + entry.getValue().getEvaluationTime() + ".json"));
+		}
+	}
+}
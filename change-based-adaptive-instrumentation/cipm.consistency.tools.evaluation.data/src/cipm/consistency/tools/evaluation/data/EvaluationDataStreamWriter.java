@@ -0,0 +1,138 @@
+package cipm.consistency.tools.evaluation.data;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Appends the evaluation data to a file in the JSON Lines format as soon as it is available. Every line is one
+ * record which contains a part of the data of one commit:
+ *
+ * <pre>
+ * {"commit":"...","kind":"executionTimes","time":1690000000000,"data":{...}}
+ * </pre>
+ *
+ * The kinds are the names of the fields of the {@link EvaluationDataContainer} so that the
+ * {@link EvaluationDataStreamReader} can reconstruct the containers. Every record is flushed after it has been
+ * written. As a result, the records of the previous commits are kept if the process terminates unexpectedly.
+ *
+ * @author Martin Armbruster
+ */
+public class EvaluationDataStreamWriter implements Closeable {
+	static final String COMMIT = "commit";
+	static final String KIND = "kind";
+	static final String TIME = "time";
+	static final String DATA = "data";
+	static final String CHANGE_STATISTIC = "changeStatistic";
+	static final String COMMIT_STATISTICS = "commitStatistics";
+	static final String JAVA_COMPARISON_RESULT = "javaComparisonResult";
+	static final String IM_EVAL_RESULT = "imEvalResult";
+	static final String INSTRUMENTATION_DATA = "instrumentationData";
+	static final String EXECUTION_TIMES = "executionTimes";
+	private final Gson gson = new Gson();
+	private final BufferedWriter writer;
+
+	/**
+	 * Opens a file for the records. If the file exists, the records are appended.
+	 *
+	 * @param file the file.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public EvaluationDataStreamWriter(Path file) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Writes the data which is recorded during the change propagation of a commit: the change statistic, the
+	 * statistics of the single commits, and the execution times. The data is kept in the container until
+	 * {@link #clearWrittenData(EvaluationDataContainer)} is called.
+	 *
+	 * @param commit    the propagated commit.
+	 * @param container the container with the data.
+	 * @throws IOException if the data cannot be written.
+	 */
+	public synchronized void writePropagationData(String commit, EvaluationDataContainer container)
+			throws IOException {
+		write(commit, CHANGE_STATISTIC, container.getChangeStatistic());
+		writeCommitStatistics(commit, container);
+		write(commit, EXECUTION_TIMES, container.getExecutionTimes().copy());
+	}
+
+	/**
+	 * Writes the statistics of the single commits.
+	 *
+	 * @param commit    the commit up to which the single commits were propagated at once.
+	 * @param container the container with the statistics.
+	 * @throws IOException if the statistics cannot be written.
+	 */
+	public synchronized void writeCommitStatistics(String commit, EvaluationDataContainer container)
+			throws IOException {
+		for (ChangeStatistic statistic : container.getCommitStatistics()) {
+			write(commit, COMMIT_STATISTICS, statistic);
+		}
+	}
+
+	/**
+	 * Removes the statistics of the single commits and the phases from a container so that its size does not
+	 * grow with the number of commits. It is called after the container has been written, e.g., as the
+	 * evaluation result of the commit.
+	 *
+	 * @param container the container.
+	 */
+	public synchronized void clearWrittenData(EvaluationDataContainer container) {
+		container.getCommitStatistics().clear();
+		container.getExecutionTimes().clearPhases();
+	}
+
+	/**
+	 * Writes the results of the evaluation of a commit: the evaluation of the Java model, the instrumentation
+	 * model, and the instrumentation.
+	 *
+	 * @param commit    the evaluated commit.
+	 * @param container the container with the data.
+	 * @throws IOException if the data cannot be written.
+	 */
+	public synchronized void writeEvaluationData(String commit, EvaluationDataContainer container)
+			throws IOException {
+		write(commit, JAVA_COMPARISON_RESULT, container.getJavaComparisonResult());
+		write(commit, IM_EVAL_RESULT, container.getImEvalResult());
+		write(commit, INSTRUMENTATION_DATA, container.getInstrumentationData());
+	}
+
+	/**
+	 * Writes one record.
+	 *
+	 * @param commit the commit to which the data belongs.
+	 * @param kind   the kind of the data, i.e., the name of the corresponding field in the
+	 *               {@link EvaluationDataContainer}.
+	 * @param data   the data.
+	 * @throws IOException if the record cannot be written.
+	 */
+	public synchronized void write(String commit, String kind, Object data) throws IOException {
+		JsonObject record = new JsonObject();
+		record.addProperty(COMMIT, commit);
+		record.addProperty(KIND, kind);
+		record.addProperty(TIME, System.currentTimeMillis());
+		record.add(DATA, gson.toJsonTree(data));
+		writer.write(gson.toJson(record));
+		writer.newLine();
+		writer.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		writer.close();
+	}
+}
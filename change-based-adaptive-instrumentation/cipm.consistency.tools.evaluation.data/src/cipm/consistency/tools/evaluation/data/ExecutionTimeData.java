@@ -1,7 +1,11 @@
 package cipm.consistency.tools.evaluation.data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * A data structure for execution times.
+ * A data structure for execution times. The times are given in milliseconds. In addition, it contains the
+ * phases recorded by the {@link SpanRecorder}.
  * 
  * @author Martin Armbruster
  */
@@ -9,6 +13,7 @@ public class ExecutionTimeData {
 	private long changePropagationTime;
 	private long instrumentationTime;
 	private long overallTime;
+	private List<PhaseSpan> phases = new ArrayList<>();
 	
 	public long getChangePropagationTime() {
 		return changePropagationTime;
@@ -33,4 +38,35 @@ public class ExecutionTimeData {
 	public void setOverallTime(long overallTime) {
 		this.overallTime = overallTime;
 	}
+	
+	/**
+	 * Returns the outermost recorded phases.
+	 * 
+	 * @return the phases.
+	 */
+	public List<PhaseSpan> getPhases() {
+		return phases;
+	}
+	
+	synchronized void addPhase(PhaseSpan phase) {
+		phases.add(phase);
+	}
+	
+	synchronized void clearPhases() {
+		phases.clear();
+	}
+	
+	/**
+	 * Creates a copy of the data and the phases so that they can be serialized while phases are added.
+	 * 
+	 * @return the copy.
+	 */
+	synchronized ExecutionTimeData copy() {
+		ExecutionTimeData copy = new ExecutionTimeData();
+		copy.changePropagationTime = changePropagationTime;
+		copy.instrumentationTime = instrumentationTime;
+		copy.overallTime = overallTime;
+		phases.forEach(phase -> copy.phases.add(phase.copy()));
+		return copy;
+	}
 }
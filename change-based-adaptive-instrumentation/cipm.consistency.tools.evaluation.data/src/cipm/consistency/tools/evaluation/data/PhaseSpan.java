@@ -0,0 +1,122 @@
+package cipm.consistency.tools.evaluation.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A data structure for the execution time and resource usage of a phase. Phases are recorded by the
+ * {@link SpanRecorder} and can contain nested phases.
+ *
+ * <p>A span can be opened several times, also in different threads. In this case, the duration, allocated bytes,
+ * and garbage collection data are the sums over all times in which the span was open.
+ *
+ * @author Martin Armbruster
+ */
+public class PhaseSpan {
+	private String name;
+	private long startNanos = -1;
+	private long durationNanos;
+	private long allocatedBytes;
+	private long gcTimeMillis;
+	private long gcCount;
+	private List<PhaseSpan> children = new ArrayList<>();
+	private transient PhaseSpan root;
+	private transient long originNanos;
+
+	PhaseSpan(String name) {
+		this(name, null);
+	}
+
+	private PhaseSpan(String name, PhaseSpan root) {
+		this.name = name;
+		this.root = root == null ? this : root;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the time at which the span was opened the first time.
+	 *
+	 * @return the time in nanoseconds relative to the opening of the outermost span or -1 if the span was not
+	 *         opened.
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	public long getDurationMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+	}
+
+	/**
+	 * Returns the number of bytes which the threads allocated while they had opened the span.
+	 *
+	 * @return the number of bytes or -1 if the JVM does not support the measurement.
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Returns the time of the garbage collections while the span was open. As the garbage collections affect all
+	 * threads, the time is also contained in spans which were open at the same time.
+	 *
+	 * @return the time in milliseconds.
+	 */
+	public long getGcTimeMillis() {
+		return gcTimeMillis;
+	}
+
+	public long getGcCount() {
+		return gcCount;
+	}
+
+	public List<PhaseSpan> getChildren() {
+		return children;
+	}
+
+	synchronized PhaseSpan addChild(String childName) {
+		PhaseSpan child = new PhaseSpan(childName, root);
+		children.add(child);
+		return child;
+	}
+
+	synchronized void open(long start) {
+		if (startNanos < 0) {
+			if (root == this) {
+				originNanos = start;
+			}
+			startNanos = start - root.originNanos;
+		}
+	}
+
+	synchronized void record(long duration, long allocated, long gcTime, long gcNumber) {
+		durationNanos += duration;
+		allocatedBytes = allocated < 0 || allocatedBytes < 0 ? -1 : allocatedBytes + allocated;
+		gcTimeMillis += gcTime;
+		gcCount += gcNumber;
+	}
+
+	/**
+	 * Creates a copy of the span and its children with the data recorded so far.
+	 *
+	 * @return the copy. It cannot be opened.
+	 */
+	synchronized PhaseSpan copy() {
+		PhaseSpan copy = new PhaseSpan(name);
+		copy.startNanos = startNanos;
+		copy.durationNanos = durationNanos;
+		copy.allocatedBytes = allocatedBytes;
+		copy.gcTimeMillis = gcTimeMillis;
+		copy.gcCount = gcCount;
+		children.forEach(child -> copy.children.add(child.copy()));
+		return copy;
+	}
+}
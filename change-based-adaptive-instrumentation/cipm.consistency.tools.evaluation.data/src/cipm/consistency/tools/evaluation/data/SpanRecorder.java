@@ -0,0 +1,184 @@
+package cipm.consistency.tools.evaluation.data;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Records the phases of the change propagation and instrumentation as hierarchical {@link PhaseSpan}s. A span
+ * which is started while another span is open in the same thread becomes a child of the open span. Otherwise, it
+ * is added to the phases of the {@link ExecutionTimeData} in the global {@link EvaluationDataContainer}.
+ *
+ * <p>Typical usage:
+ * <pre>
+ * try (var span = SpanRecorder.start("parse")) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * <p>To record the work of other threads within a span, the span can be created with {@link #create(String)} and
+ * opened in every thread with {@link #resume(PhaseSpan)}. Work which another thread performs in advance, e.g., for
+ * a commit which is propagated later, is recorded with {@link #startDetached(String)} and added to the global
+ * EvaluationDataContainer with {@link #attach(PhaseSpan)} when its result is used.
+ *
+ * @author Martin Armbruster
+ */
+public final class SpanRecorder {
+	private static final ThreadLocal<Deque<PhaseSpan>> OPEN_SPANS = ThreadLocal.withInitial(ArrayDeque::new);
+	private static final com.sun.management.ThreadMXBean THREADS = createThreadBean();
+	private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+	private SpanRecorder() {
+	}
+
+	/**
+	 * Creates and opens a new span.
+	 *
+	 * @param name name of the span.
+	 * @return the opened span which has to be closed.
+	 */
+	public static OpenSpan start(String name) {
+		return resume(create(name));
+	}
+
+	/**
+	 * Creates a new span without opening it. It is a child of the innermost open span of the current thread.
+	 *
+	 * @param name name of the span.
+	 * @return the created span.
+	 */
+	public static PhaseSpan create(String name) {
+		PhaseSpan parent = OPEN_SPANS.get().peek();
+		if (parent != null) {
+			return parent.addChild(name);
+		}
+		PhaseSpan root = new PhaseSpan(name);
+		EvaluationDataContainer.getGlobalContainer().getExecutionTimes().addPhase(root);
+		return root;
+	}
+
+	/**
+	 * Creates and opens a new span which is neither a child of an open span nor added to the global
+	 * EvaluationDataContainer. Spans started within it in the same thread become its children.
+	 *
+	 * @param name name of the span.
+	 * @return the opened span which has to be closed.
+	 */
+	public static OpenSpan startDetached(String name) {
+		return resume(new PhaseSpan(name));
+	}
+
+	/**
+	 * Adds a span which was started with {@link #startDetached(String)} to the phases of the
+	 * {@link ExecutionTimeData} in the global {@link EvaluationDataContainer}. The span must be closed.
+	 *
+	 * @param span the span.
+	 */
+	public static void attach(PhaseSpan span) {
+		EvaluationDataContainer.getGlobalContainer().getExecutionTimes().addPhase(span);
+	}
+
+	/**
+	 * Opens an existing span in the current thread. If the span is already open in the current thread, nothing
+	 * is recorded for the returned OpenSpan.
+	 *
+	 * @param span the span.
+	 * @return the opened span which has to be closed.
+	 */
+	public static OpenSpan resume(PhaseSpan span) {
+		Deque<PhaseSpan> openSpans = OPEN_SPANS.get();
+		if (openSpans.contains(span)) {
+			return new OpenSpan(span, false);
+		}
+		openSpans.push(span);
+		return new OpenSpan(span, true);
+	}
+
+	private static com.sun.management.ThreadMXBean createThreadBean() {
+		try {
+			var bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean) {
+				var allocationBean = (com.sun.management.ThreadMXBean) bean;
+				if (allocationBean.isThreadAllocatedMemorySupported()) {
+					allocationBean.setThreadAllocatedMemoryEnabled(true);
+					return allocationBean;
+				}
+			}
+		} catch (LinkageError | UnsupportedOperationException e) {
+			// The allocated bytes are not recorded.
+		}
+		return null;
+	}
+
+	private static long getAllocatedBytes() {
+		return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static long getGcTime() {
+		long time = 0;
+		for (var collector : COLLECTORS) {
+			time += Math.max(0, collector.getCollectionTime());
+		}
+		return time;
+	}
+
+	private static long getGcCount() {
+		long count = 0;
+		for (var collector : COLLECTORS) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+
+	/**
+	 * A span which is open in the current thread. Closing it records the measured data in the span.
+	 */
+	public static final class OpenSpan implements AutoCloseable {
+		private final PhaseSpan span;
+		private final boolean recording;
+		private final long startNanos;
+		private final long startAllocatedBytes;
+		private final long startGcTime;
+		private final long startGcCount;
+		private boolean closed;
+
+		private OpenSpan(PhaseSpan span, boolean recording) {
+			this.span = span;
+			this.recording = recording;
+			if (recording) {
+				startGcTime = getGcTime();
+				startGcCount = getGcCount();
+				startAllocatedBytes = getAllocatedBytes();
+				startNanos = System.nanoTime();
+				span.open(startNanos);
+			} else {
+				startGcTime = 0;
+				startGcCount = 0;
+				startAllocatedBytes = 0;
+				startNanos = 0;
+			}
+		}
+
+		public PhaseSpan getSpan() {
+			return span;
+		}
+
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (!recording) {
+				return;
+			}
+			long end = System.nanoTime();
+			long allocated = startAllocatedBytes < 0 ? -1 : getAllocatedBytes() - startAllocatedBytes;
+			span.record(end - startNanos, allocated, getGcTime() - startGcTime,
+					getGcCount() - startGcCount);
+			OPEN_SPANS.get().removeFirstOccurrence(span);
+		}
+	}
+}
@@ -107,13 +107,24 @@ public abstract class AbstractCITest {
 			Path copy = root.resolveSibling(root.getFileName().toString() + "-" + num + "-" + newCommit);
 			LOGGER.debug("Copying the propagated state.");
 			FileUtils.copyDirectory(root.toFile(), copy.toFile());
-			LOGGER.debug("Evaluating the instrumentation.");
-			new InstrumentationEvaluator().evaluateInstrumentationDependently(
-					this.controller.getVSUMFacade().getInstrumentationModel(), javaModel, instrumentedModel,
-					this.controller.getVSUMFacade().getVSUM().getCorrespondenceModel());
+			if (this.controller.isIncrementalInstrumentation()) {
+				// The instrumented model only contains the compilation units instrumented for this commit so
+				// that it cannot be compared with the complete Java model. The complete instrumented code is
+				// evaluated by the independent evaluation.
+				LOGGER.debug("Skipping the dependent evaluation of the incremental instrumentation.");
+			} else {
+				LOGGER.debug("Evaluating the instrumentation.");
+				new InstrumentationEvaluator().evaluateInstrumentationDependently(
+						this.controller.getVSUMFacade().getInstrumentationModel(), javaModel, instrumentedModel,
+						this.controller.getVSUMFacade().getVSUM().getCorrespondenceModel());
+			}
 			EvaluationDataContainerReaderWriter.write(evalResult, copy.resolve("DependentEvaluationResult.json"));
+			if (this.controller.getEvaluationDataWriter() != null) {
+				this.controller.getEvaluationDataWriter().writeEvaluationData(newCommit, evalResult);
+			}
 			LOGGER.debug("Finished the evaluation.");
 		}
+		this.controller.clearStreamedEvaluationData();
 		return result;
 	}
 
@@ -137,7 +148,7 @@ public abstract class AbstractCITest {
 		Resource javaModel = this.controller.getJavaModelResource();
 		LOGGER.debug("Evaluating the Java model.");
 		new JavaModelEvaluator().evaluateJavaModels(javaModel,
-				this.controller.getCommitChangePropagator().getJavaFileSystemLayout().getLocalJavaRepo(),
+				this.controller.getCommitChangePropagator().getSourceDirectory(),
 				evalResult.getJavaComparisonResult(),
 				this.controller.getCommitChangePropagator().getJavaFileSystemLayout().getModuleConfiguration());
 		LOGGER.debug("Evaluating the instrumentation model.");
@@ -153,6 +164,10 @@ public abstract class AbstractCITest {
 		EvaluationDataContainerReaderWriter.write(evalResult,
 				root.resolveSibling("EvaluationResult-" + newCommit
 						+ "-" + evalResult.getEvaluationTime() + ".json"));
+		if (this.controller.getEvaluationDataWriter() != null) {
+			this.controller.getEvaluationDataWriter().writeEvaluationData(newCommit, evalResult);
+		}
+		this.controller.clearStreamedEvaluationData();
 		LOGGER.debug("Finished the evaluation.");
 	}
 
@@ -20,6 +20,7 @@ import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
 
 import cipm.consistency.commitintegration.CommitChangePropagator;
 import cipm.consistency.commitintegration.ExternalCommandExecutionUtils;
@@ -27,7 +28,10 @@ import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsCont
 import cipm.consistency.commitintegration.settings.SettingKeys;
 import cipm.consistency.cpr.javapcm.additional.validation.ExternalCallEmptyTargetFiller;
 import cipm.consistency.designtime.instrumentation2.CodeInstrumenter;
+import cipm.consistency.designtime.instrumentation2.SamplingConfiguration;
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import cipm.consistency.tools.evaluation.data.EvaluationDataStreamWriter;
+import cipm.consistency.tools.evaluation.data.SpanRecorder;
 import tools.vitruv.framework.propagation.ChangePropagationSpecification;
 
 /**
@@ -40,6 +44,9 @@ public class CommitIntegrationController {
 	private VSUMFacade facade;
 	private CommitChangePropagator prop;
 	private Resource instrumentedModel;
+	private boolean coalesceCommits;
+	private EvaluationDataStreamWriter evaluationDataWriter;
+	private String lastIntegratedCommit;
 	
 	/**
 	 * Creates a new instance.
@@ -58,6 +65,84 @@ public class CommitIntegrationController {
 		prop = new CommitChangePropagator(repositoryPath,
 				facade.getFileLayout().getJavaPath().toString(), facade.getVSUM());
 		prop.initialize();
+		coalesceCommits = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.COALESCE_COMMITS);
+		String evaluationDataStream = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.EVALUATION_DATA_STREAM);
+		if (evaluationDataStream != null && !evaluationDataStream.isBlank()) {
+			evaluationDataWriter = new EvaluationDataStreamWriter(Paths.get(evaluationDataStream.trim()));
+		}
+	}
+	
+	/**
+	 * Propagates all commits after the last integrated commit up to a head commit. In the coalescing mode, the
+	 * complete range is propagated as one state-based propagation from the last integrated commit to the head
+	 * commit, and the statistics of the single commits are recorded in the global EvaluationDataContainer. If no
+	 * Java files changed in the range, nothing is propagated. If the coalesced propagation fails or the coalescing
+	 * mode is disabled, the commits are propagated one by one. The commits file is only updated for a coalesced
+	 * propagation if it succeeded.
+	 * 
+	 * @param lastIntegratedCommit the last integrated commit or null.
+	 * @param headCommit the head commit of the range.
+	 * @return true if at least one propagation was successful. false otherwise.
+	 * @throws IOException if an IO operation fails.
+	 * @throws GitAPIException if a Git operation fails.
+	 */
+	public boolean propagateCommitRange(String lastIntegratedCommit, String headCommit)
+			throws IOException, GitAPIException {
+		List<RevCommit> commits = prop.getWrapper().getAllCommitsBetweenTwoCommits(lastIntegratedCommit, headCommit);
+		if (commits.isEmpty()) {
+			return false;
+		}
+		if (coalesceCommits && commits.size() > 1) {
+			RevCommit start = prop.getWrapper().getCommitForId(lastIntegratedCommit);
+			RevCommit head = prop.getWrapper().getCommitForId(headCommit);
+			if (prop.getWrapper().computeDiffsWithoutStatistics(start, head, true, false).isEmpty()) {
+				LOGGER.debug("No Java files changed between " + lastIntegratedCommit + " and " + headCommit
+						+ ". Nothing is propagated.");
+				return false;
+			}
+			LOGGER.debug("Propagating " + commits.size() + " commits at once.");
+			var commitStatistics = prop.computeChangeStatistics(start, commits);
+			boolean coalesced;
+			try {
+				coalesced = propagateAndRecordChanges(lastIntegratedCommit, headCommit, true);
+			} catch (IOException | GitAPIException | RuntimeException e) {
+				LOGGER.error("The coalesced propagation from " + lastIntegratedCommit + " to " + headCommit
+						+ " failed.", e);
+				coalesced = false;
+			}
+			if (coalesced) {
+				writeCommits(lastIntegratedCommit, headCommit);
+				var container = EvaluationDataContainer.getGlobalContainer();
+				container.getCommitStatistics().addAll(commitStatistics);
+				if (evaluationDataWriter != null) {
+					try {
+						evaluationDataWriter.writeCommitStatistics(headCommit, container);
+					} catch (IOException e) {
+						LOGGER.error("Could not write the statistics of the single commits.", e);
+					}
+				}
+			}
+			clearStreamedEvaluationData();
+			if (coalesced) {
+				return true;
+			}
+			LOGGER.debug("The coalesced propagation failed. Propagating the commits one by one.");
+		}
+		String oldCommit = lastIntegratedCommit;
+		boolean result = false;
+		try (var pipeline = prop.schedule(commits)) {
+			for (RevCommit commit : commits) {
+				String newCommit = commit.getId().getName();
+				if (propagateChanges(oldCommit, newCommit)) {
+					oldCommit = newCommit;
+					result = true;
+				}
+				clearStreamedEvaluationData();
+			}
+		}
+		return result;
 	}
 	
 	/**
@@ -85,6 +170,18 @@ public class CommitIntegrationController {
 	 */
 	public boolean propagateChanges(String oldCommit, String newCommit, boolean storeInstrumentedModel)
 			throws IOException, GitAPIException {
+		writeCommits(oldCommit, newCommit);
+		return propagateAndRecordChanges(oldCommit, newCommit, storeInstrumentedModel);
+	}
+	
+	/**
+	 * Writes the commits of a propagation into the commits file.
+	 * 
+	 * @param oldCommit the first commit or null.
+	 * @param newCommit the second commit.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private void writeCommits(String oldCommit, String newCommit) throws IOException {
 		var parent = this.facade.getFileLayout().getCommitsPath().toAbsolutePath().getParent();
 		if (Files.notExists(parent)) {
 			Files.createDirectories(parent);
@@ -95,33 +192,70 @@ public class CommitIntegrationController {
 			}
 			writer.write(newCommit + "\n");
 		}
-		
-		long overallTimer = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Propagates the changes between two commits and records the execution times and evaluation data.
+	 */
+	private boolean propagateAndRecordChanges(String oldCommit, String newCommit, boolean storeInstrumentedModel)
+			throws IOException, GitAPIException {
+		var overallSpan = SpanRecorder.start("propagateChanges");
+		boolean result;
+		try (overallSpan) {
+			result = propagateChangesInSpan(oldCommit, newCommit, storeInstrumentedModel);
+		}
+		if (result) {
+			lastIntegratedCommit = newCommit;
+		}
+		EvaluationDataContainer.getGlobalContainer().getExecutionTimes()
+				.setOverallTime(overallSpan.getSpan().getDurationMillis());
+		if (evaluationDataWriter != null) {
+			try {
+				evaluationDataWriter.writePropagationData(newCommit, EvaluationDataContainer.getGlobalContainer());
+			} catch (IOException e) {
+				LOGGER.error("Could not write the evaluation data of " + newCommit + ".", e);
+			}
+		}
+		return result;
+	}
+	
+	private boolean propagateChangesInSpan(String oldCommit, String newCommit, boolean storeInstrumentedModel)
+			throws IOException, GitAPIException {
 		instrumentedModel = null;
 		Path insDir = this.prop.getJavaFileSystemLayout().getInstrumentationCopy();
-		removeInstrumentationDirectory(insDir);
-		
-		// Deactivate all action instrumentation points.
-		this.facade.getInstrumentationModel().getPoints().forEach(sip -> 
-			sip.getActionInstrumentationPoints().forEach(aip -> aip.setActive(false)));
-		this.facade.getInstrumentationModel().eResource().save(null);
-		
-		long fineTimer = System.currentTimeMillis();
+		try (var span = SpanRecorder.start("resetInstrumentation")) {
+			if (isIncrementalInstrumentation()) {
+				// The instrumented code is kept for the next instrumentation but is not available for this commit
+				// until it is instrumented.
+				CodeInstrumenter.suspendIncrementalOutput(insDir);
+			} else {
+				removeInstrumentationDirectory(insDir);
+			}
+			
+			// Deactivate all action instrumentation points.
+			this.facade.getInstrumentationModel().getPoints().forEach(sip -> 
+				sip.getActionInstrumentationPoints().forEach(aip -> aip.setActive(false)));
+			this.facade.getInstrumentationModel().eResource().save(null);
+		}
 		
 		// Propagate the changes.
-		boolean result = prop.propagateChanges(oldCommit, newCommit);
-		
-		fineTimer = System.currentTimeMillis() - fineTimer;
+		var propagationSpan = SpanRecorder.start("changePropagation");
+		boolean result;
+		try (propagationSpan) {
+			result = prop.propagateChanges(oldCommit, newCommit);
+		}
 		EvaluationDataContainer.getGlobalContainer().getExecutionTimes()
-				.setChangePropagationTime(fineTimer);
+				.setChangePropagationTime(propagationSpan.getSpan().getDurationMillis());
 		
 		if (result) {
-			@SuppressWarnings("restriction")
-			ExternalCallEmptyTargetFiller filler = new ExternalCallEmptyTargetFiller(
-					facade.getVSUM().getCorrespondenceModel(),
-					facade.getPCMWrapper().getRepository(),
-					prop.getJavaFileSystemLayout().getExternalCallTargetPairsFile());
-			filler.fillExternalCalls();
+			try (var span = SpanRecorder.start("fillExternalCalls")) {
+				@SuppressWarnings("restriction")
+				ExternalCallEmptyTargetFiller filler = new ExternalCallEmptyTargetFiller(
+						facade.getVSUM().getCorrespondenceModel(),
+						facade.getPCMWrapper().getRepository(),
+						prop.getJavaFileSystemLayout().getExternalCallTargetPairsFile());
+				filler.fillExternalCalls();
+			}
 			
 			boolean hasChangedIM = false;
 			for (var sip : this.facade.getInstrumentationModel().getPoints()) {
@@ -138,18 +272,18 @@ public class CommitIntegrationController {
 			// Instrument the code only if there is a new action instrumentation point or if a full instrumentation
 			// shall be performed.
 			if (hasChangedIM || fullInstrumentation) {
-				fineTimer = System.currentTimeMillis();
-				Resource insModel = performInstrumentation(insDir, fullInstrumentation);
-				fineTimer = System.currentTimeMillis() - fineTimer;
+				var instrumentationSpan = SpanRecorder.start("instrumentation");
+				Resource insModel;
+				try (instrumentationSpan) {
+					insModel = performInstrumentation(insDir, fullInstrumentation);
+				}
 				EvaluationDataContainer.getGlobalContainer().getExecutionTimes()
-						.setInstrumentationTime(fineTimer);
+						.setInstrumentationTime(instrumentationSpan.getSpan().getDurationMillis());
 				if (storeInstrumentedModel) {
 					this.instrumentedModel = insModel;
 				}
 			}
 		}
-		overallTimer = System.currentTimeMillis() - overallTimer;
-		EvaluationDataContainer.getGlobalContainer().getExecutionTimes().setOverallTime(overallTimer);
 		return result;
 	}
 
@@ -176,14 +310,52 @@ public class CommitIntegrationController {
 		}
 	}
 	
+	/**
+	 * Indicates if the code is instrumented incrementally. In this case, the instrumented code model only
+	 * contains the compilation units which were instrumented for the last commit.
+	 * 
+	 * @return true if the code is instrumented incrementally. false otherwise.
+	 */
+	public boolean isIncrementalInstrumentation() {
+		return CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_INSTRUMENTATION);
+	}
+	
+	private String[] getInstrumentationExclusionPatterns() {
+		String patterns = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.INSTRUMENTATION_EXCLUSION_PATTERNS);
+		return patterns == null ? null : patterns.split(";");
+	}
+	
+	private int getInstrumentationSavingThreads() {
+		String threads = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.INSTRUMENTATION_SAVING_THREADS);
+		return threads == null ? 1 : Integer.parseInt(threads.trim());
+	}
+	
 	@SuppressWarnings("restriction")
 	private Resource performInstrumentation(Path instrumentationDirectory, boolean performFullInstrumentation) {
 		Resource javaModel = getJavaModelResource();
+		String[] exclusionPatterns = getInstrumentationExclusionPatterns();
+		int savingThreads = getInstrumentationSavingThreads();
+		boolean ringBufferRuntime = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.USE_RING_BUFFER_MONITORING_RUNTIME);
+		SamplingConfiguration sampling = SamplingConfiguration.parse(CommitIntegrationSettingsContainer
+				.getSettingsContainer().getProperty(SettingKeys.INSTRUMENTATION_SAMPLING_RATES));
+		if (isIncrementalInstrumentation()) {
+			return CodeInstrumenter.instrumentIncrementally(
+				this.facade.getInstrumentationModel(),
+				this.facade.getVSUM().getCorrespondenceModel(),
+				javaModel, instrumentationDirectory,
+				this.prop.getSourceDirectory(), !performFullInstrumentation,
+				exclusionPatterns, savingThreads, ringBufferRuntime, sampling);
+		}
 		return CodeInstrumenter.instrument(
 			this.facade.getInstrumentationModel(),
 			this.facade.getVSUM().getCorrespondenceModel(),
 			javaModel, instrumentationDirectory,
-			this.prop.getJavaFileSystemLayout().getLocalJavaRepo(), !performFullInstrumentation);
+			this.prop.getSourceDirectory(), !performFullInstrumentation,
+			exclusionPatterns, savingThreads, ringBufferRuntime, sampling);
 	}
 
 	/**
@@ -314,6 +486,13 @@ public class CommitIntegrationController {
 	public void shutdown() {
 		facade.getVSUM().dispose();
 		prop.shutdown();
+		if (evaluationDataWriter != null) {
+			try {
+				evaluationDataWriter.close();
+			} catch (IOException e) {
+				LOGGER.error(e);
+			}
+		}
 	}
 	
 	@SuppressWarnings("restriction")
@@ -323,6 +502,44 @@ public class CommitIntegrationController {
 				.getResource();
 	}
 	
+	/**
+	 * Returns the commit which was successfully propagated last by this instance.
+	 * 
+	 * @return the commit id or null if no commit was propagated successfully.
+	 */
+	public String getLastIntegratedCommit() {
+		return lastIntegratedCommit;
+	}
+	
+	/**
+	 * Removes the data which has been streamed for the last propagation from the global EvaluationDataContainer.
+	 * The data is kept after {@link #propagateChanges(String, String, boolean)} so that the caller can still
+	 * write the complete container of the commit. Afterwards, the caller is responsible for calling this method.
+	 * If the evaluation data is not streamed, nothing is removed.
+	 */
+	public void clearStreamedEvaluationData() {
+		if (evaluationDataWriter != null) {
+			evaluationDataWriter.clearWrittenData(EvaluationDataContainer.getGlobalContainer());
+		}
+	}
+	
+	/**
+	 * Returns the writer to which the evaluation data of every commit is appended.
+	 * 
+	 * @return the writer or null if the evaluation data is not streamed.
+	 */
+	public EvaluationDataStreamWriter getEvaluationDataWriter() {
+		return evaluationDataWriter;
+	}
+	
+	public boolean isCoalescingCommits() {
+		return coalesceCommits;
+	}
+	
+	public void setCoalescingCommits(boolean coalesceCommits) {
+		this.coalesceCommits = coalesceCommits;
+	}
+	
 	public Resource getLastInstrumentedModelResource() {
 		return this.instrumentedModel;
 	}
@@ -0,0 +1,231 @@
+package cipm.consistency.vsum;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.cpr.javapcm.CommitIntegrationJavaPCMChangePropagationSpecification;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+
+/**
+ * A long-running process which integrates new commits as soon as they arrive. In contrast to a new
+ * {@link CommitIntegrationController} per integration, the V-SUM, the parser state, and the caches are only loaded
+ * once and kept in memory between the integrations.
+ *
+ * In every poll, the local repository fetches the commits of the remote repository. If there are new commits,
+ * the commits after the last integrated commit up to the new head commit are propagated with
+ * {@link CommitIntegrationController#propagateCommitRange(String, String)}. If the setting
+ * {@link SettingKeys#DAEMON_DEPLOYMENT} is enabled, the instrumented code is compiled and deployed afterwards.
+ * A failed integration is logged, and the daemon continues with the next poll, which retries the commits that
+ * were not integrated. After {@link SettingKeys#DAEMON_MAX_ATTEMPTS} failed attempts for the same head commit, the
+ * commits are skipped until new commits arrive. The daemon stops after it has been closed or its thread has been interrupted, and shuts
+ * the controller down.
+ *
+ * @author Martin Armbruster
+ */
+public class CommitIntegrationDaemon implements Runnable, AutoCloseable {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + CommitIntegrationDaemon.class.getSimpleName());
+	private static final long DEFAULT_POLL_INTERVAL_SECONDS = 60;
+	private static final int DEFAULT_MAX_ATTEMPTS = 3;
+	private final CommitIntegrationController controller;
+	private final long pollIntervalSeconds;
+	private final boolean deploy;
+	private final int maxAttempts;
+	private final CountDownLatch stopSignal = new CountDownLatch(1);
+	private final CountDownLatch terminated = new CountDownLatch(1);
+	private String lastIntegratedCommit;
+	private String lastHeadCommit;
+	private String failedHeadCommit;
+	private int failedAttempts;
+	private volatile boolean running;
+
+	/**
+	 * Creates a new instance. The last integrated commit is read from the commits file of the controller so that
+	 * the daemon continues with the commits after the last propagation of a previous run.
+	 *
+	 * @param controller the controller which is used for all integrations. It is shut down by the daemon.
+	 */
+	public CommitIntegrationDaemon(CommitIntegrationController controller) {
+		this.controller = controller;
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		String interval = settings.getProperty(SettingKeys.DAEMON_POLL_INTERVAL);
+		pollIntervalSeconds = interval != null ? Long.parseLong(interval.trim()) : DEFAULT_POLL_INTERVAL_SECONDS;
+		if (pollIntervalSeconds < 1) {
+			throw new IllegalArgumentException("The poll interval must be at least 1 second.");
+		}
+		deploy = settings.getPropertyAsBoolean(SettingKeys.DAEMON_DEPLOYMENT);
+		String attempts = settings.getProperty(SettingKeys.DAEMON_MAX_ATTEMPTS);
+		maxAttempts = attempts != null ? Integer.parseInt(attempts.trim()) : DEFAULT_MAX_ATTEMPTS;
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("The number of attempts must be at least 1.");
+		}
+		String[] commits = controller.loadCommits();
+		lastIntegratedCommit = commits.length == 2 ? commits[1] : null;
+	}
+
+	/**
+	 * Polls for new commits until the daemon is closed or the thread is interrupted.
+	 */
+	@Override
+	public void run() {
+		running = true;
+		LOGGER.debug("Polling for new commits every " + pollIntervalSeconds + " seconds.");
+		try {
+			while (stopSignal.getCount() > 0 && !Thread.currentThread().isInterrupted()) {
+				try {
+					integrateNewCommits();
+				} catch (IOException | GitAPIException | RuntimeException e) {
+					LOGGER.error("The integration of the new commits failed.", e);
+				}
+				stopSignal.await(pollIntervalSeconds, TimeUnit.SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			LOGGER.debug("Stopping the integration of new commits.");
+			controller.shutdown();
+			running = false;
+			terminated.countDown();
+		}
+	}
+
+	/**
+	 * Fetches the new commits and integrates them. If no commit has been integrated yet, only the current head
+	 * commit is integrated instead of the complete history.
+	 *
+	 * @return true if at least one commit was integrated successfully. false otherwise.
+	 * @throws IOException if an IO operation fails.
+	 * @throws GitAPIException if a Git operation fails.
+	 */
+	public boolean integrateNewCommits() throws IOException, GitAPIException {
+		GitRepositoryWrapper wrapper = controller.getCommitChangePropagator().getWrapper();
+		List<RevCommit> newCommits = wrapper.fetchAndGetNewCommits();
+		RevCommit head = newCommits.isEmpty() ? wrapper.getLatestCommit() : newCommits.get(newCommits.size() - 1);
+		if (head == null) {
+			return false;
+		}
+		String headCommit = head.getId().getName();
+		// Commits without changes in Java files are not checked out. As a result, they are returned again by
+		// the next fetch and are skipped here.
+		if (headCommit.equals(lastHeadCommit) || headCommit.equals(lastIntegratedCommit)) {
+			lastHeadCommit = headCommit;
+			return false;
+		}
+		LOGGER.debug("Integrating the commits from " + lastIntegratedCommit + " to " + headCommit + ".");
+		// A new container per integration prevents the data from accumulating over the lifetime of the daemon.
+		EvaluationDataContainer.setGlobalContainer(new EvaluationDataContainer());
+		boolean result;
+		try {
+			if (lastIntegratedCommit == null) {
+				result = controller.propagateChanges(null, headCommit);
+			} else {
+				result = controller.propagateCommitRange(lastIntegratedCommit, headCommit);
+			}
+		} catch (IOException | GitAPIException | RuntimeException e) {
+			recordFailedAttempt(headCommit);
+			throw e;
+		} finally {
+			if (controller.getLastIntegratedCommit() != null) {
+				lastIntegratedCommit = controller.getLastIntegratedCommit();
+			}
+		}
+		// The head commit is only skipped in the next polls if all of its changes are integrated. Otherwise,
+		// the remaining commits are integrated again.
+		if (headCommit.equals(lastIntegratedCommit) || !hasJavaChanges(wrapper, head)) {
+			lastHeadCommit = headCommit;
+			failedHeadCommit = null;
+			failedAttempts = 0;
+		} else {
+			recordFailedAttempt(headCommit);
+		}
+		if (result && deploy) {
+			controller.compileAndDeployInstrumentedCode();
+		}
+		return result;
+	}
+
+	/**
+	 * Counts a failed attempt to integrate the commits up to a head commit. If the maximum number of attempts is
+	 * reached, the head commit is skipped in the next polls.
+	 */
+	private void recordFailedAttempt(String headCommit) {
+		if (headCommit.equals(failedHeadCommit)) {
+			failedAttempts++;
+		} else {
+			failedHeadCommit = headCommit;
+			failedAttempts = 1;
+		}
+		if (failedAttempts >= maxAttempts) {
+			LOGGER.error("The commits up to " + headCommit + " could not be integrated in " + failedAttempts
+					+ " attempts. They are skipped until new commits arrive.");
+			lastHeadCommit = headCommit;
+			failedHeadCommit = null;
+			failedAttempts = 0;
+		} else {
+			LOGGER.debug("Not all commits up to " + headCommit + " were integrated. They are retried.");
+		}
+	}
+
+	/**
+	 * Checks if Java files changed between the last integrated commit and a commit.
+	 */
+	private boolean hasJavaChanges(GitRepositoryWrapper wrapper, RevCommit commit)
+			throws IOException, GitAPIException {
+		RevCommit start = lastIntegratedCommit != null ? wrapper.getCommitForId(lastIntegratedCommit) : null;
+		return !wrapper.computeDiffsWithoutStatistics(start, commit, true, false).isEmpty();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public String getLastIntegratedCommit() {
+		return lastIntegratedCommit;
+	}
+
+	/**
+	 * Stops the polling. A running integration is completed before the daemon stops. If the daemon is running,
+	 * this method waits until it has shut the controller down.
+	 */
+	@Override
+	public void close() {
+		stopSignal.countDown();
+		if (running) {
+			try {
+				terminated.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Starts a daemon for the Java-PCM change propagation in the current thread. It is stopped when the JVM
+	 * terminates.
+	 *
+	 * @param args the path to the root directory in which all data is stored, the path to the remote repository,
+	 *             and the path to the settings file.
+	 * @throws IOException if an IO operation fails.
+	 * @throws GitAPIException if a Git operation fails.
+	 */
+	public static void main(String[] args) throws IOException, GitAPIException {
+		if (args.length != 3) {
+			System.err.println("Usage: CommitIntegrationDaemon <root directory> <repository> <settings file>");
+			System.exit(1);
+		}
+		CommitIntegrationDaemon daemon = new CommitIntegrationDaemon(new CommitIntegrationController(
+				Paths.get(args[0]), args[1], Paths.get(args[2]),
+				new CommitIntegrationJavaPCMChangePropagationSpecification()));
+		Runtime.getRuntime().addShutdownHook(new Thread(daemon::close, "cipm-daemon-shutdown"));
+		daemon.run();
+	}
+}
@@ -5,7 +5,9 @@ import java.util.List;
 import org.eclipse.emf.ecore.EObject;
 import org.emftext.language.java.members.Method;
 import org.emftext.language.java.statements.Statement;
+import org.palladiosimulator.pcm.repository.BasicComponent;
 import org.palladiosimulator.pcm.seff.AbstractAction;
+import org.palladiosimulator.pcm.seff.ResourceDemandingBehaviour;
 import org.palladiosimulator.pcm.seff.ResourceDemandingInternalBehaviour;
 import org.palladiosimulator.pcm.seff.ResourceDemandingSEFF;
 import org.somox.gast2seff.visitors.IFunctionClassificationStrategy;
@@ -16,6 +18,8 @@ import org.somox.sourcecodedecorator.SourceCodeDecoratorRepository;
 
 import com.google.common.collect.Lists;
 
+import cipm.consistency.tools.evaluation.data.PhaseSpan;
+import cipm.consistency.tools.evaluation.data.SpanRecorder;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.BasicComponentFinding;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.ClassMethodBodyChangedTransformation;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
@@ -29,6 +33,12 @@ import tools.vitruv.framework.userinteraction.UserInteractor;
  * @author Martin Armbruster
  */
 public class ExtendedClassMethodBodyChangedTransformation extends ClassMethodBodyChangedTransformation {
+	/**
+	 * The span in which the phases of the transformation are recorded. As the SEFF can be reconstructed
+	 * in another thread than the one in which it is applied, the span is opened in every step.
+	 */
+	private final PhaseSpan methodSpan;
+
 	public ExtendedClassMethodBodyChangedTransformation(final Method newMethod,
 			final BasicComponentFinding basicComponentFinder,
 			final IFunctionClassificationStrategy iFunctionClassificationStrategy,
@@ -36,6 +46,18 @@ public class ExtendedClassMethodBodyChangedTransformation extends ClassMethodBod
 			final ResourceDemandingBehaviourForClassMethodFinding resourceDemandingBehaviourForClassMethodFinding) {
 		super(newMethod, basicComponentFinder, iFunctionClassificationStrategy, interfaceOfExternalCallFindingFactory,
 				resourceDemandingBehaviourForClassMethodFinding);
+		var classifier = newMethod.getContainingConcreteClassifier();
+		String methodName = (classifier == null ? "" : classifier.getQualifiedName() + ".") + newMethod.getName();
+		this.methodSpan = SpanRecorder.create("method " + methodName);
+	}
+
+	/**
+	 * Returns the span in which the phases of the transformation for the changed method are recorded.
+	 * 
+	 * @return the span.
+	 */
+	protected PhaseSpan getMethodSpan() {
+		return methodSpan;
 	}
 
 	/**
@@ -46,11 +68,53 @@ public class ExtendedClassMethodBodyChangedTransformation extends ClassMethodBod
 	@Override
 	public void execute(final CorrespondenceModel correspondenceModel,
 			final UserInteractor userInteracting) {
-		super.execute(correspondenceModel, userInteracting);
-		var decorator = super.getSourceCodeDecoratorRepository();
-		if (decorator != null) {
-			// 5) Link the abstract actions with their corresponding statements.
-			this.bindAbstractActionsAndStatements(decorator, correspondenceModel);
+		try (var span = SpanRecorder.resume(methodSpan)) {
+			super.execute(correspondenceModel, userInteracting);
+			var decorator = super.getSourceCodeDecoratorRepository();
+			if (decorator != null) {
+				// 5) Link the abstract actions with their corresponding statements.
+				this.bindAbstractActionsAndStatements(decorator, correspondenceModel);
+			}
+		}
+	}
+
+	@Override
+	public boolean reconstruct(final CorrespondenceModel correspondenceModel) {
+		try (var span = SpanRecorder.resume(methodSpan)) {
+			return super.reconstruct(correspondenceModel);
+		}
+	}
+
+	/**
+	 * Extends the insertion of the extracted SEFF elements by linking the abstract actions
+	 * with their corresponding statements (see step 5 of
+	 * {@link #execute(CorrespondenceModel, UserInteractor)}).
+	 */
+	@Override
+	public void apply(final CorrespondenceModel correspondenceModel,
+			final UserInteractor userInteracting) {
+		try (var span = SpanRecorder.resume(methodSpan)) {
+			super.apply(correspondenceModel, userInteracting);
+			var decorator = super.getSourceCodeDecoratorRepository();
+			if (decorator != null) {
+				this.bindAbstractActionsAndStatements(decorator, correspondenceModel);
+			}
+		}
+	}
+
+	@Override
+	protected void executeSoMoXForMethod(final BasicComponent basicComponent,
+			final ResourceDemandingBehaviour targetResourceDemandingBehaviour) {
+		try (var span = SpanRecorder.start("somox")) {
+			super.executeSoMoXForMethod(basicComponent, targetResourceDemandingBehaviour);
+		}
+	}
+
+	@Override
+	protected void createNewCorrespondences(final CorrespondenceModel ci,
+			final ResourceDemandingBehaviour newResourceDemandingBehaviourElements) {
+		try (var span = SpanRecorder.start("correspondences")) {
+			super.createNewCorrespondences(ci, newResourceDemandingBehaviourElements);
 		}
 	}
 	
@@ -10,16 +10,58 @@ import tools.vitruv.applications.pcmjava.seffstatements.code2seff.BasicComponent
 import cipm.consistency.domains.java.AdjustedJavaDomainProvider
 import cipm.consistency.domains.pcm.ExtendedPcmDomainProvider
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.Code2SeffFactory
+import cipm.consistency.domains.java.AdjustedJavaDomain
+import cipm.consistency.domains.java.propagation.JavaStateBasedChangeResolutionStrategy
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer
+import cipm.consistency.commitintegration.settings.SettingKeys
 
 class ExtendedJava2PcmMethodBodyChangePreprocessor extends Java2PcmMethodBodyChangePreprocessor {
+	val JavaStateBasedChangeResolutionStrategy changeResolutionStrategy
 
 	new() {
 		this(new CommitIntegrationCodeToSeffFactory)
 	}
 	
 	new(Code2SeffFactory factory) {
-		super(factory,
-			new AdjustedJavaDomainProvider().domain, new ExtendedPcmDomainProvider().domain)		
+		this(factory, new AdjustedJavaDomainProvider().domain)
+	}
+	
+	new(Code2SeffFactory factory, AdjustedJavaDomain javaDomain) {
+		super(factory, javaDomain, new ExtendedPcmDomainProvider().domain)
+		changeResolutionStrategy = javaDomain.stateChangePropagationStrategy
+	}
+
+	/**
+	 * Returns all methods with changed bodies of the batch of the last change resolution in the Java domain if
+	 * the batch is signaled by the renamed method.
+	 */
+	protected override Iterable<Method> getChangedMethods(Method renamedMethod) {
+		val batch = changeResolutionStrategy.methodBodyChangeBatch
+		return if (batch === null) #[renamedMethod] else batch.getChangedMethods(renamedMethod)
+	}
+
+	/**
+	 * Returns the number of threads for the SEFF reconstruction as configured in the settings. By default, the
+	 * methods are processed one after another.
+	 * 
+	 * @throws IllegalArgumentException if the setting is not a positive number.
+	 */
+	protected override int getReconstructionParallelism() {
+		val threads = CommitIntegrationSettingsContainer.settingsContainer
+			.getProperty(SettingKeys.SEFF_RECONSTRUCTION_THREADS)
+		if (threads === null) {
+			return 1
+		}
+		val parallelism = try {
+			Integer.parseInt(threads.trim)
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The number of SEFF reconstruction threads is not a number: "
+				+ threads, e)
+		}
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The number of SEFF reconstruction threads must be at least 1.")
+		}
+		return parallelism
 	}
 
 	protected override ClassMethodBodyChangedTransformation createTransformation(Method newMethod,
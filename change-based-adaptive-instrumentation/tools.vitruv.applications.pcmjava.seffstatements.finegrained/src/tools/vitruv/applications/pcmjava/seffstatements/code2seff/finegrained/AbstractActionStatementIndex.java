@@ -0,0 +1,159 @@
+package tools.vitruv.applications.pcmjava.seffstatements.code2seff.finegrained;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.emf.ecore.EObject;
+import org.emftext.language.java.statements.ExpressionStatement;
+import org.emftext.language.java.statements.LocalVariableStatement;
+import org.emftext.language.java.statements.Return;
+import org.emftext.language.java.statements.Statement;
+import org.emftext.language.java.statements.SynchronizedBlock;
+import org.palladiosimulator.pcm.seff.AbstractAction;
+import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
+
+import tools.vitruv.framework.correspondence.CorrespondenceModel;
+import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
+
+/**
+ * Index of the statements which correspond to the actions of an existing ResourceDemandingBehaviour.
+ * The corresponding statements of each action are looked up once. They are bucketed by the type of
+ * their action and a structural key so that a statement of a new action is only compared with the
+ * statements which can be similar to it.
+ *
+ * @author Martin Armbruster
+ */
+class AbstractActionStatementIndex {
+	/**
+	 * Key part for a statement without the child which is compared by the similarity check.
+	 */
+	private static final Object NO_CHILD = new Object();
+	private final SimilarityChecker similarityChecker;
+	/**
+	 * The indexed statements per action type and structural key.
+	 */
+	private final Map<Object, List<IndexedStatement>> buckets = new HashMap<>();
+	/**
+	 * The indexed statements per action type for which no structural key can be computed.
+	 */
+	private final Map<Class<?>, List<IndexedStatement>> unkeyedStatements = new HashMap<>();
+	/**
+	 * All indexed statements per action type.
+	 */
+	private final Map<Class<?>, List<IndexedStatement>> statementsByActionType = new HashMap<>();
+
+	/**
+	 * Creates a new index.
+	 *
+	 * @param oldActions the actions of the existing ResourceDemandingBehaviour.
+	 * @param correspondenceModel the correspondence model to look up the statements of the actions.
+	 * @param similarityChecker the checker which decides if two statements are similar.
+	 */
+	AbstractActionStatementIndex(List<AbstractAction> oldActions, CorrespondenceModel correspondenceModel,
+			SimilarityChecker similarityChecker) {
+		this.similarityChecker = similarityChecker;
+		for (int idx = 0; idx < oldActions.size(); idx++) {
+			AbstractAction oldAction = oldActions.get(idx);
+			Set<Statement> statements = CorrespondenceModelUtil.getCorrespondingEObjects(correspondenceModel,
+					oldAction, Statement.class);
+			if (statements == null) {
+				continue;
+			}
+			for (Statement statement : statements) {
+				IndexedStatement entry = new IndexedStatement(idx, statement);
+				statementsByActionType.computeIfAbsent(oldAction.getClass(), k -> new ArrayList<>()).add(entry);
+				Object key = this.computeKey(oldAction, statement, false);
+				if (key == null) {
+					unkeyedStatements.computeIfAbsent(oldAction.getClass(), k -> new ArrayList<>()).add(entry);
+				} else {
+					buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts for the old actions of the same type as the new action how many pairs of a new and a
+	 * corresponding old statement are similar.
+	 *
+	 * @param newAction the new action.
+	 * @param newStatements the statements of the new action.
+	 * @return the number of similar statement pairs per position of the old action. Only old actions
+	 *         with at least one similar pair are contained. They are sorted by their position.
+	 */
+	TreeMap<Integer, Integer> countSimilarStatements(AbstractAction newAction, List<Statement> newStatements) {
+		TreeMap<Integer, Integer> counts = new TreeMap<>();
+		for (Statement newStatement : newStatements) {
+			Object key = this.computeKey(newAction, newStatement, true);
+			if (key == null) {
+				this.count(newStatement, statementsByActionType.get(newAction.getClass()), counts);
+			} else {
+				this.count(newStatement, buckets.get(key), counts);
+				this.count(newStatement, unkeyedStatements.get(newAction.getClass()), counts);
+			}
+		}
+		return counts;
+	}
+
+	private void count(Statement newStatement, List<IndexedStatement> candidates, Map<Integer, Integer> counts) {
+		if (candidates == null) {
+			return;
+		}
+		for (IndexedStatement candidate : candidates) {
+			if (Boolean.TRUE.equals(similarityChecker.isSimilar(newStatement, candidate.statement))) {
+				counts.merge(candidate.actionIndex, 1, Integer::sum);
+			}
+		}
+	}
+
+	/**
+	 * Computes a key which is equal for all statements of actions with the same type that can be similar.
+	 * Besides the type of the statement, it contains the key of the child which the similarity check
+	 * compares first, because children of different types are never similar.
+	 *
+	 * @param action the action of the statement.
+	 * @param statement the statement.
+	 * @param firstElement true if the statement is the first element of the similarity check.
+	 * @return the key or null if the statement can be similar to any statement.
+	 */
+	private Object computeKey(AbstractAction action, Statement statement, boolean firstElement) {
+		if (statement.eIsProxy()) {
+			return null;
+		}
+		EObject child;
+		if (statement instanceof ExpressionStatement) {
+			child = ((ExpressionStatement) statement).getExpression();
+		} else if (statement instanceof Return) {
+			child = ((Return) statement).getReturnValue();
+		} else if (statement instanceof LocalVariableStatement) {
+			child = ((LocalVariableStatement) statement).getVariable();
+		} else if (statement instanceof SynchronizedBlock) {
+			child = ((SynchronizedBlock) statement).getLockProvider();
+		} else {
+			return Arrays.asList(action.getClass(), statement.eClass());
+		}
+		Object childKey = child == null ? NO_CHILD : similarityChecker.computeSimilarityKey(child, firstElement);
+		if (childKey == null) {
+			return null;
+		}
+		return Arrays.asList(action.getClass(), statement.eClass(), childKey);
+	}
+
+	/**
+	 * A statement of an old action.
+	 */
+	private static final class IndexedStatement {
+		private final int actionIndex;
+		private final Statement statement;
+
+		IndexedStatement(int actionIndex, Statement statement) {
+			this.actionIndex = actionIndex;
+			this.statement = statement;
+		}
+	}
+}
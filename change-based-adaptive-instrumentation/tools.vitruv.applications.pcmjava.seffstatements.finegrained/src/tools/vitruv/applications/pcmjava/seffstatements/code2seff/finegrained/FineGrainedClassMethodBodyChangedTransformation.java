@@ -1,7 +1,9 @@
 package tools.vitruv.applications.pcmjava.seffstatements.code2seff.finegrained;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,11 +26,11 @@ import org.somox.gast2seff.visitors.VisitorUtils;
 import org.somox.sourcecodedecorator.SeffElementSourceCodeLink;
 import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
 
+import cipm.consistency.tools.evaluation.data.SpanRecorder;
 import de.uka.ipd.sdq.identifier.Identifier;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.BasicComponentFinding;
 import tools.vitruv.applications.pcmjava.seffstatements.code2seff.extended.ExtendedClassMethodBodyChangedTransformation;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
-import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 import tools.vitruv.framework.userinteraction.UserInteractor;
 
 /**
@@ -44,8 +46,14 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 			.getLogger(FineGrainedClassMethodBodyChangedTransformation.class.getSimpleName());
 	private final Method newMethod;
 	private final BasicComponentFinding basicComponentFinder;
+	private ResourceDemandingBehaviour newSEFF;
 	private ResourceDemandingBehaviourDiff rdbDifference;
 	private final SimilarityChecker similarityChecker;
+	/**
+	 * The maximum number of cached statement similarities. The cache lives as long as the
+	 * transformation of one changed method.
+	 */
+	private static final long SIMILARITY_CACHE_SIZE = 10_000;
 
 	public FineGrainedClassMethodBodyChangedTransformation(final Method newMethod,
 			final BasicComponentFinding basicComponentFinder,
@@ -57,6 +65,7 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 		this.newMethod = newMethod;
 		this.basicComponentFinder = basicComponentFinder;
 		this.similarityChecker = new SimilarityChecker();
+		this.similarityChecker.enableCache(SIMILARITY_CACHE_SIZE);
 	}
 
 	/**
@@ -66,28 +75,56 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 	 */
 	@Override
 	public void execute(final CorrespondenceModel correspondenceModel, final UserInteractor userInteracting) {
-		if (!this.isArchitectureRelevantChange(correspondenceModel)) {
-			LOGGER.debug("Change within the method " + this.newMethod + " is not an architecture-relevant change.");
-			return;
+		try (var span = SpanRecorder.resume(this.getMethodSpan())) {
+			if (this.reconstruct(correspondenceModel)) {
+				this.apply(correspondenceModel, userInteracting);
+			}
 		}
+	}
 
-		// 1) Get old ResourceDemandingBehaviour.
-		final ResourceDemandingBehaviour oldSEFF = this.findRdBehaviorToInsertElements(correspondenceModel);
-
-		// 2) Create the new ResourceDemandingBehaviour.
-		final ResourceDemandingBehaviour newSEFF = this.createNewResourceDemandingBehaviour(correspondenceModel);
+	/**
+	 * Creates the new ResourceDemandingBehaviour for the method without modifying the
+	 * existing SEFF.
+	 */
+	@Override
+	public boolean reconstruct(final CorrespondenceModel correspondenceModel) {
+		try (var span = SpanRecorder.resume(this.getMethodSpan())) {
+			if (!this.isArchitectureRelevantChange(correspondenceModel)) {
+				LOGGER.debug("Change within the method " + this.newMethod + " is not an architecture-relevant change.");
+				return false;
+			}
 
-		// 3) Calculate the difference between the old and new SEFF.
-		this.calculateResourceDemandingBehaviourDiff(oldSEFF, newSEFF, correspondenceModel);
+			// 2) Create the new ResourceDemandingBehaviour.
+			this.newSEFF = this.createNewResourceDemandingBehaviour(correspondenceModel);
+			return true;
+		}
+	}
 
-		// 4) Update the old ResourceDemandingBehaviour by merging the differences.
-		this.mergeDifferences(oldSEFF, newSEFF);
+	/**
+	 * Merges the differences between the new ResourceDemandingBehaviour and the
+	 * existing SEFF.
+	 */
+	@Override
+	public void apply(final CorrespondenceModel correspondenceModel, final UserInteractor userInteracting) {
+		try (var methodSpan = SpanRecorder.resume(this.getMethodSpan())) {
+			// 1) Get old ResourceDemandingBehaviour.
+			final ResourceDemandingBehaviour oldSEFF = this.findRdBehaviorToInsertElements(correspondenceModel);
+
+			try (var span = SpanRecorder.start("merge")) {
+				// 3) Calculate the difference between the old and new SEFF.
+				this.calculateResourceDemandingBehaviourDiff(oldSEFF, this.newSEFF, correspondenceModel);
+
+				// 4) Update the old ResourceDemandingBehaviour by merging the differences.
+				this.mergeDifferences(oldSEFF, this.newSEFF);
+				this.newSEFF = null;
+			}
 
-		// 5) Create new correspondences between the SEFF elements and the method.
-		this.createNewCorrespondences(correspondenceModel, oldSEFF);
+			// 5) Create new correspondences between the SEFF elements and the method.
+			this.createNewCorrespondences(correspondenceModel, oldSEFF);
 
-		// 6) Create correspondences between the SEFF elements and statements.
-		this.createCorrespondencesForAbstractActionsAndStatements(correspondenceModel, oldSEFF);
+			// 6) Create correspondences between the SEFF elements and statements.
+			this.createCorrespondencesForAbstractActionsAndStatements(correspondenceModel, oldSEFF);
+		}
 	}
 
 	private ResourceDemandingBehaviour createNewResourceDemandingBehaviour(
@@ -147,34 +184,33 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 
 		List<AbstractAction> oldAbstractActions = this.getRelevantAbstractActions(oldSEFF);
 		Map<AbstractAction, List<Statement>> newSeffStatements = this.getNewSeffElementStatements(newSEFF);
+		AbstractActionStatementIndex oldStatementIndex = new AbstractActionStatementIndex(oldAbstractActions, ci,
+				this.similarityChecker);
 
 		for (Map.Entry<AbstractAction, List<Statement>> entry : newSeffStatements.entrySet()) {
 			AbstractAction newAbstractAction = entry.getKey();
 			List<Statement> newAbstractActionStatements = entry.getValue();
 
-			for (AbstractAction oldAbstractAction : oldAbstractActions) {
-				// Get corresponding statements for old AbstractAction.
-				Set<Statement> oldAbstractActionStatements = CorrespondenceModelUtil.getCorrespondingEObjects(ci,
-						oldAbstractAction, Statement.class);
-
-				int similarStatementsCount = this.compareAbstractActions(newAbstractAction, oldAbstractAction,
-						newAbstractActionStatements, oldAbstractActionStatements);
-
-				if (newAbstractActionStatements.size() == similarStatementsCount) {
-					rdbDifference.getUnmodifiedAbstractActions()
-							.add(new AbstractActionMatching(newAbstractAction, oldAbstractAction));
-					break;
-				} else if (similarStatementsCount != 0) {
-					rdbDifference.getModifiedAbstractActions()
-							.add(new AbstractActionMatching(newAbstractAction, oldAbstractAction));
-					break;
-				}
+			// The first old AbstractAction with at least one similar statement is matched.
+			var similarStatementsCounts = oldStatementIndex.countSimilarStatements(newAbstractAction,
+					newAbstractActionStatements);
+			if (similarStatementsCounts.isEmpty()) {
+				continue;
+			}
+			var firstMatch = similarStatementsCounts.firstEntry();
+			AbstractAction oldAbstractAction = oldAbstractActions.get(firstMatch.getKey());
+			if (newAbstractActionStatements.size() == firstMatch.getValue()) {
+				rdbDifference.addUnmodifiedAbstractAction(
+						new AbstractActionMatching(newAbstractAction, oldAbstractAction));
+			} else {
+				rdbDifference.addModifiedAbstractAction(
+						new AbstractActionMatching(newAbstractAction, oldAbstractAction));
 			}
 		}
 	}
 
 	private Map<AbstractAction, List<Statement>> getNewSeffElementStatements(ResourceDemandingBehaviour newSEFF) {
-		Map<AbstractAction, List<Statement>> newSeffStatements = new HashMap<>();
+		Map<AbstractAction, List<Statement>> newSeffStatements = new LinkedHashMap<>();
 		List<SeffElementSourceCodeLink> seffStatementLinks = this.getSourceCodeDecoratorRepository()
 				.getSeffElementsSourceCodeLinks();
 		for (SeffElementSourceCodeLink seffStatementLink : seffStatementLinks) {
@@ -184,35 +220,6 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 		return newSeffStatements;
 	}
 
-	private int compareAbstractActions(AbstractAction newAbstractAction, AbstractAction oldAbstractAction,
-			List<Statement> newAbstractActionStatements, Set<Statement> oldAbstractActionStatements) {
-		if (oldAbstractAction.getClass() != newAbstractAction.getClass()) {
-			return 0;
-		} else {
-			// Compare statements.
-			return this.compareStatements(newAbstractActionStatements, oldAbstractActionStatements);
-		}
-	}
-
-	/**
-	 * Returns the number of similar statements.
-	 * 
-	 * @param newStatements statements of the new method.
-	 * @param oldStatements statements of the old method.
-	 * @return the number of similar statements.
-	 */
-	private int compareStatements(List<Statement> newStatements, Set<Statement> oldStatements) {
-		int similarStatementsCount = 0;
-		for (Statement newStatement : newStatements) {
-			for (Statement oldStatement : oldStatements) {
-				if (this.similarityChecker.isSimilar(newStatement, oldStatement)) {
-					similarStatementsCount++;
-				}
-			}
-		}
-		return similarStatementsCount;
-	}
-
 	private void mergeDifferences(ResourceDemandingBehaviour rdBehavior, ResourceDemandingBehaviour newSeff) {
 		final List<AbstractAction> steps = rdBehavior.getSteps_Behaviour();
 
@@ -237,9 +244,9 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 	}
 
 	private void removeOldAbstractActions(List<AbstractAction> steps) {
-		for (var action : rdbDifference.getDeletedAbstractActions()) {
-			steps.remove(action);
-		}
+		Set<AbstractAction> deletedActions = Collections.newSetFromMap(new IdentityHashMap<>());
+		deletedActions.addAll(rdbDifference.getDeletedAbstractActions());
+		steps.removeAll(deletedActions);
 	}
 
 	private void addNewAbstractActions(List<AbstractAction> steps, ResourceDemandingBehaviour newSeff) {
@@ -281,7 +288,7 @@ public class FineGrainedClassMethodBodyChangedTransformation extends ExtendedCla
 	private void addChangedAbstractActions(List<AbstractAction> oldActions, ResourceDemandingBehaviour newSeff) {
 		for (AbstractAction newAction : newSeff.getSteps_Behaviour()) {
 			var matching = rdbDifference.getNewAbstractActionMatching(newAction);
-			if (matching != null && rdbDifference.getModifiedAbstractActions().contains(matching)) {
+			if (matching != null && rdbDifference.isModified(matching)) {
 				int oldIndex = oldActions.indexOf(matching.getOldAbstractAction());
 				oldActions.set(oldIndex, newAction);
 			}
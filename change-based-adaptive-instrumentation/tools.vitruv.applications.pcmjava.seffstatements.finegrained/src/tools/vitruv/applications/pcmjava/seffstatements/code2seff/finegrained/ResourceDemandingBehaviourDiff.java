@@ -1,12 +1,17 @@
 package tools.vitruv.applications.pcmjava.seffstatements.code2seff.finegrained;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.palladiosimulator.pcm.seff.AbstractAction;
 
 /**
  * Describes the difference of two ResourceDemandingBehaviours regarding their contained actions.
+ * The matchings are indexed by their actions so that the lookups take constant time.
  * 
  * @author Noureddine Dahmane
  * @author Martin Armbruster
@@ -16,12 +21,18 @@ public class ResourceDemandingBehaviourDiff {
 	private List<AbstractAction> addedAbstractActions;
 	private List<AbstractActionMatching> modifiedAbstractActions;
 	private List<AbstractActionMatching> unmodifiedAbstractActions;
+	private Set<AbstractActionMatching> modifiedMatchings;
+	private Set<AbstractAction> matchedOldAbstractActions;
+	private Map<AbstractAction, AbstractActionMatching> newAbstractActionMatchings;
 	
 	public ResourceDemandingBehaviourDiff() {
 		deletedAbstractActions =  new ArrayList<>();
 		addedAbstractActions = new ArrayList<>();
 		modifiedAbstractActions = new ArrayList<>();
 		unmodifiedAbstractActions = new ArrayList<>();
+		modifiedMatchings = Collections.newSetFromMap(new IdentityHashMap<>());
+		matchedOldAbstractActions = Collections.newSetFromMap(new IdentityHashMap<>());
+		newAbstractActionMatchings = new IdentityHashMap<>();
 	}
 
 	public List<AbstractAction> getDeletedAbstractActions() {
@@ -32,53 +43,75 @@ public class ResourceDemandingBehaviourDiff {
 		return addedAbstractActions;
 	}
 
+	/**
+	 * Returns the matchings of modified actions. Matchings are added with
+	 * {@link #addModifiedAbstractAction(AbstractActionMatching)}.
+	 * 
+	 * @return an unmodifiable view of the matchings.
+	 */
 	public List<AbstractActionMatching> getModifiedAbstractActions() {
-		return modifiedAbstractActions;
+		return Collections.unmodifiableList(modifiedAbstractActions);
 	}
 	
+	/**
+	 * Returns the matchings of unmodified actions. Matchings are added with
+	 * {@link #addUnmodifiedAbstractAction(AbstractActionMatching)}.
+	 * 
+	 * @return an unmodifiable view of the matchings.
+	 */
 	public List<AbstractActionMatching> getUnmodifiedAbstractActions() {
-		return unmodifiedAbstractActions;
+		return Collections.unmodifiableList(unmodifiedAbstractActions);
 	}
 	
-	public boolean hasOldAbstractActionMatching(AbstractAction oldAbstractAction) {
-		for (AbstractActionMatching matching : getModifiedAbstractActions()) {
-			if (oldAbstractAction == matching.getOldAbstractAction()) {
-				return true;
-			}
-		}
-		for (AbstractActionMatching matching : getUnmodifiedAbstractActions()) {
-			if (oldAbstractAction == matching.getOldAbstractAction()) {
-				return true;
-			}
+	/**
+	 * Adds a matching of a modified action.
+	 * 
+	 * @param matching the matching.
+	 */
+	public void addModifiedAbstractAction(AbstractActionMatching matching) {
+		modifiedAbstractActions.add(matching);
+		modifiedMatchings.add(matching);
+		this.index(matching);
+	}
+	
+	/**
+	 * Adds a matching of an unmodified action.
+	 * 
+	 * @param matching the matching.
+	 */
+	public void addUnmodifiedAbstractAction(AbstractActionMatching matching) {
+		unmodifiedAbstractActions.add(matching);
+		this.index(matching);
+	}
+	
+	private void index(AbstractActionMatching matching) {
+		matchedOldAbstractActions.add(matching.getOldAbstractAction());
+		// Like the former linear search, the modified matchings take precedence over the unmodified ones.
+		var existing = newAbstractActionMatchings.get(matching.getNewAbstractAction());
+		if (existing == null || (!this.isModified(existing) && this.isModified(matching))) {
+			newAbstractActionMatchings.put(matching.getNewAbstractAction(), matching);
 		}
-		return false;
+	}
+	
+	/**
+	 * Checks if a matching belongs to the modified actions.
+	 * 
+	 * @param matching the matching.
+	 * @return true if the matching was added as matching of a modified action.
+	 */
+	public boolean isModified(AbstractActionMatching matching) {
+		return modifiedMatchings.contains(matching);
+	}
+	
+	public boolean hasOldAbstractActionMatching(AbstractAction oldAbstractAction) {
+		return matchedOldAbstractActions.contains(oldAbstractAction);
 	}
 	
 	public boolean hasNewAbstractActionMatching(AbstractAction newAbstractAction) {
-		for (AbstractActionMatching matching : getModifiedAbstractActions()) {
-			if (matching.getNewAbstractAction() == newAbstractAction) {
-				return true;
-			}
-		}
-		for (AbstractActionMatching matching : getUnmodifiedAbstractActions()) {
-			if (matching.getNewAbstractAction() == newAbstractAction) {
-				return true;
-			}
-		}
-		return false;
+		return newAbstractActionMatchings.containsKey(newAbstractAction);
 	}
 	
 	public AbstractActionMatching getNewAbstractActionMatching(AbstractAction newAction) {
-		for (var matching : getModifiedAbstractActions()) {
-			if (matching.getNewAbstractAction() == newAction) {
-				return matching;
-			}
-		}
-		for (var matching : getUnmodifiedAbstractActions()) {
-			if (matching.getNewAbstractAction() == newAction) {
-				return matching;
-			}
-		}
-		return null;
+		return newAbstractActionMatchings.get(newAction);
 	}
 }